@@ -17,7 +17,9 @@ package org.openlmis.fulfillment.repository;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -32,19 +34,28 @@ import static org.junit.Assert.assertTrue;
 import com.google.common.collect.Lists;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import org.junit.Test;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.domain.BaseEntity;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.fulfillment.service.OrderSearchParams;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
+import org.openlmis.fulfillment.web.util.BasicOrderDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -58,6 +69,9 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
   @Autowired
   private OrderRepository orderRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
   Pageable pageable = PageRequest.of(0, 10);
 
   @Override
@@ -93,6 +107,15 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
         .build();
   }
 
+  private Order generateInstance(UUID facilityId, OrderStatus status) {
+    return new OrderDataBuilder()
+        .withoutId()
+        .withoutLineItems()
+        .withStatus(status)
+        .withFacilityId(facilityId)
+        .build();
+  }
+
   @Test
   public void testDeleteWithLine() {
     Order instance = new OrderDataBuilder().withoutId().build();
@@ -202,6 +225,153 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
     assertSearchOrders(page, requisitionlessOrder);
   }
 
+  @Test
+  public void shouldSeekOrdersPageByPage() {
+    UUID supplyingFacilityId = UUID.randomUUID();
+    Set<UUID> saved = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      saved.add(orderRepository.save(generateInstance(supplyingFacilityId)).getId());
+    }
+    orderRepository.save(generateInstance());
+
+    OrderSearchParams params = new OrderSearchParams();
+    List<Order> found = Lists.newArrayList();
+    ContinuationToken after = null;
+
+    do {
+      List<Order> page = orderRepository.seekOrders(params, null, after, 2,
+          Collections.singleton(supplyingFacilityId), Collections.emptySet());
+      assertThat(page.size(), is(Math.min(2, 5 - found.size())));
+      found.addAll(page);
+      after = page.isEmpty() ? null : ContinuationToken.after(page.get(page.size() - 1));
+    } while (found.size() < 5);
+
+    assertThat(found.stream().map(BaseEntity::getId).collect(Collectors.toSet()),
+        is(equalTo(saved)));
+    for (int i = 1; i < found.size(); i++) {
+      assertFalse(found.get(i).getCreatedDate().isAfter(found.get(i - 1).getCreatedDate()));
+    }
+    assertThat(orderRepository.seekOrders(params, null, after, 2,
+        Collections.singleton(supplyingFacilityId), Collections.emptySet()), hasSize(0));
+  }
+
+  @Test
+  public void shouldFindOrdersWithoutCount() {
+    UUID supplyingFacilityId = UUID.randomUUID();
+    for (int i = 0; i < 5; i++) {
+      orderRepository.save(generateInstance(supplyingFacilityId));
+    }
+
+    OrderSearchParams params = new OrderSearchParams();
+    Set<UUID> supplyingFacilities = Collections.singleton(supplyingFacilityId);
+
+    Page<Order> first = orderRepository.searchOrders(params, null, PageRequest.of(0, 2),
+        CountStrategy.NONE, supplyingFacilities, Collections.emptySet());
+    assertEquals(2, first.getNumberOfElements());
+    assertEquals(3, first.getTotalElements());
+    assertFalse(first.isLast());
+
+    Page<Order> last = orderRepository.searchOrders(params, null, PageRequest.of(2, 2),
+        CountStrategy.NONE, supplyingFacilities, Collections.emptySet());
+    assertEquals(1, last.getNumberOfElements());
+    assertEquals(5, last.getTotalElements());
+    assertTrue(last.isLast());
+  }
+
+  @Test
+  public void shouldFindOrderSummaries() {
+    UUID supplyingFacilityId = UUID.randomUUID();
+    final Order order = orderRepository.save(generateInstance(supplyingFacilityId));
+    orderRepository.save(generateInstance(supplyingFacilityId));
+    orderRepository.save(generateInstance(UUID.randomUUID()));
+    entityManager.flush();
+    entityManager.clear();
+
+    Page<Order> page = orderRepository.searchOrderSummaries(new OrderSearchParams(), null,
+        PageRequest.of(0, 10), CountStrategy.EXACT, Collections.singleton(supplyingFacilityId),
+        Collections.emptySet());
+
+    assertEquals(2, page.getTotalElements());
+    Order summary = page.getContent().stream()
+        .filter(elem -> order.getId().equals(elem.getId()))
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+    assertFalse(entityManager.contains(summary));
+
+    BasicOrderDto expected = new BasicOrderDto();
+    orderRepository.findById(order.getId()).orElseThrow(IllegalStateException::new)
+        .export(expected);
+    BasicOrderDto actual = new BasicOrderDto();
+    summary.export(actual);
+
+    assertEquals(expected, actual);
+    assertEquals(order.getFacilityId(), summary.getFacilityId());
+    assertEquals(order.getProgramId(), summary.getProgramId());
+    assertEquals(order.getProcessingPeriodId(), summary.getProcessingPeriodId());
+    assertEquals(order.getCreatedById(), summary.getCreatedById());
+    assertEquals(order.getRequestingFacilityId(), summary.getRequestingFacilityId());
+    assertEquals(order.getReceivingFacilityId(), summary.getReceivingFacilityId());
+    assertEquals(order.getSupplyingFacilityId(), summary.getSupplyingFacilityId());
+  }
+
+  @Test
+  public void shouldStreamOrderSummariesInChunks() {
+    UUID supplyingFacilityId = UUID.randomUUID();
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ids.add(orderRepository.save(generateInstance(supplyingFacilityId)).getId());
+    }
+    orderRepository.save(generateInstance(UUID.randomUUID()));
+    entityManager.flush();
+
+    List<Integer> chunkSizes = new ArrayList<>();
+    List<Order> streamed = new ArrayList<>();
+    orderRepository.streamOrderSummaries(new OrderSearchParams(), null, 2, chunk -> {
+      chunkSizes.add(chunk.size());
+      streamed.addAll(chunk);
+    }, Collections.singleton(supplyingFacilityId), Collections.emptySet());
+
+    assertEquals(asList(2, 2, 1), chunkSizes);
+    assertThat(streamed.stream().map(Order::getId).collect(Collectors.toList()),
+        hasItems(ids.toArray(new UUID[0])));
+    for (int i = 1; i < streamed.size(); i++) {
+      assertFalse(streamed.get(i).getCreatedDate()
+          .isAfter(streamed.get(i - 1).getCreatedDate()));
+      assertEquals(supplyingFacilityId, streamed.get(i).getSupplyingFacilityId());
+    }
+  }
+
+  @Test
+  public void shouldNotStreamOrdersWithoutAvailableFacilities() {
+    orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    entityManager.flush();
+
+    List<Order> streamed = new ArrayList<>();
+    orderRepository.streamOrderSummaries(new OrderSearchParams(), null, 2, streamed::addAll,
+        Collections.emptySet(), Collections.emptySet());
+
+    assertThat(streamed, hasSize(0));
+  }
+
+  @Test
+  public void shouldEstimateNumberOfOrders() {
+    UUID supplyingFacilityId = UUID.randomUUID();
+    for (int i = 0; i < 5; i++) {
+      orderRepository.save(generateInstance(supplyingFacilityId));
+    }
+
+    OrderSearchParams params = new OrderSearchParams();
+    params.setStatus(newHashSet(OrderStatus.FULFILLING.toString()));
+
+    Page<Order> page = orderRepository.searchOrders(params, null, PageRequest.of(0, 2),
+        CountStrategy.ESTIMATE, Collections.singleton(supplyingFacilityId),
+        Collections.emptySet());
+
+    assertEquals(2, page.getNumberOfElements());
+    assertThat(page.getTotalElements(), is(greaterThanOrEqualTo(3L)));
+    assertThat(((CountedPage<Order>) page).getCountStrategy(), is(CountStrategy.ESTIMATE));
+  }
+
   @Test
   public void shouldFindOrdersAndIgnoreRights() {
     orderRepository.save(generateInstance(OrderStatus.ORDERED));
@@ -488,12 +658,105 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
     assertEquals(result, Long.valueOf(5));
   }
 
+  @Test
+  public void shouldCountOrdersByStatusGroups() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order two = orderRepository.save(generateInstance(OrderStatus.FULFILLING));
+    Order three = orderRepository.save(generateInstance(OrderStatus.SHIPPED));
+    Order four = orderRepository.save(generateInstance(OrderStatus.TRANSFER_FAILED));
+    orderRepository.save(generateInstance(OrderStatus.ORDERED));
+
+    List<Long> result = orderRepository.countOrdersByStatuses(
+        asList(EnumSet.of(OrderStatus.ORDERED, OrderStatus.FULFILLING),
+            EnumSet.of(OrderStatus.SHIPPED, OrderStatus.IN_ROUTE)),
+        newHashSet(one.getSupplyingFacilityId(), two.getSupplyingFacilityId()),
+        newHashSet(three.getRequestingFacilityId(), four.getRequestingFacilityId()));
+
+    assertEquals(asList(2L, 1L), result);
+  }
+
+  @Test
+  public void shouldReturnZerosWhenCountingOrdersWithoutAvailableFacilities() {
+    orderRepository.save(generateInstance(OrderStatus.ORDERED));
+
+    List<Long> result = orderRepository.countOrdersByStatuses(
+        asList(EnumSet.of(OrderStatus.ORDERED), EnumSet.of(OrderStatus.SHIPPED)),
+        emptySet(), emptySet());
+
+    assertEquals(asList(0L, 0L), result);
+  }
+
   private Order prepareOrdersForSearchByFacility() {
     orderRepository.save(generateInstance(OrderStatus.ORDERED));
     orderRepository.save(generateInstance(OrderStatus.ORDERED));
     return orderRepository.save(generateInstance(OrderStatus.ORDERED));
   }
 
+  @Test
+  public void shouldMaintainStatusCountsWhenOrdersChange() {
+    UUID facilityId = UUID.randomUUID();
+    Order shipped = orderRepository.save(generateInstance(facilityId, OrderStatus.ORDERED));
+    orderRepository.save(generateInstance(facilityId, OrderStatus.ORDERED));
+    orderRepository.save(generateInstance(facilityId, OrderStatus.FULFILLING));
+
+    shipped.updateStatus(OrderStatus.SHIPPED, shipped.getUpdateDetails());
+    orderRepository.save(shipped);
+    entityManager.flush();
+
+    Map<OrderStatus, Long> counts = orderRepository.countStatuses(facilityId);
+
+    assertEquals(Long.valueOf(1), counts.get(OrderStatus.ORDERED));
+    assertEquals(Long.valueOf(1), counts.get(OrderStatus.FULFILLING));
+    assertEquals(Long.valueOf(1), counts.get(OrderStatus.SHIPPED));
+    assertEquals(Long.valueOf(1),
+        orderRepository.countByFacilityIdAndStatus(facilityId, OrderStatus.SHIPPED));
+  }
+
+  @Test
+  public void shouldKeepStatusCountsWhenDeltasAreFolded() {
+    UUID facilityId = UUID.randomUUID();
+    Order shipped = orderRepository.save(generateInstance(facilityId, OrderStatus.ORDERED));
+    orderRepository.save(generateInstance(facilityId, OrderStatus.ORDERED));
+    entityManager.flush();
+    shipped.updateStatus(OrderStatus.SHIPPED, shipped.getUpdateDetails());
+    orderRepository.save(shipped);
+    entityManager.flush();
+
+    assertThat(orderRepository.foldStatusCountDeltas(10_000), is(greaterThanOrEqualTo(4)));
+    assertThat(countDeltas(facilityId), is(0L));
+
+    Map<OrderStatus, Long> counts = orderRepository.countStatuses(facilityId);
+
+    assertEquals(Long.valueOf(1), counts.get(OrderStatus.ORDERED));
+    assertEquals(Long.valueOf(1), counts.get(OrderStatus.SHIPPED));
+  }
+
+  @Test
+  public void shouldReconcileStatusCounts() {
+    UUID facilityId = UUID.randomUUID();
+    orderRepository.save(generateInstance(facilityId, OrderStatus.ORDERED));
+    entityManager.flush();
+    orderRepository.foldStatusCountDeltas(10_000);
+    entityManager
+        .createNativeQuery("UPDATE fulfillment.order_status_counts SET count = 10"
+            + " WHERE facilityid = :facilityId")
+        .setParameter("facilityId", facilityId)
+        .executeUpdate();
+
+    assertThat(orderRepository.reconcileStatusCounts(), is(1));
+    assertEquals(Long.valueOf(1), orderRepository.countStatuses(facilityId)
+        .get(OrderStatus.ORDERED));
+    assertThat(orderRepository.reconcileStatusCounts(), is(0));
+  }
+
+  private long countDeltas(UUID facilityId) {
+    return ((Number) entityManager
+        .createNativeQuery("SELECT count(*) FROM fulfillment.order_status_count_deltas"
+            + " WHERE facilityid = :facilityId")
+        .setParameter("facilityId", facilityId)
+        .getSingleResult()).longValue();
+  }
+
   private void assertSearchOrders(Page<Order> actual, Order... expected) {
     assertThat(actual.getContent(), hasSize(expected.length));
 
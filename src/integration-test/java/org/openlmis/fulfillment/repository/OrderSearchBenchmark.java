@@ -0,0 +1,188 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.openlmis.fulfillment.Application;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.service.OrderSearchParams;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.testutils.BenchmarkTimer;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.web.util.BasicOrderDto;
+import org.openlmis.fulfillment.web.util.BasicOrderDtoBuilder;
+import org.openlmis.fulfillment.web.util.OrderExportHelper;
+import org.openlmis.fulfillment.web.util.OrderLineItemDto;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures how long it takes to serve a page of {@code GET /orders}: find the orders, build basic
+ * order DTOs with {@link BasicOrderDtoBuilder} and flush the persistence context like the end of
+ * the request transaction does. Three variants are compared:
+ * <ul>
+ *   <li>full entities found by {@link OrderRepository#searchOrders},</li>
+ *   <li>the same with the lazy line items of each order initialized and exported, which is what
+ *   any access to them costs (one extra query per order),</li>
+ *   <li>summaries found by {@link OrderRepository#searchOrderSummaries}, which are not managed
+ *   and have no line items.</li>
+ * </ul>
+ *
+ * <p>Each order has {@value #LINE_ITEMS} line items. The data is generated deterministically in
+ * a transaction that is rolled back at the end. Reference data is passed to the builder as empty
+ * maps, so no other service is called. Each run starts with an empty persistence context. For
+ * every page size and variant the median and the 90th percentile of {@value #ITERATIONS} runs
+ * (after {@value #WARM_UP} warm-up runs) are printed in microseconds, see
+ * {@link BenchmarkTimer}.
+ *
+ * <p>Like the other main() benchmarks, this is not an integration test and it is not executed
+ * by the build. Run it with the integration test classpath and a database configured like for
+ * the integration tests:
+ * {@code java -cp <integration test classpath>
+ * org.openlmis.fulfillment.repository.OrderSearchBenchmark}.
+ */
+public final class OrderSearchBenchmark {
+  private static final int[] PAGE_SIZES = {10, 100, 1000};
+  private static final int ORDERS = 5_000;
+  private static final int LINE_ITEMS = 10;
+  private static final int WARM_UP = 50;
+  private static final int ITERATIONS = 200;
+
+  private static final String GENERATE_ORDERS = "INSERT INTO fulfillment.orders (id, createdbyid,"
+      + " createddate, emergency, externalid, facilityid, ordercode, processingperiodid,"
+      + " programid, quotedcost, receivingfacilityid, requestingfacilityid, status,"
+      + " supplyingfacilityid, lastupdateddate, lastupdaterid)"
+      + " SELECT md5('order' || i)::uuid, md5('user')::uuid,"
+      + " now() - i * interval '1 minute', false, md5('requisition' || i)::uuid,"
+      + " md5('facility' || (i % 50))::uuid, 'BENCHMARK-' || i, md5('period' || (i % 12))::uuid,"
+      + " md5('program')::uuid, 0, md5('facility' || (i % 50))::uuid,"
+      + " md5('facility' || (i % 50))::uuid, 'RECEIVED', md5('facility')::uuid,"
+      + " now(), md5('user')::uuid"
+      + " FROM generate_series(1, " + ORDERS + ") AS i";
+
+  private static final String GENERATE_LINE_ITEMS = "INSERT INTO fulfillment.order_line_items"
+      + " (id, orderid, orderableid, orderableversionnumber, orderedquantity)"
+      + " SELECT md5('line' || i || '-' || j)::uuid, md5('order' || i)::uuid,"
+      + " md5('orderable' || j)::uuid, 1, j"
+      + " FROM generate_series(1, " + ORDERS + ") AS i,"
+      + " generate_series(1, " + LINE_ITEMS + ") AS j";
+
+  private static final String SUPPLYING_FACILITY = "SELECT md5('facility')::uuid";
+
+  private static final Map<UUID, FacilityDto> FACILITIES = Collections.emptyMap();
+  private static final Map<UUID, ProgramDto> PROGRAMS = Collections.emptyMap();
+  private static final Map<UUID, ProcessingPeriodDto> PERIODS = Collections.emptyMap();
+  private static final Map<UUID, UserDto> USERS = Collections.emptyMap();
+
+  private static long blackHole;
+
+  private OrderSearchBenchmark() {
+  }
+
+  /**
+   * Prints the search and export times for each page size.
+   */
+  public static void main(String[] args) {
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+        .profiles("test-run")
+        .run(args)) {
+      OrderRepository repository = context.getBean(OrderRepository.class);
+      BasicOrderDtoBuilder builder = context.getBean(BasicOrderDtoBuilder.class);
+      OrderExportHelper exportHelper = context.getBean(OrderExportHelper.class);
+      JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+      EntityManagerFactory factory = context.getBean(EntityManagerFactory.class);
+      TransactionTemplate transaction = new TransactionTemplate(
+          context.getBean(PlatformTransactionManager.class));
+      BenchmarkTimer timer = new BenchmarkTimer(WARM_UP, ITERATIONS);
+
+      transaction.execute(status -> {
+        jdbcTemplate.update(GENERATE_ORDERS);
+        jdbcTemplate.update(GENERATE_LINE_ITEMS);
+        jdbcTemplate.execute("ANALYZE fulfillment.orders");
+        jdbcTemplate.execute("ANALYZE fulfillment.order_line_items");
+
+        EntityManager entityManager = EntityManagerFactoryUtils
+            .getTransactionalEntityManager(factory);
+        Set<UUID> supplyingFacilities = Collections.singleton(
+            jdbcTemplate.queryForObject(SUPPLYING_FACILITY, UUID.class));
+
+        System.out.println("page size\tentities (us)\tentities + line items (us)"
+            + "\tsummaries (us)\t[median / p90]");
+
+        for (int size : PAGE_SIZES) {
+          Pageable pageable = PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdDate"));
+          Supplier<Page<Order>> entities = () -> repository.searchOrders(
+              new OrderSearchParams(), null, pageable, CountStrategy.NONE, supplyingFacilities,
+              Collections.emptySet());
+          Supplier<Page<Order>> summaries = () -> repository.searchOrderSummaries(
+              new OrderSearchParams(), null, pageable, CountStrategy.NONE, supplyingFacilities,
+              Collections.emptySet());
+
+          Consumer<Order> withoutLineItems = order -> { };
+          Consumer<Order> withLineItems = order -> {
+            List<OrderLineItemDto> lineItems = exportHelper
+                .exportToDtos(order.getOrderLineItems(), Collections.emptyMap());
+            blackHole += lineItems.size();
+          };
+
+          Runnable clear = entityManager::clear;
+
+          System.out.printf("%d\t%s\t%s\t%s%n", size,
+              timer.measure(clear, () -> build(entities, withoutLineItems, builder, entityManager)),
+              timer.measure(clear, () -> build(entities, withLineItems, builder, entityManager)),
+              timer.measure(clear, () -> build(summaries, withoutLineItems, builder,
+                  entityManager)));
+        }
+
+        status.setRollbackOnly();
+        return null;
+      });
+
+      System.out.println("checksum: " + blackHole);
+    }
+  }
+
+  private static void build(Supplier<Page<Order>> search, Consumer<Order> extra,
+      BasicOrderDtoBuilder builder, EntityManager entityManager) {
+    for (Order order : search.get()) {
+      BasicOrderDto dto = builder.build(order, FACILITIES, PROGRAMS, PERIODS, USERS);
+      extra.accept(order);
+      blackHole += dto.getOrderCode().length();
+    }
+
+    // managed entities are dirty checked when the request transaction commits
+    entityManager.flush();
+  }
+}
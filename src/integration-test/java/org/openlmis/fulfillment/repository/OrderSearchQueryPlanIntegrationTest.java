@@ -0,0 +1,240 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.repository.StatementRecorder.RecordedStatement;
+import org.openlmis.fulfillment.service.OrderSearchParams;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Checks that the order search queries are executed with the indexes on the orders table. A large
+ * number of orders is generated (and rolled back after each test) so the query planner prefers
+ * an index over a sequential scan only if the index is selective enough for the given query.
+ *
+ * <p>The statements are not written by hand: the repository methods are called and the SQL they
+ * send (with the bound parameters) is recorded and explained, so the plans are the plans of the
+ * queries generated by Hibernate from the criteria queries.
+ */
+@Transactional
+@SpringBootTest
+@DirtiesContext
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test-run")
+public class OrderSearchQueryPlanIntegrationTest {
+
+  private static final int ORDERS = 50_000;
+  private static final int FACILITIES = 500;
+  private static final int PROGRAMS = 5;
+  private static final int PERIODS = 1_000;
+
+  private static final String SEQ_SCAN = "Seq Scan on orders";
+  private static final String INDEX = "Index";
+  private static final Pattern ORDERS_TABLE = Pattern.compile("fulfillment\\.orders\\b");
+  private static final Pageable NEWEST_FIRST =
+      PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdDate"));
+
+  // most of the orders are closed, only about 4% of them are still in progress
+  private static final String GENERATE_ORDERS = "INSERT INTO fulfillment.orders (id, createdbyid,"
+      + " createddate, emergency, externalid, facilityid, ordercode, processingperiodid,"
+      + " programid, quotedcost, receivingfacilityid, requestingfacilityid, status,"
+      + " supplyingfacilityid, lastupdateddate, lastupdaterid)"
+      + " SELECT md5('order' || i)::uuid, md5('user')::uuid,"
+      + " now() - i * interval '1 minute', false,"
+      + " CASE WHEN i % 100 = 0 THEN NULL ELSE md5('requisition' || i)::uuid END,"
+      + " md5('facility' || (i % " + FACILITIES + "))::uuid, 'PLAN-TEST-' || i,"
+      + " md5('period' || (i % " + PERIODS + "))::uuid,"
+      + " md5('program' || (i % " + PROGRAMS + "))::uuid, 0,"
+      + " md5('facility' || (i % " + FACILITIES + "))::uuid,"
+      + " md5('facility' || (i % " + FACILITIES + "))::uuid,"
+      + " CASE i % 100 WHEN 1 THEN 'ORDERED' WHEN 2 THEN 'FULFILLING' WHEN 3 THEN 'SHIPPED'"
+      + " WHEN 4 THEN 'IN_ROUTE' WHEN 5 THEN 'TRANSFER_FAILED' ELSE 'RECEIVED' END,"
+      + " md5('facility' || ((i / 7) % " + FACILITIES + "))::uuid,"
+      + " now(), md5('user')::uuid"
+      + " FROM generate_series(1, " + ORDERS + ") AS i";
+
+  private static final StatementRecorder RECORDER = new StatementRecorder();
+
+  @TestConfiguration
+  static class RecorderConfiguration {
+
+    @Bean
+    static BeanPostProcessor statementRecorder() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          return bean instanceof DataSource ? RECORDER.wrap((DataSource) bean) : bean;
+        }
+      };
+    }
+  }
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Before
+  public void setUp() {
+    jdbcTemplate.update(GENERATE_ORDERS);
+    jdbcTemplate.execute("ANALYZE fulfillment.orders");
+  }
+
+  @Test
+  public void shouldUseIndexesToSearchOrdersByUserRights() {
+    assertIndexScans(() -> orderRepository.searchOrders(new OrderSearchParams(), null,
+        NEWEST_FIRST, facilities(1, 2), facilities(3)));
+  }
+
+  @Test
+  public void shouldUseIndexToSearchOrdersBySupplyingFacilityAndStatus() {
+    OrderSearchParams params = OrderSearchParams.builder()
+        .supplyingFacilityId(facility(1))
+        .status(Collections.singleton(OrderStatus.SHIPPED.name()))
+        .build();
+
+    assertIndexScans(() -> orderRepository.searchOrders(params, null, NEWEST_FIRST));
+  }
+
+  @Test
+  public void shouldUseIndexToSearchOrdersByRequestingFacility() {
+    OrderSearchParams params = OrderSearchParams.builder()
+        .requestingFacilityId(facility(1))
+        .build();
+
+    assertIndexScans(() -> orderRepository.searchOrders(params, null, NEWEST_FIRST));
+  }
+
+  @Test
+  public void shouldUseIndexToSearchOrdersByProgramAndPeriod() {
+    OrderSearchParams params = OrderSearchParams.builder()
+        .programId(uuid("program", 1))
+        .build();
+    Set<UUID> periods = Collections.singleton(uuid("period", 1));
+
+    assertIndexScans(() -> orderRepository.searchOrders(params, periods, NEWEST_FIRST));
+  }
+
+  @Test
+  public void shouldUseIndexToSearchOrdersByPeriods() {
+    Set<UUID> periods = ImmutableSet.of(uuid("period", 1), uuid("period", 2));
+
+    assertIndexScans(() -> orderRepository.searchOrders(new OrderSearchParams(), periods,
+        NEWEST_FIRST));
+  }
+
+  @Test
+  public void shouldUseIndexToSeekOrders() {
+    ContinuationToken after = ContinuationToken.after(new OrderDataBuilder()
+        .withCreatedDate(ZonedDateTime.now().minusDays(1))
+        .build());
+
+    assertIndexScans(() -> orderRepository.seekOrders(new OrderSearchParams(), null, after,
+        11));
+  }
+
+  @Test
+  public void shouldUseIndexToSearchRequisitionlessOrders() {
+    OrderSearchParams params = OrderSearchParams.builder()
+        .requisitionless(true)
+        .build();
+
+    assertIndexScans(() -> orderRepository.searchOrders(params, null, NEWEST_FIRST));
+  }
+
+  @Test
+  public void shouldUseIndexesToCountOpenOrders() {
+    List<Set<OrderStatus>> statusGroups = Arrays.asList(
+        Collections.singleton(OrderStatus.ORDERED),
+        Collections.singleton(OrderStatus.FULFILLING));
+
+    assertIndexScans(() -> orderRepository.countOrdersByStatuses(statusGroups,
+        facilities(1, 2), facilities(3)));
+  }
+
+  @Test
+  public void shouldUseIndexToFindRequestingFacilities() {
+    assertIndexScans(() -> orderRepository.getRequestingFacilities(
+        Arrays.asList(facility(1), facility(2))));
+  }
+
+  private void assertIndexScans(Runnable search) {
+    List<RecordedStatement> statements = RECORDER
+        .record(search)
+        .stream()
+        .filter(statement -> ORDERS_TABLE.matcher(statement.getSql()).find())
+        .collect(Collectors.toList());
+
+    assertThat(statements, not(empty()));
+
+    for (RecordedStatement statement : statements) {
+      String plan = String.join("\n", jdbcTemplate.query("EXPLAIN " + statement.getSql(),
+          statement::bind, (rs, rowNum) -> rs.getString(1)));
+
+      assertThat(plan, not(containsString(SEQ_SCAN)));
+      assertThat(plan, containsString(INDEX));
+    }
+  }
+
+  private Set<UUID> facilities(int... numbers) {
+    return Arrays
+        .stream(numbers)
+        .mapToObj(this::facility)
+        .collect(Collectors.toSet());
+  }
+
+  private UUID facility(int number) {
+    return uuid("facility", number);
+  }
+
+  private UUID uuid(String prefix, int number) {
+    return jdbcTemplate.queryForObject("SELECT md5(?)::uuid",
+        (rs, rowNum) -> (UUID) rs.getObject(1), prefix + number);
+  }
+}
@@ -20,6 +20,7 @@ import static java.util.Collections.singleton;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasProperty;
@@ -54,6 +55,7 @@ import org.openlmis.fulfillment.domain.Shipment;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.testutils.OrderableDataBuilder;
 import org.openlmis.fulfillment.testutils.ShipmentDataBuilder;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryLineItemDto;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -379,6 +381,48 @@ public class ProofOfDeliveryRepositoryIntegrationTest extends
     }
   }
 
+  @Test
+  public void shouldFindProofsOfDeliveryWithoutCount() {
+    List<ProofOfDelivery> list = Lists.newArrayList();
+
+    for (int i = 0; i < 5; ++i) {
+      list.add(generateInstance());
+    }
+
+    proofOfDeliveryRepository.saveAll(list);
+
+    Page<ProofOfDelivery> first = proofOfDeliveryRepository.search(
+        null, null, emptySet(), emptySet(), emptySet(), createPageable(2, 0), CountStrategy.NONE);
+
+    assertThat(first.getContent(), hasSize(2));
+    assertThat(first.getTotalElements(), equalTo(3L));
+    assertFalse(first.isLast());
+
+    Page<ProofOfDelivery> last = proofOfDeliveryRepository.search(
+        null, null, emptySet(), emptySet(), emptySet(), createPageable(2, 2), CountStrategy.NONE);
+
+    assertThat(last.getContent(), hasSize(1));
+    assertThat(last.getTotalElements(), equalTo(5L));
+  }
+
+  @Test
+  public void shouldEstimateNumberOfProofsOfDelivery() {
+    List<ProofOfDelivery> list = Lists.newArrayList();
+
+    for (int i = 0; i < 5; ++i) {
+      list.add(generateInstance());
+    }
+
+    proofOfDeliveryRepository.saveAll(list);
+
+    Page<ProofOfDelivery> found = proofOfDeliveryRepository.search(
+        null, null, emptySet(), emptySet(), singleton(list.get(0).getProgramId()),
+        createPageable(1, 0), CountStrategy.ESTIMATE);
+
+    assertThat(found.getContent(), hasSize(1));
+    assertThat(found.getTotalElements(), greaterThanOrEqualTo(1L));
+  }
+
   @Test
   public void shouldReturnEmptyPageIfSearchParamsAreNotMet() {
     List<ProofOfDelivery> list = Lists.newArrayList();
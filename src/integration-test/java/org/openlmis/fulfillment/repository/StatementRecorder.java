@@ -0,0 +1,162 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * Records the SQL statements prepared through a data source together with their parameters, so
+ * that tests can inspect the statements the repositories really send (for example criteria
+ * queries translated by Hibernate). Statements are recorded only while an action passed to
+ * {@link #record(Runnable)} is running.
+ */
+final class StatementRecorder {
+  private final List<RecordedStatement> statements = Collections.synchronizedList(
+      new ArrayList<>());
+  private volatile boolean recording;
+
+  /**
+   * Returns a data source that prepares statements with the given one and records them.
+   */
+  DataSource wrap(DataSource dataSource) {
+    return proxy(DataSource.class, dataSource, (method, args, result) ->
+        "getConnection".equals(method.getName())
+            ? proxy(Connection.class, result, this::onConnectionCall)
+            : result);
+  }
+
+  /**
+   * Runs the given action and returns the statements it prepared, in the order of preparation.
+   */
+  List<RecordedStatement> record(Runnable action) {
+    statements.clear();
+    recording = true;
+
+    try {
+      action.run();
+    } finally {
+      recording = false;
+    }
+
+    synchronized (statements) {
+      return new ArrayList<>(statements);
+    }
+  }
+
+  private Object onConnectionCall(Method method, Object[] args, Object result) {
+    if (!recording || !"prepareStatement".equals(method.getName())
+        || !(args[0] instanceof String)) {
+      return result;
+    }
+
+    RecordedStatement statement = new RecordedStatement((String) args[0]);
+    statements.add(statement);
+
+    return proxy(PreparedStatement.class, result, (setter, values, nothing) -> {
+      if (setter.getName().startsWith("set") && values != null && values.length > 1
+          && values[0] instanceof Integer) {
+        statement.parameters.add(new Parameter(setter, values));
+      }
+
+      return nothing;
+    });
+  }
+
+  private static <T> T proxy(Class<T> type, Object target, CallListener listener) {
+    InvocationHandler handler = (proxy, method, args) -> {
+      Object result;
+
+      try {
+        result = method.invoke(target, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+
+      return listener.onCall(method, args, result);
+    };
+
+    return type.cast(Proxy.newProxyInstance(
+        StatementRecorder.class.getClassLoader(), new Class<?>[]{type}, handler));
+  }
+
+  @FunctionalInterface
+  private interface CallListener {
+    Object onCall(Method method, Object[] args, Object result);
+  }
+
+  private static final class Parameter {
+    private final Method setter;
+    private final Object[] values;
+
+    Parameter(Method setter, Object[] values) {
+      this.setter = setter;
+      this.values = values.clone();
+    }
+  }
+
+  /**
+   * A prepared statement with the parameters that were set on it.
+   */
+  static final class RecordedStatement {
+    private final String sql;
+    private final List<Parameter> parameters = Collections.synchronizedList(new ArrayList<>());
+
+    private RecordedStatement(String sql) {
+      this.sql = sql;
+    }
+
+    String getSql() {
+      return sql;
+    }
+
+    /**
+     * Sets the recorded parameters on the given statement, which may have a prefix (like
+     * EXPLAIN) but must have the same parameters.
+     */
+    void bind(PreparedStatement statement) throws SQLException {
+      synchronized (parameters) {
+        for (Parameter parameter : parameters) {
+          try {
+            parameter.setter.invoke(statement, parameter.values);
+          } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+          } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof SQLException) {
+              throw (SQLException) ex.getCause();
+            }
+
+            throw new IllegalStateException(ex.getCause());
+          }
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return sql;
+    }
+  }
+}
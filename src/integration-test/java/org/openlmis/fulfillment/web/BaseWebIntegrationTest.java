@@ -21,6 +21,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static java.util.stream.Collectors.joining;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
@@ -35,6 +36,7 @@ import com.jayway.restassured.config.RestAssuredConfig;
 import guru.nidi.ramltester.RamlDefinition;
 import guru.nidi.ramltester.RamlLoaders;
 import guru.nidi.ramltester.restassured.RestAssuredClient;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -65,7 +67,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// permission strings are revalidated on every check, so stubs changed by a test are used at once
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "referencedata.permissionStrings.maxStaleness=0"
+)
 @DirtiesContext
 @ActiveProfiles("test-run")
 @SuppressWarnings("PMD.AvoidDuplicateLiterals")
@@ -289,6 +295,7 @@ public abstract class BaseWebIntegrationTest {
       + "]";
 
   private static final String MOCK_HAS_RIGHT = "{ \"result\":true }";
+  private static final String SYSTEM_SETTINGS_MANAGE = "SYSTEM_SETTINGS_MANAGE";
   private static final String ORDER = "order";
 
   public static final String MOCK_EMPTY_PAGE = "{\n"
@@ -377,6 +384,14 @@ public abstract class BaseWebIntegrationTest {
             .withHeader(CONTENT_TYPE, APPLICATION_JSON)
             .withBody(MOCK_FIND_USER_RESULT)));
 
+    // This mocks the permission strings of a user: a system right and rights for the home
+    // facility, but none for any other facility
+    stubUserPermissionStrings(
+        SYSTEM_SETTINGS_MANAGE,
+        "ORDERS_VIEW|" + FACILITY_ID,
+        "SHIPMENTS_VIEW|" + FACILITY_ID
+    );
+
     // This mocks the call to retrieve programs supervised by the user
     wireMockRule.stubFor(get(urlMatching(REFERENCEDATA_API_USERS + UUID_REGEX + "/programs.*"))
         .willReturn(aResponse()
@@ -609,7 +624,24 @@ public abstract class BaseWebIntegrationTest {
     return UUID.fromString("aaf12a5a-8b16-11e6-ae22-56b6b6499611");
   }
 
+  final void stubUserPermissionStrings(String... permissionStrings) {
+    String body = Arrays
+        .stream(permissionStrings)
+        .map(permissionString -> '"' + permissionString + '"')
+        .collect(joining(", ", "[", "]"));
+
+    wireMockRule.stubFor(
+        get(urlMatching(REFERENCEDATA_API_USERS + UUID_REGEX + "/permissionStrings.*"))
+            .willReturn(aResponse()
+                .withHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .withBody(body))
+    );
+  }
+
   void denyUserAllRights() {
+    // the only right left is bound to a facility that no resource belongs to
+    stubUserPermissionStrings(SYSTEM_SETTINGS_MANAGE + "|" + UUID.randomUUID());
+
     wireMockRule.stubFor(
         get(urlMatching(REFERENCEDATA_API_USERS + UUID_REGEX + "/hasRight.*"))
             .willReturn(aResponse()
@@ -24,16 +24,19 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,6 +65,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import javax.persistence.EntityManager;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
@@ -105,6 +109,7 @@ import org.openlmis.fulfillment.testutils.ProgramDataBuilder;
 import org.openlmis.fulfillment.testutils.UpdateDetailsDataBuilder;
 import org.openlmis.fulfillment.testutils.UserDataBuilder;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.openlmis.fulfillment.util.DateHelper;
 import org.openlmis.fulfillment.web.util.BasicOrderDto;
 import org.openlmis.fulfillment.web.util.IdsDto;
@@ -125,6 +130,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String RESOURCE_URL = "/api/orders";
   private static final String BATCH_URL = RESOURCE_URL + "/batch";
   private static final String REQUESTING_FACILITIES_URL = RESOURCE_URL + "/requestingFacilities";
+  private static final String STREAM_URL = RESOURCE_URL + "/stream";
 
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String EXPORT_URL = ID_URL + "/export";
@@ -404,7 +410,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         Sets.newHashSet(READY_TO_PACK.toString()), LocalDate.of(2018, 4, 5),
         LocalDate.of(2018, 5, 5), true);
 
-    given(orderService.searchOrders(params, pageable))
+    given(orderService.searchOrderSummaries(params, pageable, CountStrategy.EXACT))
         .willReturn(new PageImpl<>(Lists.newArrayList(firstOrder), pageable, 2));
 
     PageDto response = restAssured.given()
@@ -449,6 +455,71 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     }
   }
 
+  @Test
+  public void shouldStreamOrdersAsNdjson() {
+    willAnswer(invocation -> {
+      Consumer<List<Order>> consumer = invocation.getArgument(1);
+      consumer.accept(Lists.newArrayList(firstOrder));
+      consumer.accept(Lists.newArrayList(secondOrder));
+      return null;
+    }).given(orderService).streamOrderSummaries(any(OrderSearchParams.class), any());
+
+    String response = restAssured.given()
+        .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STREAM_URL)
+        .then()
+        .statusCode(200)
+        .contentType("application/x-ndjson")
+        .extract().asString();
+
+    String[] lines = response.split("\n");
+    assertThat(lines.length, is(2));
+    assertThat(lines[0], containsString(firstOrder.getId().toString()));
+    assertThat(lines[1], containsString(secondOrder.getId().toString()));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldStreamOrdersAsCsv() {
+    willAnswer(invocation -> {
+      Consumer<List<Order>> consumer = invocation.getArgument(1);
+      consumer.accept(Lists.newArrayList(firstOrder, secondOrder));
+      return null;
+    }).given(orderService).streamOrderSummaries(any(OrderSearchParams.class), any());
+
+    String response = restAssured.given()
+        .queryParam("format", "csv")
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STREAM_URL)
+        .then()
+        .statusCode(200)
+        .contentType("text/csv")
+        .extract().asString();
+
+    String[] lines = response.split("\r\n");
+    assertThat(lines.length, is(3));
+    assertThat(lines[0], startsWith("id,orderCode"));
+    assertThat(lines[1], startsWith(firstOrder.getId().toString()));
+    assertThat(lines[2], startsWith(secondOrder.getId().toString()));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectUnknownStreamFormat() {
+    restAssured.given()
+        .queryParam("format", "xml")
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STREAM_URL)
+        .then()
+        .statusCode(400);
+
+    verify(orderService, never()).streamOrderSummaries(any(OrderSearchParams.class), any());
+  }
+
   @Test
   public void shouldThrowErrorIfOrderAlreadyExists() {
     given(orderRepository.findByExternalId(any(UUID.class))).willReturn(firstOrder);
@@ -765,7 +836,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldReturnForbiddenWhenUserHasNoRightsToCreateMultipleOrders() {
     doThrow(new MissingPermissionException(ORDERS_EDIT))
-        .when(permissionService).canEditOrder(any(OrderDto.class));
+        .when(permissionService).canEditOrders(anyCollectionOf(OrderDto.class));
 
     restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -776,6 +847,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .then()
         .statusCode(403);
 
+    verify(orderService, never()).createOrder(any(OrderDto.class), any(UUID.class));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
@@ -914,7 +986,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnAvailableRequestingFacilities() {
-    given(orderRepository.getRequestingFacilities(null))
+    given(orderService.getRequestingFacilities(null))
         .willReturn(Lists.newArrayList(facilityId, facility2Id));
 
     UUID[] response = restAssured.given()
@@ -934,9 +1006,9 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnAvailableRequestingFacilitiesForGivenSupplyingFacility() {
-    given(orderRepository.getRequestingFacilities(singletonList(facilityId)))
+    given(orderService.getRequestingFacilities(singletonList(facilityId)))
         .willReturn(Lists.newArrayList(singletonList(facilityId)));
-    given(orderRepository.getRequestingFacilities(singletonList(facility1Id)))
+    given(orderService.getRequestingFacilities(singletonList(facility1Id)))
         .willReturn(Lists.newArrayList(facility2Id));
 
     UUID[] response = restAssured.given()
@@ -956,7 +1028,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnAvailableRequestingFacilitiesForMultipleSupplyingFacilities() {
-    given(orderRepository.getRequestingFacilities(asList(facilityId, facility1Id)))
+    given(orderService.getRequestingFacilities(asList(facilityId, facility1Id)))
         .willReturn(Lists.newArrayList(facilityId));
 
     UUID[] response = restAssured.given()
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
@@ -71,6 +72,7 @@ import org.openlmis.fulfillment.service.referencedata.PermissionStringDto;
 import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.stockmanagement.StockEventStockManagementService;
 import org.openlmis.fulfillment.testutils.OrderableDataBuilder;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.openlmis.fulfillment.util.Pagination;
 import org.openlmis.fulfillment.web.stockmanagement.StockEventDto;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
@@ -152,10 +154,12 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(permissionService.getPermissionStrings(INITIAL_USER_ID))
         .willReturn(permissionStringsHandler);
 
-    given(permissionStringsHandler.get())
-        .willReturn(ImmutableSet.of(PermissionStringDto.create(
-            PODS_MANAGE, proofOfDelivery.getReceivingFacilityId(), proofOfDelivery.getProgramId()
-        )));
+    PermissionStringDto podsManage = PermissionStringDto.create(
+        PODS_MANAGE, proofOfDelivery.getReceivingFacilityId(), proofOfDelivery.getProgramId()
+    );
+
+    given(permissionStringsHandler.get()).willReturn(ImmutableSet.of(podsManage));
+    stubUserPermissionStrings(podsManage.toString());
 
     orderables = proofOfDelivery.getLineItems()
         .stream()
@@ -174,7 +178,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         isNull(),
         isNull(),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountStrategy.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -191,7 +196,7 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertTrue(response.getContent().iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    verify(proofOfDeliveryService).search(null, null, pageable);
+    verify(proofOfDeliveryService).search(null, null, pageable, CountStrategy.EXACT);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -226,7 +231,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         any(UUID.class),
         isNull(),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountStrategy.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -250,7 +256,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertEquals(createDto(), getPageContent(response, ProofOfDeliveryDto.class).get(0));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    verify(proofOfDeliveryService).search(proofOfDelivery.getShipment().getId(), null, pageable);
+    verify(proofOfDeliveryService).search(proofOfDelivery.getShipment().getId(), null, pageable,
+        CountStrategy.EXACT);
   }
 
   @Test
@@ -258,7 +265,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         isNull(),
         any(UUID.class),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountStrategy.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -284,7 +292,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
     verify(proofOfDeliveryService)
-        .search(null, proofOfDelivery.getShipment().getOrder().getId(), pageable);
+        .search(null, proofOfDelivery.getShipment().getOrder().getId(), pageable,
+            CountStrategy.EXACT);
   }
 
   @Test
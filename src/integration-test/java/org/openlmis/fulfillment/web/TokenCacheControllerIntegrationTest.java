@@ -0,0 +1,121 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static org.junit.Assert.assertThat;
+
+import guru.nidi.ramltester.junit.RamlMatchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.web.util.AccessTokenDto;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+public class TokenCacheControllerIntegrationTest extends BaseWebIntegrationTest {
+
+  private static final String RESOURCE_URL = "/api/tokenCache";
+  private static final String REVOKED_TOKENS_URL = RESOURCE_URL + "/revokedTokens";
+  private static final String CHECK_TOKEN_URL = "/api/oauth/check_token";
+  private static final String BEARER_PREFIX = "Bearer ";
+
+  @Before
+  public void setUp() {
+    this.setUpBootstrapData();
+  }
+
+  @Test
+  public void shouldCheckRevokedTokenWithAuthServiceAgain() {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(new AccessTokenDto(getTokenHeader().substring(BEARER_PREFIX.length())))
+        .when()
+        .post(REVOKED_TOKENS_URL)
+        .then()
+        .statusCode(204);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+
+    wireMockRule.resetRequests();
+    evictAllTokens(204);
+
+    wireMockRule.verify(1, postRequestedFor(urlEqualTo(CHECK_TOKEN_URL)));
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfTokenIsMissing() {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(new AccessTokenDto())
+        .when()
+        .post(REVOKED_TOKENS_URL)
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldEvictAllTokens() {
+    evictAllTokens(204);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturn403WhenUserHasNoRightsToManageSystemSettings() {
+    denyUserAllRights();
+
+    evictAllTokens(403);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldCheckRightWithPermissionStrings() {
+    wireMockRule.resetRequests();
+    evictAllTokens(204);
+
+    wireMockRule.verify(1, getRequestedFor(
+        urlMatching(REFERENCEDATA_API_USERS + UUID_REGEX + "/permissionStrings.*")));
+    wireMockRule.verify(0, getRequestedFor(
+        urlMatching(REFERENCEDATA_API_USERS + UUID_REGEX + "/hasRight.*")));
+  }
+
+  @Test
+  public void shouldReturn403WhenPermissionStringsDoNotGrantRight() {
+    // the right is granted for the home facility only, not as a system right
+    stubUserPermissionStrings("SYSTEM_SETTINGS_MANAGE|" + FACILITY_ID);
+
+    evictAllTokens(403);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  private void evictAllTokens(int statusCode) {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .delete(RESOURCE_URL)
+        .then()
+        .statusCode(statusCode);
+  }
+}
@@ -49,6 +49,8 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.servlet.LocaleResolver;
@@ -57,6 +59,7 @@ import org.springframework.web.servlet.i18n.CookieLocaleResolver;
 @SuppressWarnings("PMD.TooManyMethods")
 @SpringBootApplication(scanBasePackages = "org.openlmis.fulfillment")
 @EntityScan(basePackageClasses = BaseEntity.class)
+@EnableScheduling
 public class Application {
 
   private static final Logger logger = LoggerFactory.getLogger(Application.class);
@@ -67,6 +70,9 @@ public class Application {
   @Value("${time.zoneId}")
   private String timeZoneId;
 
+  @Value("${scheduler.poolSize}")
+  private int schedulerPoolSize;
+
   @Value("${spring.jpa.properties.hibernate.default_schema}")
   private String preferredSchema;
 
@@ -148,6 +154,21 @@ public class Application {
     return Clock.system(ZoneId.of(timeZoneId));
   }
 
+  /**
+   * Creates the scheduler of the {@code @Scheduled} jobs. It has more than one thread, so a slow
+   * job (like a catalog download or the order status count reconciliation) does not delay the
+   * others, for example the access token refresh or the replica lag check.
+   *
+   * @return Created task scheduler.
+   */
+  @Bean
+  public ThreadPoolTaskScheduler taskScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(schedulerPoolSize);
+    scheduler.setThreadNamePrefix("scheduling-");
+    return scheduler;
+  }
+
   /**
    * Configures the Flyway migration strategy to clean the DB before migration first.  This is used
    * as the default unless the Spring Profile "production" is active.
@@ -0,0 +1,81 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Data source that sends read-only transactions to the read replica and everything else to the
+ * primary database. The replica is skipped while the {@link ReplicaLagMonitor} reports it as
+ * unavailable and when a connection to it cannot be opened.
+ *
+ * <p>The read-only flag is set after the transaction manager asks for a connection, so this data
+ * source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which delays getting
+ * the connection until the first statement is executed.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractDataSource {
+  private final DataSource primary;
+  private final DataSource replica;
+  private final ReplicaLagMonitor monitor;
+
+  /**
+   * Creates a new routing data source.
+   */
+  public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica,
+      ReplicaLagMonitor monitor) {
+    this.primary = primary;
+    this.replica = replica;
+    this.monitor = monitor;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!useReplica()) {
+      return primary.getConnection();
+    }
+
+    try {
+      return replica.getConnection();
+    } catch (SQLException ex) {
+      monitor.markUnavailable(ex);
+      return primary.getConnection();
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    if (!useReplica()) {
+      return primary.getConnection(username, password);
+    }
+
+    try {
+      return replica.getConnection(username, password);
+    } catch (SQLException ex) {
+      monitor.markUnavailable(ex);
+      return primary.getConnection(username, password);
+    }
+  }
+
+  private boolean useReplica() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        && monitor.isReplicaAvailable();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Sets up the read replica if the {@code replica.datasource.url} property is not blank. In that
+ * case the data source used by the application routes read-only transactions to the replica
+ * (see {@link ReadOnlyRoutingDataSource}). Otherwise the data source created by Spring Boot is
+ * used without changes.
+ */
+@Configuration
+@ConditionalOnExpression("!'${replica.datasource.url:}'.trim().isEmpty()")
+public class ReplicaDataSourceConfiguration {
+
+  // the same parameters as in the spring.datasource.url property
+  static final String URL_PARAMETERS = "?stringtype=unspecified";
+
+  @Value("${replica.datasource.url}")
+  private String replicaUrl;
+
+  @Value("${replica.datasource.username}")
+  private String replicaUsername;
+
+  @Value("${replica.datasource.password}")
+  private String replicaPassword;
+
+  @Value("${replica.datasource.maxPoolSize}")
+  private int replicaMaxPoolSize;
+
+  @Value("${replica.maxLagSeconds}")
+  private double maxLagSeconds;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  /**
+   * Creates the connection pool of the primary database, the same way as Spring Boot does when
+   * there is no other data source.
+   */
+  @Bean
+  @ConfigurationProperties(prefix = "spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties
+        .initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .build();
+  }
+
+  /**
+   * Creates the connection pool of the read replica.
+   */
+  @Bean
+  public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+    HikariDataSource replica = DataSourceBuilder
+        .create()
+        .type(HikariDataSource.class)
+        .driverClassName(properties.getDriverClassName())
+        .url(replicaUrl.trim() + URL_PARAMETERS)
+        .username(replicaUsername)
+        .password(replicaPassword)
+        .build();
+
+    replica.setPoolName("replica");
+    replica.setMaximumPoolSize(replicaMaxPoolSize);
+    replica.setReadOnly(true);
+
+    return replica;
+  }
+
+  @Bean
+  public ReplicaLagMonitor replicaLagMonitor(
+      @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+    return new ReplicaLagMonitor(replicaDataSource, maxLagSeconds, meterRegistry);
+  }
+
+  /**
+   * Creates the data source used by the application.
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+      @Qualifier("replicaDataSource") DataSource replicaDataSource,
+      ReplicaLagMonitor replicaLagMonitor) {
+    return new LazyConnectionDataSourceProxy(
+        new ReadOnlyRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor));
+  }
+}
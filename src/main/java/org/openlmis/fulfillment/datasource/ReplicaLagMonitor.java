@@ -0,0 +1,136 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Periodically checks how far the read replica is behind the primary database. The replica is
+ * available for read-only transactions only if the last check succeeded and the replication lag
+ * did not exceed the configured limit. A server that is not streaming WAL from the primary (it
+ * was cut off, or it is not a standby at all) is never used, because its data can be arbitrarily
+ * old. Until the first check finishes the replica is considered unavailable, so all queries go to
+ * the primary database.
+ */
+public class ReplicaLagMonitor {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(ReplicaLagMonitor.class);
+
+  static final String METRIC_LAG = "replica.lag.seconds";
+
+  // the replica is only trusted while its WAL receiver is streaming from the primary; an idle
+  // streaming replica that has replayed everything it received is not lagging even though its
+  // last replayed transaction can be old. NULL means the server is not a streaming standby.
+  static final String LAG_QUERY = "SELECT CASE"
+      + " WHEN NOT pg_is_in_recovery() THEN NULL"
+      + " WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming')"
+      + " THEN NULL"
+      + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+      + " ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())"
+      + " END";
+
+  private final DataSource replica;
+  private final double maxLagSeconds;
+
+  private volatile boolean available;
+  private volatile double lagSeconds = Double.NaN;
+
+  /**
+   * Creates a new monitor of the given replica and registers the replication lag gauge.
+   *
+   * @param replica       the read replica data source.
+   * @param maxLagSeconds the highest acceptable replication lag (in seconds).
+   * @param meterRegistry registry of the replication lag gauge.
+   */
+  public ReplicaLagMonitor(DataSource replica, double maxLagSeconds,
+      MeterRegistry meterRegistry) {
+    this.replica = replica;
+    this.maxLagSeconds = maxLagSeconds;
+
+    meterRegistry.gauge(METRIC_LAG, this, ReplicaLagMonitor::getLagSeconds);
+  }
+
+  public boolean isReplicaAvailable() {
+    return available;
+  }
+
+  public double getLagSeconds() {
+    return lagSeconds;
+  }
+
+  /**
+   * Reads the current replication lag from the replica and decides whether it can be used.
+   */
+  @Scheduled(fixedDelayString = "${replica.lagCheckInterval}")
+  public void checkLag() {
+    double lag;
+
+    try (Connection connection = replica.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+      resultSet.next();
+      lag = resultSet.getDouble(1);
+
+      if (resultSet.wasNull()) {
+        markUnavailable("the server is not a streaming replica");
+        return;
+      }
+    } catch (SQLException ex) {
+      markUnavailable(ex);
+      return;
+    }
+
+    lagSeconds = lag;
+
+    if (lag > maxLagSeconds) {
+      if (available) {
+        XLOGGER.warn("Replication lag {}s exceeds {}s, using the primary database",
+            lag, maxLagSeconds);
+      }
+
+      available = false;
+    } else {
+      if (!available) {
+        XLOGGER.info("Replication lag is {}s, using the read replica", lag);
+      }
+
+      available = true;
+    }
+  }
+
+  /**
+   * Stops routing queries to the replica until the next successful check.
+   */
+  public void markUnavailable(SQLException cause) {
+    markUnavailable(cause.getMessage());
+  }
+
+  private void markUnavailable(String reason) {
+    if (available) {
+      XLOGGER.warn("Read replica is not available, using the primary database: {}", reason);
+    }
+
+    available = false;
+    lagSeconds = Double.NaN;
+  }
+}
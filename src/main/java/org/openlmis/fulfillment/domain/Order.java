@@ -88,7 +88,7 @@ public class Order extends BaseEntity {
 
   @Getter
   @Setter
-  @Column(columnDefinition = "timestamp with time zone")
+  @Column(columnDefinition = "timestamp with time zone", nullable = false)
   private ZonedDateTime createdDate;
 
   @Column(nullable = false)
@@ -70,6 +70,8 @@ public abstract class MessageKeys {
 
   public static final String USER_NOT_FOUND =
       join(ERROR_PREFIX, AUTHENTICATION, USER, NOT_FOUND);
+  public static final String ACCESS_TOKEN_REQUIRED =
+      join(ERROR_PREFIX, AUTHENTICATION, "token", REQUIRED);
 
   public static final String CLASS_NOT_FOUND = join(ERROR_PREFIX, CLASS, NOT_FOUND);
   public static final String DATA_INTEGRITY_VIOLATION =
@@ -80,6 +82,8 @@ public abstract class MessageKeys {
   public static final String ERROR_ENCODING =
       join(ERROR_PREFIX, ENCODING, NOT_SUPPORTED);
   public static final String ERROR_VALIDATION_GENERAL = join(VALIDATION_ERROR, "general");
+  public static final String COUNT_STRATEGY_INVALID =
+      join(ERROR_PREFIX, "countStrategy", INVALID);
 
   public static final String ERROR_JASPER = join(ERROR_PREFIX, JASPER);
   public static final String ERROR_JASPER_FILE_CREATION =
@@ -95,6 +99,12 @@ public abstract class MessageKeys {
   public static final String ORDER_INVALID_STATUS = join(ERROR_PREFIX, ORDER, INVALID_STATUS);
   public static final String ORDER_NOT_FOUND_OR_WRONG_STATUS =
       join(ERROR_PREFIX, ORDER, NOT_FOUND_OR_WRONG_STATUS);
+  public static final String ORDER_CONTINUATION_TOKEN_INVALID =
+      join(ERROR_PREFIX, ORDER, "continuationToken", INVALID);
+  public static final String ORDER_STREAM_FORMAT_INVALID =
+      join(ERROR_PREFIX, ORDER, "streamFormat", INVALID);
+  public static final String ORDER_STREAM_INCOMPLETE =
+      join(ERROR_PREFIX, ORDER, "stream", "incomplete");
 
   public static final String ORDER_RETRY_INVALID_STATUS =
       join(ERROR_PREFIX, ORDER_RETRY, INVALID_STATUS);
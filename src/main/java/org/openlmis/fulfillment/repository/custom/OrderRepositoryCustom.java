@@ -16,10 +16,15 @@
 package org.openlmis.fulfillment.repository.custom;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.fulfillment.service.OrderSearchParams;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -32,8 +37,45 @@ public interface OrderRepositoryCustom {
   Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable);
 
+  Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy);
+
+  Page<Order> searchOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  Page<Order> searchOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy);
+
+  void streamOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      int chunkSize, Consumer<List<Order>> consumer, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  void streamOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      int chunkSize, Consumer<List<Order>> consumer);
+
+  List<Order> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      ContinuationToken after, int limit, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  List<Order> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      ContinuationToken after, int limit);
+
   List<UUID> getRequestingFacilities(List<UUID> supplyingFacilityIds);
 
   Long countOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities);
+
+  List<Long> countOrdersByStatuses(List<Set<OrderStatus>> statusGroups,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities);
+
+  Map<OrderStatus, Long> countStatuses(UUID facilityId);
+
+  int foldStatusCountDeltas(int batchSize);
+
+  int reconcileStatusCounts();
 }
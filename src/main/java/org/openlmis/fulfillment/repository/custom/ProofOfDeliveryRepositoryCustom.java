@@ -18,6 +18,7 @@ package org.openlmis.fulfillment.repository.custom;
 import java.util.Set;
 import java.util.UUID;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -25,4 +26,8 @@ public interface ProofOfDeliveryRepositoryCustom {
 
   Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Set<UUID> receivingFacilityIds,
       Set<UUID> supplyingFacilityIds, Set<UUID> programIds, Pageable pageable);
+
+  Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Set<UUID> receivingFacilityIds,
+      Set<UUID> supplyingFacilityIds, Set<UUID> programIds, Pageable pageable,
+      CountStrategy countStrategy);
 }
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.repository.custom.impl;
 
+import static org.openlmis.fulfillment.domain.Order.CREATED_DATE;
 import static org.openlmis.fulfillment.domain.Order.ORDER_STATUS;
 import static org.openlmis.fulfillment.domain.Order.PROCESSING_PERIOD_ID;
 import static org.openlmis.fulfillment.domain.Order.PROGRAM_ID;
@@ -22,33 +23,131 @@ import static org.openlmis.fulfillment.domain.Order.REQUESTING_FACILITY_ID;
 import static org.openlmis.fulfillment.domain.Order.SUPPLYING_FACILITY_ID;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import org.hibernate.Session;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.UpdateDetails;
 import org.openlmis.fulfillment.repository.custom.OrderRepositoryCustom;
 import org.openlmis.fulfillment.service.OrderSearchParams;
-import org.openlmis.fulfillment.util.Pagination;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
 
 public class OrderRepositoryImpl implements OrderRepositoryCustom {
 
   private static final String EXTERNAL_ID = "externalId";
+  private static final String ID = "id";
+  private static final String ORDERS_TABLE = "fulfillment.orders";
+  private static final String SUPPLYING_FACILITY_COLUMN = "supplyingfacilityid";
+  private static final String REQUESTING_FACILITY_COLUMN = "requestingfacilityid";
+
+  private static final String FACILITY_ID = "facilityId";
+  private static final String RECEIVING_FACILITY_ID = "receivingFacilityId";
+  private static final String CREATED_BY_ID = "createdById";
+  private static final String EMERGENCY = "emergency";
+  private static final String ORDER_CODE = "orderCode";
+  private static final String QUOTED_COST = "quotedCost";
+  private static final String UPDATE_DETAILS = "updateDetails";
+  private static final String UPDATER_ID = "updaterId";
+  private static final String UPDATED_DATE = "updatedDate";
+
+  private static final String SUMMARY_COLUMNS = "id, externalid, emergency, facilityid,"
+      + " processingperiodid, createddate, createdbyid, programid, requestingfacilityid,"
+      + " receivingfacilityid, supplyingfacilityid, ordercode, status, quotedcost,"
+      + " lastupdaterid AS updaterid, lastupdateddate AS updateddate";
+
+  // columns used by the basic order representation
+  private static final List<String> SUMMARY_FIELDS = Collections.unmodifiableList(Arrays.asList(
+      ID, EXTERNAL_ID, EMERGENCY, FACILITY_ID, PROCESSING_PERIOD_ID, CREATED_DATE, CREATED_BY_ID,
+      PROGRAM_ID, REQUESTING_FACILITY_ID, RECEIVING_FACILITY_ID, SUPPLYING_FACILITY_ID,
+      ORDER_CODE, ORDER_STATUS, QUOTED_COST));
+
+  // the counts of a facility are the folded counts plus the deltas that were not folded yet
+  private static final String COUNT_STATUSES = "SELECT c.status, SUM(c.count)"
+      + " FROM (SELECT status, count FROM fulfillment.order_status_counts"
+      + "   WHERE facilityid = :facilityId"
+      + "   UNION ALL"
+      + "   SELECT status, delta FROM fulfillment.order_status_count_deltas"
+      + "   WHERE facilityid = :facilityId) AS c"
+      + " GROUP BY c.status";
+
+  // only one transaction (of any instance) folds the deltas at a time
+  private static final String TRY_LOCK_STATUS_COUNTS =
+      "SELECT pg_try_advisory_xact_lock(hashtext('fulfillment.order_status_counts'))";
+
+  // moves the oldest deltas into the counts; the deletion and the new counts are committed together
+  private static final String FOLD_STATUS_COUNT_DELTAS = "WITH folded AS ("
+      + "  DELETE FROM fulfillment.order_status_count_deltas"
+      + "  WHERE id IN (SELECT id FROM fulfillment.order_status_count_deltas"
+      + "    ORDER BY id LIMIT :batchSize)"
+      + "  RETURNING facilityid, programid, status, delta"
+      + "), applied AS ("
+      + "  INSERT INTO fulfillment.order_status_counts AS c (facilityid, programid, status, count)"
+      + "  SELECT facilityid, programid, status, SUM(delta) FROM folded"
+      + "  GROUP BY facilityid, programid, status"
+      + "  ON CONFLICT (facilityid, programid, status)"
+      + "  DO UPDATE SET count = c.count + EXCLUDED.count"
+      + ")"
+      + " SELECT count(*) FROM folded";
+
+  // compares the orders with the counts plus the deltas and appends a correcting delta for each
+  // difference. A single statement reads all tables from one snapshot, in which every committed
+  // order change is matched by its committed delta, so no table has to be locked.
+  private static final String RECONCILE_STATUS_COUNTS = "WITH actual AS ("
+      + "  SELECT facilityid, programid, status, count(*) AS count"
+      + "  FROM fulfillment.orders"
+      + "  WHERE facilityid IS NOT NULL"
+      + "  GROUP BY facilityid, programid, status"
+      + "), recorded AS ("
+      + "  SELECT facilityid, programid, status, SUM(count) AS count"
+      + "  FROM (SELECT facilityid, programid, status, count"
+      + "    FROM fulfillment.order_status_counts"
+      + "    UNION ALL"
+      + "    SELECT facilityid, programid, status, delta"
+      + "    FROM fulfillment.order_status_count_deltas) AS r"
+      + "  GROUP BY facilityid, programid, status"
+      + "), corrected AS ("
+      + "  INSERT INTO fulfillment.order_status_count_deltas"
+      + "    (facilityid, programid, status, delta)"
+      + "  SELECT facilityid, programid, status, COALESCE(a.count, 0) - COALESCE(r.count, 0)"
+      + "  FROM actual AS a FULL JOIN recorded AS r USING (facilityid, programid, status)"
+      + "  WHERE COALESCE(a.count, 0) <> COALESCE(r.count, 0)"
+      + "  RETURNING 1"
+      + ")"
+      + " SELECT count(*) FROM corrected";
   
   @PersistenceContext
   private EntityManager entityManager;
@@ -65,8 +164,7 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
   @Override
   public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable) {
-    return search(params, processingPeriodIds, pageable, Collections.emptySet(),
-        Collections.emptySet());
+    return searchOrders(params, processingPeriodIds, pageable, CountStrategy.EXACT);
   }
 
   /**
@@ -85,34 +183,464 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
   public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable, Set<UUID> availableSupplyingFacilities,
       Set<UUID> availableRequestingFacilities) {
+    return searchOrders(params, processingPeriodIds, pageable, CountStrategy.EXACT,
+        availableSupplyingFacilities, availableRequestingFacilities);
+  }
+
+  /**
+   * Method returns all Orders with matched parameters. This method ignore if user has right for
+   * order. Use it only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countStrategy how the total number of orders should be computed
+   * @return List of Orders with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy) {
+    return search(params, processingPeriodIds, pageable, countStrategy, Collections.emptySet(),
+        Collections.emptySet(), false);
+  }
+
+  /**
+   * Method returns all Orders with matched parameters. It will filter out all orders that are not
+   * part of {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If both
+   * sets are empty or {@code processingPeriodIds} is empty it will result in empty response.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countStrategy how the total number of orders should be computed
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return Page of Orders with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountStrategy countStrategy, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
+      return new CountedPage<>(Collections.emptyList(), pageable, 0, countStrategy);
+    }
+    return search(params, processingPeriodIds, pageable, countStrategy,
+        availableSupplyingFacilities, availableRequestingFacilities, false);
+  }
+
+  /**
+   * Method returns summaries of all Orders with matched parameters. A summary is an order with
+   * the scalar columns only (without line items, status messages and status changes) that is
+   * not managed by the persistence context. This method ignore if user has right for order. Use
+   * it only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countStrategy how the total number of orders should be computed
+   * @return Page of Order summaries with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountStrategy countStrategy) {
+    return search(params, processingPeriodIds, pageable, countStrategy, Collections.emptySet(),
+        Collections.emptySet(), true);
+  }
+
+  /**
+   * Method returns summaries of all Orders with matched parameters. A summary is an order with
+   * the scalar columns only (without line items, status messages and status changes) that is
+   * not managed by the persistence context. It will filter out all orders that are not part of
+   * {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If both sets
+   * are empty it will result in empty response.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countStrategy how the total number of orders should be computed
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return Page of Order summaries with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountStrategy countStrategy,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
+      return new CountedPage<>(Collections.emptyList(), pageable, 0, countStrategy);
+    }
+    return search(params, processingPeriodIds, pageable, countStrategy,
+        availableSupplyingFacilities, availableRequestingFacilities, true);
+  }
+
+  /**
+   * Method passes summaries of all Orders with matched parameters to the given consumer in chunks
+   * of the given size. Orders are read with a forward-only database cursor that fetches one chunk
+   * at a time, so the number of orders does not affect the memory usage. Orders are sorted by the
+   * created date and id (both descending). This method ignore if user has right for order. Use it
+   * only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param chunkSize number of orders passed to the consumer at once
+   * @param consumer receives chunks of Order summaries
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void streamOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      int chunkSize, Consumer<List<Order>> consumer) {
+    stream(params, processingPeriodIds, chunkSize, consumer, Collections.emptySet(),
+        Collections.emptySet());
+  }
+
+  /**
+   * Method passes summaries of all Orders with matched parameters to the given consumer in chunks
+   * of the given size. Orders are read with a forward-only database cursor that fetches one chunk
+   * at a time, so the number of orders does not affect the memory usage. Orders are sorted by the
+   * created date and id (both descending). It will filter out all orders that are not part of
+   * {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If both sets
+   * are empty the consumer is not called.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param chunkSize number of orders passed to the consumer at once
+   * @param consumer receives chunks of Order summaries
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void streamOrderSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      int chunkSize, Consumer<List<Order>> consumer, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
     if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
-      return Pagination.getPage(Collections.emptyList(), pageable);
+      return;
     }
-    return search(params, processingPeriodIds,
-        pageable, availableSupplyingFacilities, availableRequestingFacilities);
+    stream(params, processingPeriodIds, chunkSize, consumer, availableSupplyingFacilities,
+        availableRequestingFacilities);
   }
 
   private Page<Order> search(OrderSearchParams params, Set<UUID> processingPeriodIds,
-      Pageable pageable, Set<UUID> availableSupplyingFacilities,
+      Pageable pageable, CountStrategy countStrategy, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities, boolean summaries) {
+    Pageable page = null != pageable ? pageable : PageRequest.of(0, Integer.MAX_VALUE);
+    int limit = countStrategy != CountStrategy.EXACT
+        ? PageCounter.getLimit(page)
+        : page.getPageSize();
+
+    List<Order> result = summaries
+        ? findSummaries(params, processingPeriodIds, pageable, page, limit,
+            availableSupplyingFacilities, availableRequestingFacilities)
+        : findOrders(params, processingPeriodIds, pageable, page, limit,
+            availableSupplyingFacilities, availableRequestingFacilities);
+
+    if (countStrategy != CountStrategy.EXACT) {
+      return PageCounter.getPage(result, page, countStrategy,
+          () -> PageCounter.estimate(entityManager, ORDERS_TABLE, buildNativeConditions(params,
+              processingPeriodIds, availableSupplyingFacilities, availableRequestingFacilities)));
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+    countQuery = prepareQuery(countQuery, params, processingPeriodIds, pageable, true,
+        availableSupplyingFacilities, availableRequestingFacilities);
+
+    Long count = entityManager.createQuery(countQuery).getSingleResult();
+
+    return new CountedPage<>(result, page, count, countStrategy);
+  }
+
+  private List<Order> findOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, Pageable page, int limit, Set<UUID> availableSupplyingFacilities,
       Set<UUID> availableRequestingFacilities) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 
     CriteriaQuery<Order> query = builder.createQuery(Order.class);
     query = prepareQuery(query, params, processingPeriodIds, pageable, false,
         availableSupplyingFacilities, availableRequestingFacilities);
-    CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
-    countQuery = prepareQuery(countQuery, params, processingPeriodIds, pageable, true,
+
+    return entityManager.createQuery(query)
+        .setMaxResults(limit)
+        .setFirstResult(page.getPageSize() * page.getPageNumber())
+        .getResultList();
+  }
+
+  private List<Order> findSummaries(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, Pageable page, int limit, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    query = prepareQuery(query, params, processingPeriodIds, pageable, false,
         availableSupplyingFacilities, availableRequestingFacilities);
 
-    Pageable page = null != pageable ? pageable : PageRequest.of(0, Integer.MAX_VALUE);
+    Root<?> root = query.getRoots().iterator().next();
+    List<Selection<?>> selections = new ArrayList<>();
 
-    Long count = entityManager.createQuery(countQuery).getSingleResult();
-    List<Order> result = entityManager.createQuery(query)
-        .setMaxResults(page.getPageSize())
+    for (String field : SUMMARY_FIELDS) {
+      selections.add(root.get(field).alias(field));
+    }
+
+    selections.add(root.get(UPDATE_DETAILS).get(UPDATER_ID).alias(UPDATER_ID));
+    selections.add(root.get(UPDATE_DETAILS).get(UPDATED_DATE).alias(UPDATED_DATE));
+    query.multiselect(selections);
+
+    List<Tuple> rows = entityManager.createQuery(query)
+        .setMaxResults(limit)
         .setFirstResult(page.getPageSize() * page.getPageNumber())
         .getResultList();
 
-    return new PageImpl<>(result, page, count);
+    List<Order> summaries = new ArrayList<>(rows.size());
+
+    for (Tuple row : rows) {
+      summaries.add(toSummary(row::get));
+    }
+
+    return summaries;
+  }
+
+  // the order is not managed by the persistence context and has no line items, status messages
+  // and status changes
+  private static Order toSummary(SummaryRow row) {
+    UUID updaterId = row.get(UPDATER_ID, UUID.class);
+    ZonedDateTime updatedDate = row.get(UPDATED_DATE, ZonedDateTime.class);
+
+    Order order = new Order(null == updaterId && null == updatedDate
+        ? null
+        : new UpdateDetails(updaterId, updatedDate));
+
+    order.setId(row.get(ID, UUID.class));
+    order.setExternalId(row.get(EXTERNAL_ID, UUID.class));
+    order.setEmergency(row.get(EMERGENCY, Boolean.class));
+    order.setFacilityId(row.get(FACILITY_ID, UUID.class));
+    order.setProcessingPeriodId(row.get(PROCESSING_PERIOD_ID, UUID.class));
+    order.setCreatedDate(row.get(CREATED_DATE, ZonedDateTime.class));
+    order.setCreatedById(row.get(CREATED_BY_ID, UUID.class));
+    order.setProgramId(row.get(PROGRAM_ID, UUID.class));
+    order.setRequestingFacilityId(row.get(REQUESTING_FACILITY_ID, UUID.class));
+    order.setReceivingFacilityId(row.get(RECEIVING_FACILITY_ID, UUID.class));
+    order.setSupplyingFacilityId(row.get(SUPPLYING_FACILITY_ID, UUID.class));
+    order.setOrderCode(row.get(ORDER_CODE, String.class));
+    order.setStatus(row.get(ORDER_STATUS, OrderStatus.class));
+    order.setQuotedCost(row.get(QUOTED_COST, BigDecimal.class));
+
+    return order;
+  }
+
+  /**
+   * A single row of {@link #SUMMARY_FIELDS} read either from a JPA tuple or from a JDBC result
+   * set. Values are looked up by the summary field names which are also used as column labels in
+   * {@link #SUMMARY_COLUMNS}.
+   */
+  @FunctionalInterface
+  private interface SummaryRow {
+    <T> T get(String field, Class<T> type);
+  }
+
+  private static final class ResultSetSummaryRow implements SummaryRow {
+    private final ResultSet resultSet;
+
+    ResultSetSummaryRow(ResultSet resultSet) {
+      this.resultSet = resultSet;
+    }
+
+    @Override
+    public <T> T get(String field, Class<T> type) {
+      try {
+        if (ZonedDateTime.class == type) {
+          return type.cast(toZonedDateTime(resultSet.getTimestamp(field)));
+        }
+
+        if (OrderStatus.class == type) {
+          String status = resultSet.getString(field);
+          return null == status ? null : type.cast(OrderStatus.valueOf(status));
+        }
+
+        return resultSet.getObject(field, type);
+      } catch (SQLException ex) {
+        throw new IllegalStateException("Could not read the order column " + field, ex);
+      }
+    }
+
+    // timestamps are stored with time zone so the instant is kept in UTC, the same time zone
+    // Hibernate uses for JDBC (spring.jpa.hibernate.jdbc.time_zone)
+    private static ZonedDateTime toZonedDateTime(Timestamp timestamp) {
+      return null == timestamp
+          ? null
+          : ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneOffset.UTC);
+    }
+  }
+
+  private void stream(OrderSearchParams params, Set<UUID> processingPeriodIds, int chunkSize,
+      Consumer<List<Order>> consumer, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    List<String> conditions = buildNativeConditions(params, processingPeriodIds,
+        availableSupplyingFacilities, availableRequestingFacilities);
+    StringBuilder sql = new StringBuilder("SELECT ").append(SUMMARY_COLUMNS)
+        .append(" FROM ").append(ORDERS_TABLE);
+
+    if (!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+
+    sql.append(" ORDER BY createddate DESC, id DESC");
+
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        // the PostgreSQL driver uses a cursor only if the fetch size is set and the connection
+        // is not in the auto-commit mode (it is part of the current transaction)
+        statement.setFetchSize(chunkSize);
+
+        try (ResultSet rows = statement.executeQuery()) {
+          SummaryRow row = new ResultSetSummaryRow(rows);
+          List<Order> chunk = new ArrayList<>(chunkSize);
+
+          while (rows.next()) {
+            chunk.add(toSummary(row));
+
+            if (chunk.size() == chunkSize) {
+              consumer.accept(chunk);
+              chunk = new ArrayList<>(chunkSize);
+            }
+          }
+
+          if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+          }
+        }
+      }
+    });
+  }
+
+  // the same conditions as in the prepareQuery method, used for the query plan estimate
+  private List<String> buildNativeConditions(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    List<String> conditions = new ArrayList<>();
+
+    if (null != params.getSupplyingFacilityId()) {
+      conditions.add(PageCounter.isEqual(SUPPLYING_FACILITY_COLUMN,
+          params.getSupplyingFacilityId()));
+    }
+
+    if (null != params.getRequestingFacilityId()) {
+      conditions.add(PageCounter.isEqual(REQUESTING_FACILITY_COLUMN,
+          params.getRequestingFacilityId()));
+    }
+
+    List<String> orConditions = new ArrayList<>();
+
+    if (!isEmpty(availableSupplyingFacilities)) {
+      orConditions.add(PageCounter.isOneOf(SUPPLYING_FACILITY_COLUMN,
+          availableSupplyingFacilities));
+    }
+
+    if (!isEmpty(availableRequestingFacilities)) {
+      orConditions.add(PageCounter.isOneOf(REQUESTING_FACILITY_COLUMN,
+          availableRequestingFacilities));
+    }
+
+    if (!orConditions.isEmpty()) {
+      conditions.add("(" + String.join(" OR ", orConditions) + ")");
+    }
+
+    if (null != params.getProgramId()) {
+      conditions.add(PageCounter.isEqual("programid", params.getProgramId()));
+    }
+
+    if (!isEmpty(processingPeriodIds)) {
+      conditions.add(PageCounter.isOneOf("processingperiodid", processingPeriodIds));
+    }
+
+    Set<OrderStatus> statuses = params.getStatusAsEnum();
+
+    if (!isEmpty(statuses)) {
+      conditions.add(PageCounter.isOneOf("status", statuses));
+    }
+
+    if (params.getRequisitionless() != null) {
+      conditions.add(Boolean.TRUE.equals(params.getRequisitionless())
+          ? "externalid IS NULL"
+          : "externalid IS NOT NULL");
+    }
+
+    return conditions;
+  }
+
+  /**
+   * Method returns Orders with matched parameters that come after the given position, sorted by
+   * the created date and id (both descending). It will filter out all orders that are not part of
+   * {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If both sets
+   * are empty it will result in empty response. Unlike {@link #searchOrders} it does not count
+   * all matching orders and the cost of a query does not depend on the position.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param after position of the last order of the previous page or {@code null}
+   * @param limit maximum number of returned orders
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return List of Orders with matched parameters.
+   */
+  @Override
+  public List<Order> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      ContinuationToken after, int limit, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
+      return Collections.emptyList();
+    }
+    return seek(params, processingPeriodIds, after, limit, availableSupplyingFacilities,
+        availableRequestingFacilities);
+  }
+
+  /**
+   * Method returns Orders with matched parameters that come after the given position. This method
+   * ignore if user has right for order. Use it only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param after position of the last order of the previous page or {@code null}
+   * @param limit maximum number of returned orders
+   * @return List of Orders with matched parameters.
+   */
+  @Override
+  public List<Order> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      ContinuationToken after, int limit) {
+    return seek(params, processingPeriodIds, after, limit, Collections.emptySet(),
+        Collections.emptySet());
+  }
+
+  private List<Order> seek(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      ContinuationToken after, int limit, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<Order> query = prepareQuery(builder.createQuery(Order.class), params,
+        processingPeriodIds, null, false, availableSupplyingFacilities,
+        availableRequestingFacilities);
+    Root<Order> root = (Root<Order>) query.getRoots().iterator().next();
+    Predicate predicate = query.getRestriction();
+
+    if (null != after) {
+      // (createdDate, id) < (:createdDate, :id), with the redundant upper bound on the created
+      // date so the index on it can be used for the range scan
+      Path<ZonedDateTime> createdDate = root.get(CREATED_DATE);
+      Path<UUID> id = root.get(ID);
+
+      predicate = builder.and(predicate,
+          builder.lessThanOrEqualTo(createdDate, after.getCreatedDate()),
+          builder.or(
+              builder.lessThan(createdDate, after.getCreatedDate()),
+              builder.lessThan(id, after.getId())));
+    }
+
+    query.where(predicate);
+    query.orderBy(builder.desc(root.get(CREATED_DATE)), builder.desc(root.get(ID)));
+
+    return entityManager.createQuery(query)
+        .setMaxResults(limit)
+        .getResultList();
   }
 
   /**
@@ -148,6 +676,127 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     return entityManager.createQuery(countQuery).getSingleResult();
   }
 
+  /**
+   * Method returns number of Orders in each of the given groups of statuses. All groups are
+   * counted with one query (one conditional sum per group) that filters out all orders that are
+   * not part of {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If
+   * both sets are empty, zeros are returned.
+   *
+   * @param statusGroups groups of statuses to count orders for
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return List of numbers of orders, in the same order as the groups.
+   */
+  @Override
+  public List<Long> countOrdersByStatuses(List<Set<OrderStatus>> statusGroups,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))
+        || statusGroups.isEmpty()) {
+      return new ArrayList<>(Collections.nCopies(statusGroups.size(), 0L));
+    }
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<Order> root = query.from(Order.class);
+    Path<OrderStatus> status = root.get(ORDER_STATUS);
+
+    List<Selection<?>> counts = new ArrayList<>();
+    Set<OrderStatus> allStatuses = EnumSet.noneOf(OrderStatus.class);
+
+    for (Set<OrderStatus> group : statusGroups) {
+      counts.add(builder.sumAsLong(builder.<Integer>selectCase()
+          .when(status.in(group), 1)
+          .otherwise(0)));
+      allStatuses.addAll(group);
+    }
+
+    Predicate orPredicate = builder.disjunction();
+    orPredicate = isOneOfOr(SUPPLYING_FACILITY_ID, availableSupplyingFacilities, root,
+        orPredicate, builder);
+    orPredicate = isOneOfOr(REQUESTING_FACILITY_ID, availableRequestingFacilities, root,
+        orPredicate, builder);
+
+    query.multiselect(counts);
+    query.where(status.in(allStatuses), orPredicate);
+
+    Tuple result = entityManager.createQuery(query).getSingleResult();
+    List<Long> numbers = new ArrayList<>(statusGroups.size());
+
+    for (int i = 0; i < statusGroups.size(); ++i) {
+      Long number = result.get(i, Long.class);
+      numbers.add(null == number ? 0L : number);
+    }
+
+    return numbers;
+  }
+
+  /**
+   * Method returns number of Orders of the given facility in each status. The numbers are read
+   * from the order status counts table and the deltas not folded into it yet. Database triggers
+   * append a delta whenever an order is created, deleted or its status changes. Statuses that
+   * never had any order are not included.
+   *
+   * @param facilityId UUID of the facility
+   * @return Map of order statuses to the number of orders.
+   */
+  @Override
+  public Map<OrderStatus, Long> countStatuses(UUID facilityId) {
+    List<Object[]> rows = entityManager.createNativeQuery(COUNT_STATUSES)
+        .setParameter("facilityId", facilityId)
+        .getResultList();
+
+    Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+
+    for (Object[] row : rows) {
+      OrderStatus status = OrderStatus.fromString((String) row[0]);
+
+      if (null != status) {
+        counts.put(status, ((Number) row[1]).longValue());
+      }
+    }
+
+    return counts;
+  }
+
+  /**
+   * Folds up to the given number of the oldest order status count deltas into the order status
+   * counts. Nothing is folded if another transaction is folding the deltas at the moment.
+   *
+   * @param batchSize maximum number of folded deltas.
+   * @return number of folded deltas.
+   */
+  @Override
+  @Transactional
+  public int foldStatusCountDeltas(int batchSize) {
+    Object locked = entityManager.createNativeQuery(TRY_LOCK_STATUS_COUNTS).getSingleResult();
+
+    if (!Boolean.TRUE.equals(locked)) {
+      return 0;
+    }
+
+    Number folded = (Number) entityManager.createNativeQuery(FOLD_STATUS_COUNT_DELTAS)
+        .setParameter("batchSize", batchSize)
+        .getSingleResult();
+
+    return folded.intValue();
+  }
+
+  /**
+   * Recalculates the order status counts from the orders table and appends a correcting delta
+   * for every count that is different. No table is locked, so orders can be created and updated
+   * while the counts are reconciled.
+   *
+   * @return number of fixed counts.
+   */
+  @Override
+  @Transactional
+  public int reconcileStatusCounts() {
+    Number fixed = (Number) entityManager.createNativeQuery(RECONCILE_STATUS_COUNTS)
+        .getSingleResult();
+
+    return fixed.intValue();
+  }
+
   /**
    * Retrieves the distinct UUIDs of the available requesting facilities.
    */
@@ -158,11 +807,7 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     Root<Order> root = query.from(Order.class);
 
     if (!isEmpty(supplyingFacilityIds)) {
-      Predicate predicate = builder.disjunction();
-      for (Object elem : supplyingFacilityIds) {
-        predicate = builder.or(predicate, builder.equal(root.get(SUPPLYING_FACILITY_ID), elem));
-      }
-      query.where(predicate);
+      query.where(root.get(SUPPLYING_FACILITY_ID).in(supplyingFacilityIds));
     }
 
     query.select(root.get(REQUESTING_FACILITY_ID)).distinct(true);
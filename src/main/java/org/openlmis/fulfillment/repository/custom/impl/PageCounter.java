@@ -0,0 +1,127 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
+import org.openlmis.fulfillment.util.Pagination;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Helps the custom repositories to build pages with the total number of elements computed with
+ * the requested {@link CountStrategy}.
+ *
+ * <p>For {@link CountStrategy#NONE} and {@link CountStrategy#ESTIMATE} one more row than the page
+ * size should be retrieved (see {@link #getLimit(Pageable)}). If that row is missing, this is the
+ * last page and the total is exact without any count query.
+ */
+final class PageCounter {
+  private static final Pattern ROWS = Pattern.compile("rows=(\\d+)");
+
+  private PageCounter() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns the number of rows that should be retrieved for the given page when the count query
+   * is not run.
+   */
+  static int getLimit(Pageable pageable) {
+    int pageSize = Pagination.getPageSize(pageable);
+    return pageSize == Pagination.NO_PAGINATION ? pageSize : pageSize + 1;
+  }
+
+  /**
+   * Creates a page from rows retrieved with the limit from {@link #getLimit(Pageable)}. If there
+   * are more rows than the page size, the total is the greater of the estimate (only for
+   * {@link CountStrategy#ESTIMATE}) and the number of rows seen so far.
+   */
+  static <T> Page<T> getPage(List<T> rows, Pageable pageable, CountStrategy strategy,
+      LongSupplier estimate) {
+    int pageSize = Pagination.getPageSize(pageable);
+    long offset = null == pageable ? 0 : pageable.getOffset();
+
+    if (rows.size() <= pageSize) {
+      return new CountedPage<>(rows, pageable, offset + rows.size(), strategy);
+    }
+
+    long total = offset + rows.size();
+
+    if (strategy == CountStrategy.ESTIMATE) {
+      total = Math.max(total, estimate.getAsLong());
+    }
+
+    return new CountedPage<>(rows.subList(0, pageSize), pageable, total, strategy);
+  }
+
+  /**
+   * Returns the number of rows that the database query planner expects to be returned by the
+   * query with the given from clause and conditions. Only the table statistics are used, the
+   * query is not executed.
+   */
+  static long estimate(EntityManager entityManager, String from, List<String> conditions) {
+    StringBuilder sql = new StringBuilder("EXPLAIN SELECT 1 FROM ").append(from);
+
+    if (!conditions.isEmpty()) {
+      sql.append(" WHERE ").append(String.join(" AND ", conditions));
+    }
+
+    List<?> plan = entityManager.createNativeQuery(sql.toString()).getResultList();
+    Matcher matcher = plan.isEmpty() ? null : ROWS.matcher(String.valueOf(plan.get(0)));
+
+    return null != matcher && matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+  }
+
+  /**
+   * Returns a native SQL condition that matches the given UUID or enum value. The value is
+   * inlined so the planner can use the column statistics for it.
+   */
+  static String isEqual(String column, Object value) {
+    return column + " = " + literal(value);
+  }
+
+  /**
+   * Returns a native SQL condition that matches any of the given UUID or enum values.
+   */
+  static String isOneOf(String column, Collection<?> values) {
+    return values
+        .stream()
+        .map(PageCounter::literal)
+        .collect(Collectors.joining(", ", column + " IN (", ")"));
+  }
+
+  private static String literal(Object value) {
+    // only types that can't contain a quote are inlined
+    if (value instanceof UUID) {
+      return "'" + value + "'";
+    }
+
+    if (value instanceof Enum) {
+      return "'" + ((Enum<?>) value).name() + "'";
+    }
+
+    throw new IllegalArgumentException("Unsupported literal type: " + value.getClass());
+  }
+}
@@ -29,7 +29,8 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.custom.ProofOfDeliveryRepositoryCustom;
-import org.openlmis.fulfillment.util.Pagination;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -62,6 +63,10 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
   private static final String WITH_PROGRAM_IDS =
       "o.programId IN (:programIds)";
 
+  private static final String POD_NATIVE_FROM = "fulfillment.proofs_of_delivery AS p"
+      + " INNER JOIN fulfillment.shipments AS s ON s.id = p.shipmentid"
+      + " INNER JOIN fulfillment.orders AS o ON o.id = s.orderid";
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -86,6 +91,46 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
       Set<UUID> programIds,
       Pageable pageable
   ) {
+    return search(shipmentId, orderId, receivingFacilityIds, supplyingFacilityIds, programIds,
+        pageable, CountStrategy.EXACT);
+  }
+
+  /**
+   * This method retrieves all Proofs of Delivery (PODs) matching the provided parameters.
+   * The total number of PODs in the returned page is computed with the given strategy.
+   *
+   * @param shipmentId           UUID of the associated shipment.
+   * @param orderId              UUID of the associated order.
+   * @param receivingFacilityIds List of UUIDs of receiving facilities in the associated order.
+   * @param supplyingFacilityIds List of UUIDs of supplying facilities in the associated order.
+   * @param programIds           List of UUIDs of programs associated with the order.
+   * @param pageable             Pagination parameters to limit the result set.
+   * @param countStrategy        How the total number of PODs should be computed.
+   * @return A list of Proofs of Delivery (PODs) matching the provided parameters.
+   */
+  public Page<ProofOfDelivery> search(
+      UUID shipmentId,
+      UUID orderId,
+      Set<UUID> receivingFacilityIds,
+      Set<UUID> supplyingFacilityIds,
+      Set<UUID> programIds,
+      Pageable pageable,
+      CountStrategy countStrategy
+  ) {
+    if (countStrategy != CountStrategy.EXACT) {
+      List<ProofOfDelivery> pods = prepareQuery(
+          POD_SELECT, shipmentId, orderId, receivingFacilityIds,
+          supplyingFacilityIds, programIds, pageable, ProofOfDelivery.class
+      )
+          .setMaxResults(PageCounter.getLimit(pageable))
+          .setFirstResult(Math.toIntExact(pageable.getOffset()))
+          .getResultList();
+
+      return PageCounter.getPage(pods, pageable, countStrategy,
+          () -> PageCounter.estimate(entityManager, POD_NATIVE_FROM, buildNativeConditions(
+              shipmentId, orderId, receivingFacilityIds, supplyingFacilityIds, programIds)));
+    }
+
     TypedQuery<Long> countQuery = prepareQuery(
         POD_COUNT, shipmentId, orderId, receivingFacilityIds,
         supplyingFacilityIds, programIds, pageable, Long.class
@@ -103,10 +148,10 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
           .setFirstResult(Math.toIntExact(pageable.getOffset()))
           .getResultList();
 
-      return Pagination.getPage(pods, pageable, count);
+      return new CountedPage<>(pods, pageable, count, countStrategy);
     }
 
-    return Pagination.getPage(emptyList(), pageable, count);
+    return new CountedPage<>(emptyList(), pageable, count, countStrategy);
   }
 
   private <T> TypedQuery<T> prepareQuery(
@@ -160,6 +205,45 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
     return whereClauses;
   }
 
+  // the same conditions as in the buildWhereClauses method, used for the query plan estimate
+  private List<String> buildNativeConditions(
+      UUID shipmentId,
+      UUID orderId,
+      Set<UUID> receivingFacilityIds,
+      Set<UUID> supplyingFacilityIds,
+      Set<UUID> programIds
+  ) {
+    List<String> conditions = new ArrayList<>();
+
+    if (null != shipmentId) {
+      conditions.add(PageCounter.isEqual("s.id", shipmentId));
+    }
+
+    if (null != orderId) {
+      conditions.add(PageCounter.isEqual("o.id", orderId));
+    }
+
+    List<String> orConditions = new ArrayList<>();
+
+    if (isParamValuePresent(receivingFacilityIds)) {
+      orConditions.add(PageCounter.isOneOf("o.receivingfacilityid", receivingFacilityIds));
+    }
+
+    if (isParamValuePresent(supplyingFacilityIds)) {
+      orConditions.add(PageCounter.isOneOf("o.supplyingfacilityid", supplyingFacilityIds));
+    }
+
+    if (!orConditions.isEmpty()) {
+      conditions.add("(" + String.join(OR, orConditions) + ")");
+    }
+
+    if (isParamValuePresent(programIds)) {
+      conditions.add(PageCounter.isOneOf("o.programid", programIds));
+    }
+
+    return conditions;
+  }
+
   private void addCondition(
       List<String> whereClauses,
       Map<String, Object> params,
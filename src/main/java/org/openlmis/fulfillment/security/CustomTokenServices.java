@@ -15,22 +15,116 @@
 
 package org.openlmis.fulfillment.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.Setter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 
+/**
+ * Token services that validate access tokens with the auth service and keep the result in a
+ * bounded cache, so repeated requests with the same bearer token do not reach the auth service.
+ * A validated token is kept until its expiry claim, but not longer than the configured maximum
+ * time to live. Tokens rejected by the auth service are remembered for a short time as well.
+ */
 public class CustomTokenServices extends RemoteTokenServices {
+  static final String METRIC_NAME = "auth.tokenCache.requests";
 
   private int invalidTokenRetryLimit;
+  private final long maxTtl;
+  private final long invalidTokenTtl;
+  private final Cache<String, CachedToken> tokens;
+
+  @Setter
+  private Clock clock = Clock.systemUTC();
+
+  @Setter
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
   public CustomTokenServices(int invalidTokenRetryLimit) {
+    this(invalidTokenRetryLimit, 0, 0, 0);
+  }
+
+  /**
+   * Creates token services with a cache of validated tokens.
+   *
+   * @param invalidTokenRetryLimit how many times a rejected token is checked again.
+   * @param cacheMaxSize           maximum number of kept tokens, zero disables the cache.
+   * @param cacheMaxTtl            maximum time (in seconds) a validated token is kept.
+   * @param invalidTokenCacheTtl   time (in seconds) a rejected token is kept.
+   */
+  public CustomTokenServices(int invalidTokenRetryLimit, long cacheMaxSize, long cacheMaxTtl,
+      long invalidTokenCacheTtl) {
     super();
+    super.setAccessTokenConverter(new ExpiryAwareConverter(new DefaultAccessTokenConverter()));
     this.invalidTokenRetryLimit = invalidTokenRetryLimit;
+    this.maxTtl = TimeUnit.SECONDS.toMillis(cacheMaxTtl);
+    this.invalidTokenTtl = TimeUnit.SECONDS.toMillis(invalidTokenCacheTtl);
+    this.tokens = CacheBuilder
+        .newBuilder()
+        .maximumSize(cacheMaxSize)
+        .build();
+  }
+
+  @Override
+  public void setAccessTokenConverter(AccessTokenConverter accessTokenConverter) {
+    super.setAccessTokenConverter(new ExpiryAwareConverter(accessTokenConverter));
   }
 
   @Override
   public OAuth2Authentication loadAuthentication(String accessToken) {
-    return loadAuthentication(accessToken, 0);
+    long now = clock.millis();
+    CachedToken cached = tokens.getIfPresent(accessToken);
+
+    if (null != cached && now < cached.validUntil) {
+      if (null == cached.authentication) {
+        count("invalid");
+        throw new InvalidTokenException(accessToken);
+      }
+
+      count("hit");
+      return copy(cached.authentication);
+    }
+
+    count("miss");
+    OAuth2Authentication authentication;
+
+    try {
+      authentication = loadAuthentication(accessToken, 0);
+    } catch (InvalidTokenException ex) {
+      if (invalidTokenTtl > 0) {
+        tokens.put(accessToken, new CachedToken(null, now + invalidTokenTtl));
+      }
+      throw ex;
+    }
+
+    long validUntil = now + maxTtl;
+
+    if (authentication instanceof ExpiringAuthentication) {
+      Long expiresAt = ((ExpiringAuthentication) authentication).expiresAt;
+
+      if (null != expiresAt) {
+        validUntil = Math.min(validUntil, expiresAt);
+      }
+    }
+
+    if (validUntil > now) {
+      tokens.put(accessToken, new CachedToken(authentication, validUntil));
+    }
+
+    return copy(authentication);
   }
 
   private OAuth2Authentication loadAuthentication(String accessToken, int attempt) {
@@ -46,4 +140,75 @@ public class CustomTokenServices extends RemoteTokenServices {
       }
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Removes the given access token from the cache, so it will be validated with the auth service
+   * again the next time it is used.
+   */
+  public void evict(String accessToken) {
+    tokens.invalidate(accessToken);
+  }
+
+  /**
+   * Removes all access tokens from the cache.
+   */
+  public void evictAll() {
+    tokens.invalidateAll();
+  }
+
+  private void count(String result) {
+    meterRegistry.counter(METRIC_NAME, "result", result).increment();
+  }
+
+  // the authentication manager sets request details on the returned object, so every request
+  // gets its own instance instead of the cached one
+  private static OAuth2Authentication copy(OAuth2Authentication authentication) {
+    return new OAuth2Authentication(
+        authentication.getOAuth2Request(), authentication.getUserAuthentication());
+  }
+
+  @AllArgsConstructor
+  private static final class CachedToken {
+    private final OAuth2Authentication authentication;
+    private final long validUntil;
+  }
+
+  private static final class ExpiringAuthentication extends OAuth2Authentication {
+    private static final long serialVersionUID = 1L;
+
+    private final Long expiresAt;
+
+    ExpiringAuthentication(OAuth2Request request, Authentication user, Long expiresAt) {
+      super(request, user);
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  @AllArgsConstructor
+  private static final class ExpiryAwareConverter implements AccessTokenConverter {
+    private final AccessTokenConverter delegate;
+
+    @Override
+    public Map<String, ?> convertAccessToken(OAuth2AccessToken token,
+        OAuth2Authentication authentication) {
+      return delegate.convertAccessToken(token, authentication);
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+      return delegate.extractAccessToken(value, map);
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+      OAuth2Authentication authentication = delegate.extractAuthentication(map);
+      Object exp = map.get(EXP);
+      Long expiresAt = exp instanceof Number
+          ? TimeUnit.SECONDS.toMillis(((Number) exp).longValue())
+          : null;
+
+      return new ExpiringAuthentication(authentication.getOAuth2Request(),
+          authentication.getUserAuthentication(), expiresAt);
+    }
+  }
+}
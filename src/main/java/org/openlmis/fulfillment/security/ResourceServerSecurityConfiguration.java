@@ -15,17 +15,22 @@
 
 package org.openlmis.fulfillment.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.time.Clock;
 import java.util.Arrays;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -36,8 +41,9 @@ import org.springframework.security.oauth2.provider.authentication.BearerTokenEx
 import org.springframework.security.oauth2.provider.authentication.TokenExtractor;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
-import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -54,6 +60,9 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
   @Value("${auth.resourceId}")
   private String resourceId;
 
+  @Autowired
+  private RestTemplateFactory restTemplateFactory;
+
   @Value("${cors.allowedOrigins}")
   private String[] allowedOrigins;
 
@@ -105,24 +114,48 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
   }
 
   /**
-   * RemoteTokenServices bean initializer.
+   * CustomTokenServices bean initializer.
    * @param checkTokenUrl url to check tokens against
    * @param clientId client's id
    * @param clientSecret client's secret
+   * @param invalidTokenRetryLimit how many times a rejected token is checked again
+   * @param tokenCacheMaxSize maximum number of cached tokens
+   * @param tokenCacheMaxTtl maximum time (in seconds) a validated token is cached
+   * @param invalidTokenCacheTtl time (in seconds) a rejected token is cached
    * @return token services
    */
   @Bean
   @Autowired
-  public RemoteTokenServices remoteTokenServices(
+  public CustomTokenServices remoteTokenServices(
       @Value("${auth.server.url}") String checkTokenUrl,
       @Value("${auth.server.clientId}") String clientId,
       @Value("${auth.server.clientSecret}") String clientSecret,
-      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit) {
-    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(invalidTokenRetryLimit);
+      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit,
+      @Value("${auth.server.tokenCache.maxSize}") long tokenCacheMaxSize,
+      @Value("${auth.server.tokenCache.maxTtl}") long tokenCacheMaxTtl,
+      @Value("${auth.server.tokenCache.invalidTokenTtl}") long invalidTokenCacheTtl,
+      Clock clock, MeterRegistry meterRegistry) {
+    final CustomTokenServices remoteTokenServices = new CustomTokenServices(
+        invalidTokenRetryLimit, tokenCacheMaxSize, tokenCacheMaxTtl, invalidTokenCacheTtl);
+    remoteTokenServices.setClock(clock);
+    remoteTokenServices.setMeterRegistry(meterRegistry);
     remoteTokenServices.setCheckTokenEndpointUrl(checkTokenUrl);
     remoteTokenServices.setClientId(clientId);
     remoteTokenServices.setClientSecret(clientSecret);
     remoteTokenServices.setAccessTokenConverter(accessTokenConverter());
+
+    RestTemplate restTemplate = restTemplateFactory.create("auth");
+    restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+      @Override
+      public void handleError(ClientHttpResponse response) throws IOException {
+        // same as in RemoteTokenServices: 400 is returned for invalid tokens
+        if (response.getRawStatusCode() != HttpStatus.BAD_REQUEST.value()) {
+          super.handleError(response);
+        }
+      }
+    });
+    remoteTokenServices.setRestTemplate(restTemplate);
+
     return remoteTokenServices;
   }
 
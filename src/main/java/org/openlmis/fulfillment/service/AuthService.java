@@ -17,23 +17,47 @@ package org.openlmis.fulfillment.service;
 
 import static org.openlmis.fulfillment.service.request.RequestHelper.createUri;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
 import org.apache.commons.codec.binary.Base64;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestOperations;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Obtains the service access token and keeps it until it expires. The token is refreshed in the
+ * background shortly before its expiry, and only one refresh runs at a time, so callers do not
+ * race to fetch a new token when the old one is about to expire or has been rejected.
+ */
 @Service
 public class AuthService {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(AuthService.class);
+
+  static final String METRIC_AGE = "auth.serviceToken.age";
+  static final String METRIC_REFRESHES = "auth.serviceToken.refreshes";
+
   private static final String ACCESS_TOKEN = "access_token";
+  private static final String EXPIRES_IN = "expires_in";
+
+  // a token obtained so recently is not discarded when a request with it is rejected, because
+  // the rejection most likely concerned the previous token
+  private static final long MIN_AGE_TO_DISCARD = TimeUnit.SECONDS.toMillis(5);
 
   @Value("${auth.server.clientId}")
   private String clientId;
@@ -44,15 +68,98 @@ public class AuthService {
   @Value("${auth.server.authorizationUrl}")
   private String authorizationUrl;
 
+  @Value("${auth.server.token.refreshMargin}")
+  private long refreshMargin;
+
+  @Autowired
+  private Clock clock = Clock.systemUTC();
+
+  @Autowired
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   private RestOperations restTemplate = new RestTemplate();
 
+  private final Object lock = new Object();
+  private volatile Token token;
+
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    this.restTemplate = restTemplateFactory.create("auth");
+  }
+
+  @PostConstruct
+  public void init() {
+    meterRegistry.gauge(METRIC_AGE, this, AuthService::getTokenAge);
+  }
+
   /**
-   * Retrieves access token from the auth service.
+   * Returns the current access token, retrieving it from the auth service if there is no token
+   * or the current one has expired.
    *
    * @return token.
    */
-  @Cacheable("token")
   public String obtainAccessToken() {
+    Token current = token;
+
+    if (null == current || clock.millis() >= current.expiresAt) {
+      current = refresh(current, null == current ? "initial" : "expired");
+    }
+
+    return current.value;
+  }
+
+  /**
+   * Discards the current access token after it has been rejected, so the next call of
+   * {@link #obtainAccessToken()} uses a new one. If several callers discard the same token, only
+   * one new token is retrieved.
+   */
+  public void clearTokenCache() {
+    Token current = token;
+
+    if (null != current && clock.millis() - current.obtainedAt >= MIN_AGE_TO_DISCARD) {
+      refresh(current, "rejected");
+    }
+  }
+
+  /**
+   * Retrieves a new access token in the background when the current one is about to expire.
+   */
+  @Scheduled(fixedDelayString = "${auth.server.token.refreshCheckRate}",
+      initialDelayString = "${auth.server.token.refreshCheckRate}")
+  public void refreshInBackground() {
+    Token current = token;
+
+    if (null == current || clock.millis() < current.refreshAt) {
+      return;
+    }
+
+    try {
+      refresh(current, "scheduled");
+    } catch (RuntimeException ex) {
+      XLOGGER.warn("Unable to refresh the access token, the current one will be used", ex);
+    }
+  }
+
+  private Token refresh(Token stale, String reason) {
+    synchronized (lock) {
+      Token current = token;
+
+      if (null != current && current != stale) {
+        // another caller has already replaced the token
+        return current;
+      }
+
+      Token updated = requestToken();
+      meterRegistry.counter(METRIC_REFRESHES, "reason", reason).increment();
+      XLOGGER.debug("Obtained new access token ({}), valid for {} ms",
+          reason, updated.expiresAt - updated.obtainedAt);
+
+      token = updated;
+      return updated;
+    }
+  }
+
+  private Token requestToken() {
     String plainCreds = clientId + ":" + clientSecret;
     byte[] plainCredsBytes = plainCreds.getBytes();
     byte[] base64CredsBytes = Base64.encodeBase64(plainCredsBytes);
@@ -67,15 +174,38 @@ public class AuthService {
         .init()
         .set("grant_type", "client_credentials");
 
+    long now = clock.millis();
     ResponseEntity<?> response = restTemplate.exchange(
         createUri(authorizationUrl, params), HttpMethod.POST, request, Object.class
     );
 
-    return ((Map<String, String>) response.getBody()).get(ACCESS_TOKEN);
+    Map<String, ?> body = (Map<String, ?>) response.getBody();
+    Object expiresIn = body.get(EXPIRES_IN);
+
+    if (!(expiresIn instanceof Number)) {
+      // without the expiry the token is used until it is rejected
+      return new Token((String) body.get(ACCESS_TOKEN), now, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    long lifetime = TimeUnit.SECONDS.toMillis(((Number) expiresIn).longValue());
+    long margin = Math.min(TimeUnit.SECONDS.toMillis(refreshMargin), lifetime / 2);
+
+    return new Token((String) body.get(ACCESS_TOKEN), now, now + lifetime - margin,
+        now + lifetime);
   }
 
-  @CacheEvict(cacheNames = "token", allEntries = true)
-  public void clearTokenCache() {
-    // Intentionally blank
+  private double getTokenAge() {
+    Token current = token;
+    return null == current
+        ? 0
+        : TimeUnit.MILLISECONDS.toSeconds(clock.millis() - current.obtainedAt);
+  }
+
+  @AllArgsConstructor
+  private static final class Token {
+    private final String value;
+    private final long obtainedAt;
+    private final long refreshAt;
+    private final long expiresAt;
   }
 }
@@ -17,18 +17,27 @@ package org.openlmis.fulfillment.service;
 
 import static org.openlmis.fulfillment.service.request.RequestHelper.createUri;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.lang.reflect.Array;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.openlmis.fulfillment.service.request.CallGuard;
+import org.openlmis.fulfillment.service.request.CallGuardFactory;
+import org.openlmis.fulfillment.service.request.CallNotPermittedException;
+import org.openlmis.fulfillment.service.request.RequestCoalescer;
+import org.openlmis.fulfillment.service.request.RequestExecutor;
 import org.openlmis.fulfillment.service.request.RequestHeaders;
 import org.openlmis.fulfillment.service.request.RequestHelper;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
 import org.openlmis.fulfillment.util.DynamicPageTypeReference;
 import org.openlmis.fulfillment.util.Merger;
 import org.slf4j.Logger;
@@ -51,14 +60,30 @@ public abstract class BaseCommunicationService<T> {
 
   protected RestOperations restTemplate = new RestTemplate();
 
+  private final RequestCoalescer coalescer = new RequestCoalescer();
+
+  private RequestExecutor requestExecutor = new RequestExecutor();
+
+  private CallGuard callGuard = new CallGuard("default", new SimpleMeterRegistry());
+
   @Autowired
   protected AuthService authService;
 
   @Value("${request.maxUrlLength}")
   private int maxUrlLength;
-  
+
+  @Value("${request.searchByPost.enabled}")
+  private boolean searchByPostEnabled;
+
   protected abstract String getServiceUrl();
 
+  /**
+   * Name of the downstream service, used to pick its http client settings.
+   */
+  protected String getServiceName() {
+    return "default";
+  }
+
   protected abstract String getUrl();
 
   protected abstract Class<T> getResultClass();
@@ -73,6 +98,39 @@ public abstract class BaseCommunicationService<T> {
     this.restTemplate = template;
   }
 
+  /**
+   * Replaces the default rest template with a pooled one configured for this service.
+   */
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    setRestTemplate(restTemplateFactory.create(getServiceName()));
+  }
+
+  @Autowired
+  public void setRequestExecutor(RequestExecutor requestExecutor) {
+    this.requestExecutor = requestExecutor;
+  }
+
+  /**
+   * Replaces the default pass-through call guard with the one of this service.
+   */
+  @Autowired
+  public void setCallGuardFactory(CallGuardFactory callGuardFactory) {
+    this.callGuard = callGuardFactory.get(getServiceName());
+  }
+
+  /**
+   * Resource url of the POST search endpoint that accepts the same parameters as the GET
+   * endpoint in the request body, for example {@code search}. If it is defined and the
+   * {@code request.searchByPost.enabled} flag is set, lookups that would exceed
+   * {@code request.maxUrlLength} are sent as a single POST request instead of being split.
+   *
+   * @return the resource url or {@code null} if the service does not support it.
+   */
+  protected String getSearchResourceUrl() {
+    return null;
+  }
+
   /**
    * Return all reference data T objects.
    *
@@ -89,8 +147,11 @@ public abstract class BaseCommunicationService<T> {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
     try {
-      ResponseEntity<T[]> responseEntity = runWithTokenRetry(
-          () -> doListRequest(url, uriParameters, payload, method, getArrayResultClass())
+      ResponseEntity<T[]> responseEntity = coalesce(
+          RequestCoalescer.key(method, url, uriParameters, payload, getArrayResultClass()),
+          () -> runWithTokenRetry(
+              () -> doListRequest(url, uriParameters, payload, method, getArrayResultClass())
+          )
       );
 
       return new ArrayList<>(Arrays.asList(responseEntity.getBody()));
@@ -100,13 +161,19 @@ public abstract class BaseCommunicationService<T> {
   }
 
   protected <P> ServiceResponse<List<P>> tryFindAll(String resourceUrl, Class<P[]> type,
-                                                    String etag) {
+                                                    String etag, boolean allowStale) {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
     try {
-      RequestHeaders headers = RequestHeaders.init().setIfNoneMatch(etag);
-      ResponseEntity<P[]> response = restTemplate.exchange(
-          url, HttpMethod.GET, RequestHelper.createEntity(null, addAuthHeader(headers)), type
+      ResponseEntity<P[]> response = coalesce(
+          RequestCoalescer.key(HttpMethod.GET, url, etag, type),
+          () -> {
+            RequestHeaders headers = RequestHeaders.init().setIfNoneMatch(etag);
+            return restTemplate.exchange(
+                url, HttpMethod.GET, RequestHelper.createEntity(null, addAuthHeader(headers)), type
+            );
+          },
+          allowStale
       );
 
       if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
@@ -120,6 +187,43 @@ public abstract class BaseCommunicationService<T> {
     }
   }
 
+  /**
+   * Return the content of a page retrieved with GET request, unless it has not been modified
+   * since the response with the given ETag was received.
+   *
+   * @param resourceUrl Endpoint url.
+   * @param parameters  Map of query parameters.
+   * @param type        type of the page content.
+   * @param etag        ETag of the previous response (can be {@code null}).
+   * @return the page content and headers; the content is {@code null} if it was not modified.
+   *     The last known page is never returned instead of an error: callers keep their own copy.
+   */
+  protected <P> ServiceResponse<List<P>> tryFindPage(String resourceUrl,
+      RequestParameters parameters, Class<P> type, String etag) {
+    String url = getServiceUrl() + getUrl() + resourceUrl;
+
+    try {
+      ResponseEntity<PageDto<P>> response = coalesce(
+          RequestCoalescer.key(HttpMethod.GET, url, parameters, etag, type),
+          () -> runWithTokenRetry(() -> restTemplate.exchange(
+              createUri(url, parameters), HttpMethod.GET,
+              RequestHelper.createEntity(null, addAuthHeader(RequestHeaders.init()
+                  .setIfNoneMatch(etag))),
+              new DynamicPageTypeReference<>(type))),
+          false
+      );
+
+      if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+        return new ServiceResponse<>(null, response.getHeaders(), false);
+      } else {
+        return new ServiceResponse<>(response.getBody().getContent(), response.getHeaders(),
+            true);
+      }
+    } catch (HttpStatusCodeException ex) {
+      throw buildDataRetrievalException(ex);
+    }
+  }
+
   /**
    * Return all reference data T objects for Page that need to be retrieved with GET request.
    *
@@ -127,6 +231,20 @@ public abstract class BaseCommunicationService<T> {
    * @return Page of reference data T objects.
    */
   protected Page<T> getPage(RequestParameters parameters) {
+    String searchResourceUrl = getSearchResourceUrl();
+
+    if (searchByPostEnabled && null != searchResourceUrl && requiresSplit(parameters)) {
+      Map<String, Object> payload = new HashMap<>();
+      int size = 0;
+
+      for (Map.Entry<String, List<String>> entry : toEntries(parameters)) {
+        payload.put(entry.getKey(), entry.getValue());
+        size = Math.max(size, entry.getValue().size());
+      }
+
+      return getPage(searchResourceUrl, RequestParameters.init().set("size", size), payload);
+    }
+
     return getPage("", parameters, null, HttpMethod.GET, getResultClass());
   }
 
@@ -147,8 +265,9 @@ public abstract class BaseCommunicationService<T> {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
     try {
-      ResponseEntity<PageDto<P>> response = runWithTokenRetry(
-          () -> doPageRequest(url, parameters, payload, method, type)
+      ResponseEntity<PageDto<P>> response = coalesce(
+          RequestCoalescer.key(method, url, parameters, payload, type),
+          () -> runWithTokenRetry(() -> doPageRequest(url, parameters, payload, method, type))
       );
       return response.getBody();
 
@@ -162,16 +281,22 @@ public abstract class BaseCommunicationService<T> {
       Class<E[]> type) {
     HttpEntity<Object> entity = RequestHelper
         .createEntity(payload, RequestHeaders.init().setAuth(authService.obtainAccessToken()));
-    List<E[]> arrays = new ArrayList<>();
-
-    for (URI uri : RequestHelper.splitRequest(url, parameters, maxUrlLength)) {
-      arrays.add(restTemplate.exchange(uri, method, entity, type).getBody());
-    }
-
-    E[] body = Merger
-        .ofArrays(arrays)
-        .withDefaultValue(() -> (E[]) Array.newInstance(type.getComponentType(), 0))
-        .merge();
+    URI[] uris = RequestHelper.splitRequest(url, parameters, maxUrlLength);
+    Merger<E[]> merger = Merger
+        .<E>ofArrays(uris.length)
+        .withDefaultValue(() -> (E[]) Array.newInstance(type.getComponentType(), 0));
+
+    requestExecutor.invokeAll(
+        Stream
+            .of(uris)
+            .map(uri -> (Supplier<E[]>) () -> restTemplate
+                .exchange(uri, method, entity, type)
+                .getBody())
+            .collect(Collectors.toList()),
+        merger::add
+    );
+
+    E[] body = merger.merge();
 
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
@@ -189,18 +314,35 @@ public abstract class BaseCommunicationService<T> {
         .createEntity(payload, RequestHeaders.init().setAuth(authService.obtainAccessToken()));
     ParameterizedTypeReference<PageDto<E>> parameterizedType =
         new DynamicPageTypeReference<>(type);
-    List<PageDto<E>> pages = new ArrayList<>();
+    URI[] uris = RequestHelper.splitRequest(url, parameters, maxUrlLength);
+    Merger<PageDto<E>> merger = Merger
+        .<E>ofPages(uris.length)
+        .withDefaultValue(PageDto::new);
+
+    requestExecutor.invokeAll(
+        Stream
+            .of(uris)
+            .map(uri -> (Supplier<PageDto<E>>) () -> restTemplate
+                .exchange(uri, method, entity, parameterizedType)
+                .getBody())
+            .collect(Collectors.toList()),
+        merger::add
+    );
+
+    PageDto<E> body = merger.merge();
 
-    for (URI uri : RequestHelper.splitRequest(url, parameters, maxUrlLength)) {
-      pages.add(restTemplate.exchange(uri, method, entity, parameterizedType).getBody());
-    }
+    return new ResponseEntity<>(body, HttpStatus.OK);
+  }
 
-    PageDto<E> body = Merger
-        .ofPages(pages)
-        .withDefaultValue(PageDto::new)
-        .merge();
+  private boolean requiresSplit(RequestParameters parameters) {
+    String url = getServiceUrl() + getUrl();
+    return RequestHelper.splitRequest(url, parameters, maxUrlLength).length > 1;
+  }
 
-    return new ResponseEntity<>(body, HttpStatus.OK);
+  private static List<Map.Entry<String, List<String>>> toEntries(RequestParameters parameters) {
+    List<Map.Entry<String, List<String>>> entries = new ArrayList<>();
+    parameters.forEach(entries::add);
+    return entries;
   }
 
   protected <P> ResponseEntity<P> runWithTokenRetry(HttpTask<P> task) {
@@ -216,6 +358,39 @@ public abstract class BaseCommunicationService<T> {
     }
   }
 
+  /**
+   * Executes the given read request unless an identical one is already in flight, in which case
+   * its result is shared. Only use it for requests without side effects. The request goes
+   * through the {@link CallGuard} of this service, so while the downstream service is
+   * unavailable the last known result of the same request is returned, if there is one.
+   *
+   * @param key     the request key, see {@link RequestCoalescer#key(Object...)}.
+   * @param request the request to execute.
+   * @return the result of the request.
+   */
+  protected <R> R coalesce(List<Object> key, Supplier<R> request) {
+    return coalesce(key, request, true);
+  }
+
+  /**
+   * Executes the given read request like {@link #coalesce(List, Supplier)}. If
+   * {@code allowStale} is {@code false}, the last known result is never returned instead of an
+   * error; use it for requests that authorize the user and for large results that the caller
+   * keeps a copy of anyway.
+   */
+  protected <R> R coalesce(List<Object> key, Supplier<R> request, boolean allowStale) {
+    return coalescer.execute(key, () -> {
+      try {
+        return callGuard.execute(key, request, allowStale);
+      } catch (CallNotPermittedException ex) {
+        DataRetrievalException exception = new DataRetrievalException(
+            getResultClass().getSimpleName(), HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        exception.initCause(ex);
+        throw exception;
+      }
+    });
+  }
+
   @FunctionalInterface
   protected interface HttpTask<T> {
 
@@ -239,6 +414,10 @@ public abstract class BaseCommunicationService<T> {
     return RequestHelper.createEntity(createHeadersWithAuth());
   }
 
+  protected <E> HttpEntity<E> createEntity(RequestHeaders headers) {
+    return RequestHelper.createEntity(addAuthHeader(headers));
+  }
+
   private RequestHeaders addAuthHeader(RequestHeaders headers) {
     return null == headers
         ? RequestHeaders.init().setAuth(authService.obtainAccessToken())
@@ -0,0 +1,55 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.ORDERED;
+import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.fulfillment.domain.OrderStatus;
+
+/**
+ * Describes how orders of a program are fulfilled by a supplying facility, see
+ * {@link FulfillmentRoutingResolver}.
+ */
+@Getter
+@AllArgsConstructor
+public enum FulfillmentRoute {
+  /**
+   * The supplying facility fulfills orders of the program locally.
+   */
+  LOCAL_FULFILL(ORDERED),
+
+  /**
+   * Order files are sent to the FTP server of the supplying facility.
+   */
+  FTP(IN_ROUTE),
+
+  /**
+   * Order files are stored in a local directory.
+   */
+  LOCAL_FILE(READY_TO_PACK),
+
+  /**
+   * There is no way to transfer the order to the supplying facility.
+   */
+  FAILED(TRANSFER_FAILED);
+
+  private final OrderStatus orderStatus;
+}
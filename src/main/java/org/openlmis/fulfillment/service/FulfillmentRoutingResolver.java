@@ -0,0 +1,152 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.domain.TransferType;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the {@link FulfillmentRoute} of orders with the given supplying facility and program.
+ * Resolving a route needs the program and the supplying facility (with its supported programs)
+ * from the reference data service and the order transfer properties of the facility, so resolved
+ * routes are cached for {@code fulfillment.routing.cache.ttl} seconds. Routes of a facility are
+ * evicted when its transfer properties are changed.
+ */
+@Component
+public class FulfillmentRoutingResolver {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      FulfillmentRoutingResolver.class);
+
+  private static final long MAX_SIZE = 10000;
+
+  @Autowired
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Autowired
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Value("${fulfillment.routing.cache.ttl}")
+  private long ttl;
+
+  private Cache<Pair<UUID, UUID>, FulfillmentRoute> routes;
+
+  /**
+   * Creates the route cache. Routes are not cached if the time to live is zero.
+   */
+  @PostConstruct
+  public void init() {
+    routes = ttl > 0
+        ? CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .expireAfterWrite(ttl, TimeUnit.SECONDS)
+            .build()
+        : null;
+  }
+
+  /**
+   * Returns the route of orders with the given supplying facility and program.
+   *
+   * @param supplyingFacilityId id of the supplying facility, can be {@code null}.
+   * @param programId           id of the program.
+   * @return the fulfillment route.
+   */
+  public FulfillmentRoute resolve(UUID supplyingFacilityId, UUID programId) {
+    if (null == supplyingFacilityId) {
+      return FulfillmentRoute.FAILED;
+    }
+
+    Pair<UUID, UUID> key = Pair.of(supplyingFacilityId, programId);
+    FulfillmentRoute route = null == routes ? null : routes.getIfPresent(key);
+
+    if (null == route) {
+      route = load(supplyingFacilityId, programId);
+      XLOGGER.debug("Resolved route {} for facility {} and program {}",
+          route, supplyingFacilityId, programId);
+
+      if (null != routes) {
+        routes.put(key, route);
+      }
+    }
+
+    return route;
+  }
+
+  /**
+   * Removes cached routes of the given supplying facility.
+   */
+  public void evict(UUID supplyingFacilityId) {
+    if (null != routes) {
+      routes.asMap().keySet().removeIf(key -> key.getLeft().equals(supplyingFacilityId));
+    }
+  }
+
+  private FulfillmentRoute load(UUID supplyingFacilityId, UUID programId) {
+    if (isSupportLocallyFulfilled(supplyingFacilityId, programId)) {
+      return FulfillmentRoute.LOCAL_FULFILL;
+    }
+
+    TransferProperties properties = transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(supplyingFacilityId, TransferType.ORDER);
+
+    if (null == properties) {
+      return FulfillmentRoute.FAILED;
+    }
+
+    return properties instanceof FtpTransferProperties
+        ? FulfillmentRoute.FTP
+        : FulfillmentRoute.LOCAL_FILE;
+  }
+
+  private boolean isSupportLocallyFulfilled(UUID supplyingFacilityId, UUID programId) {
+    ProgramDto program = programReferenceDataService.findOne(programId);
+    FacilityDto facility = facilityReferenceDataService.findOne(supplyingFacilityId);
+    List<ProgramDto> supportedPrograms = null == facility
+        ? null
+        : facility.getSupportedPrograms();
+
+    if (null == program || null == supportedPrograms) {
+      return false;
+    }
+
+    return supportedPrograms
+        .stream()
+        .filter(supported -> program.getCode().equals(supported.getCode()))
+        .findFirst()
+        .map(ProgramDto::isSupportLocallyFulfilled)
+        .orElse(false);
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.openlmis.fulfillment.service.request.RequestHeaders;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
 import org.openlmis.fulfillment.web.ValidationException;
 import org.openlmis.fulfillment.web.shipment.ShipmentDto;
 import org.openlmis.fulfillment.web.util.ObjectReferenceDto;
@@ -67,6 +68,11 @@ public class ObjReferenceExpander {
 
   private RestOperations restTemplate = new RestTemplate();
 
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    this.restTemplate = restTemplateFactory.create("fulfillment");
+  }
+
   /**
    * Create an instance of the {@link BeanUtilsBean} and register custom converters with it.
    */
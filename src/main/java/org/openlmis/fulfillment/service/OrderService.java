@@ -16,6 +16,7 @@
 package org.openlmis.fulfillment.service;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 import static org.apache.commons.collections.CollectionUtils.isEmpty;
 import static org.openlmis.fulfillment.domain.OrderStatus.CREATING;
@@ -24,7 +25,6 @@ import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
 import static org.openlmis.fulfillment.domain.OrderStatus.ORDERED;
 import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
 import static org.openlmis.fulfillment.domain.OrderStatus.SHIPPED;
-import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_UPDATE_INVALID_STATUS;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_EDIT;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_VIEW;
@@ -33,22 +33,29 @@ import static org.openlmis.fulfillment.service.PermissionService.PODS_VIEW;
 import static org.openlmis.fulfillment.service.PermissionService.SHIPMENTS_EDIT;
 import static org.openlmis.fulfillment.service.PermissionService.SHIPMENTS_VIEW;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import org.javers.common.collections.Sets;
-import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
 import org.openlmis.fulfillment.domain.OrderStatsData;
 import org.openlmis.fulfillment.domain.OrderStatus;
-import org.openlmis.fulfillment.domain.TransferProperties;
-import org.openlmis.fulfillment.domain.TransferType;
 import org.openlmis.fulfillment.domain.UpdateDetails;
 import org.openlmis.fulfillment.extension.ExtensionManager;
 import org.openlmis.fulfillment.extension.point.ExtensionPointId;
@@ -56,8 +63,6 @@ import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
 import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
-import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
@@ -65,7 +70,11 @@ import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.openlmis.fulfillment.util.DateHelper;
+import org.openlmis.fulfillment.util.KeysetPage;
 import org.openlmis.fulfillment.web.NumberOfOrdersData;
 import org.openlmis.fulfillment.web.OrderNotFoundException;
 import org.openlmis.fulfillment.web.ValidationException;
@@ -73,8 +82,8 @@ import org.openlmis.fulfillment.web.util.OrderDto;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -83,11 +92,14 @@ public class OrderService {
 
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderService.class);
 
-  @Autowired
-  private OrderRepository orderRepository;
+  private static final Set<OrderStatus> ORDERS_TO_BE_EXECUTED = EnumSet.of(FULFILLING, ORDERED);
+  private static final Set<OrderStatus> ORDERS_TO_BE_RECEIVED =
+      EnumSet.of(READY_TO_PACK, SHIPPED, IN_ROUTE);
+  private static final long ORDERS_DATA_CACHE_MAX_SIZE = 10_000;
+  private static final long REQUESTING_FACILITIES_CACHE_MAX_SIZE = 1_000;
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private OrderRepository orderRepository;
 
   @Autowired
   private PeriodReferenceDataService periodService;
@@ -96,7 +108,7 @@ public class OrderService {
   private ProgramReferenceDataService programReferenceDataService;
 
   @Autowired
-  private FacilityReferenceDataService facilityReferenceDataService;
+  private FulfillmentRoutingResolver fulfillmentRoutingResolver;
 
   @Autowired
   private OrderNumberConfigurationRepository orderNumberConfigurationRepository;
@@ -116,6 +128,39 @@ public class OrderService {
   @PersistenceContext
   private EntityManager entityManager;
 
+  @Value("${order.numberOfOrdersData.cacheTtl}")
+  private long ordersDataTtl;
+
+  @Value("${order.requestingFacilities.cacheTtl}")
+  private long requestingFacilitiesTtl;
+
+  @Value("${order.stream.chunkSize}")
+  private int streamChunkSize;
+
+  private Cache<HashCode, NumberOfOrdersData> ordersDataCache;
+
+  private Cache<Set<UUID>, List<UUID>> requestingFacilitiesCache;
+
+  /**
+   * Creates the caches for the number of orders data and for the requesting facilities. The data
+   * is not cached if the given time to live is zero.
+   */
+  @PostConstruct
+  public void init() {
+    ordersDataCache = ordersDataTtl > 0
+        ? CacheBuilder.newBuilder()
+            .maximumSize(ORDERS_DATA_CACHE_MAX_SIZE)
+            .expireAfterWrite(ordersDataTtl, TimeUnit.SECONDS)
+            .build()
+        : null;
+    requestingFacilitiesCache = requestingFacilitiesTtl > 0
+        ? CacheBuilder.newBuilder()
+            .maximumSize(REQUESTING_FACILITIES_CACHE_MAX_SIZE)
+            .expireAfterWrite(requestingFacilitiesTtl, TimeUnit.SECONDS)
+            .build()
+        : null;
+  }
+
   /**
    * Creates an order.
    *
@@ -189,10 +234,146 @@ public class OrderService {
    * @return ist of Orders with matched parameters.
    */
   public Page<Order> searchOrders(OrderSearchParams params, Pageable pageable) {
-    XLOGGER.debug("order service search startDate {}", params.getPeriodStartDate());
-    XLOGGER.debug("order service search endDate {}", params.getPeriodEndDate());
+    return searchOrders(params, pageable, CountStrategy.EXACT);
+  }
+
+  /**
+   * Finds orders matching all of provided parameters. The total number of orders is computed
+   * with the given strategy.
+   *
+   * @param params        provided parameters.
+   * @param pageable      pagination parameters.
+   * @param countStrategy how the total number of orders should be computed.
+   * @return page of Orders with matched parameters.
+   */
+  public Page<Order> searchOrders(OrderSearchParams params, Pageable pageable,
+      CountStrategy countStrategy) {
+    return search(params, pageable, countStrategy, false);
+  }
+
+  /**
+   * Finds summaries of orders matching all of provided parameters. A summary contains only the
+   * scalar columns of the order (no line items, status messages and status changes) and is not
+   * managed by the persistence context, so it should be used only to build basic order DTOs.
+   *
+   * @param params        provided parameters.
+   * @param pageable      pagination parameters.
+   * @param countStrategy how the total number of orders should be computed.
+   * @return page of Order summaries with matched parameters.
+   */
+  public Page<Order> searchOrderSummaries(OrderSearchParams params, Pageable pageable,
+      CountStrategy countStrategy) {
+    return search(params, pageable, countStrategy, true);
+  }
+
+  /**
+   * Passes summaries of all orders matching the provided parameters to the given consumer, in
+   * chunks of {@code order.stream.chunkSize} orders. Orders are sorted by the created date and id
+   * (both descending). The whole result is never loaded into memory at once.
+   *
+   * @param params   provided parameters.
+   * @param consumer receives chunks of Order summaries.
+   */
+  public void streamOrderSummaries(OrderSearchParams params, Consumer<List<Order>> consumer) {
+    UserDto user = authenticationHelper.getCurrentUser();
+    Set<UUID> processingPeriodIds = findProcessingPeriodIds(params);
+
+    if (null != processingPeriodIds && processingPeriodIds.isEmpty()) {
+      return;
+    }
+
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+
+      orderRepository.streamOrderSummaries(params, processingPeriodIds, streamChunkSize,
+          consumer,
+          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
+          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW));
+    } else {
+      orderRepository.streamOrderSummaries(params, processingPeriodIds, streamChunkSize,
+          consumer);
+    }
+  }
+
+  private Page<Order> search(OrderSearchParams params, Pageable pageable,
+      CountStrategy countStrategy, boolean summaries) {
+    UserDto user = authenticationHelper.getCurrentUser();
+    Set<UUID> processingPeriodIds = findProcessingPeriodIds(params);
 
+    if (null != processingPeriodIds && processingPeriodIds.isEmpty()) {
+      return new CountedPage<>(emptyList(), pageable, 0, countStrategy);
+    }
+
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+      Set<UUID> supplyingFacilities = handler
+          .getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW);
+      Set<UUID> requestingFacilities = handler.getFacilityIds(PODS_MANAGE, PODS_VIEW);
+
+      return summaries
+          ? orderRepository.searchOrderSummaries(params, processingPeriodIds, pageable,
+              countStrategy, supplyingFacilities, requestingFacilities)
+          : orderRepository.searchOrders(params, processingPeriodIds, pageable,
+              countStrategy, supplyingFacilities, requestingFacilities);
+    }
+
+    return summaries
+        ? orderRepository.searchOrderSummaries(params, processingPeriodIds, pageable,
+            countStrategy)
+        : orderRepository.searchOrders(params, processingPeriodIds, pageable, countStrategy);
+  }
+
+  /**
+   * Finds orders matching all of provided parameters, using keyset pagination. Orders are sorted
+   * by the created date and id (both descending) and the total number of orders is not counted.
+   *
+   * @param params            provided parameters.
+   * @param continuationToken token returned with the previous page or {@code null}.
+   * @param size              page size.
+   * @return page of Orders with matched parameters.
+   */
+  public KeysetPage<Order> seekOrders(OrderSearchParams params, String continuationToken,
+      int size) {
+    ContinuationToken after = ContinuationToken.decode(continuationToken);
     UserDto user = authenticationHelper.getCurrentUser();
+    Set<UUID> processingPeriodIds = findProcessingPeriodIds(params);
+
+    if (null != processingPeriodIds && processingPeriodIds.isEmpty()) {
+      return new KeysetPage<>(emptyList(), size, null);
+    }
+
+    // one more order is retrieved to know if there is a next page
+    int limit = size == Integer.MAX_VALUE ? size : size + 1;
+    List<Order> orders;
+
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+
+      orders = orderRepository.seekOrders(
+          params, processingPeriodIds, after, limit,
+          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
+          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
+      );
+    } else {
+      orders = orderRepository.seekOrders(params, processingPeriodIds, after, limit);
+    }
+
+    if (orders.size() <= size) {
+      return new KeysetPage<>(orders, size, null);
+    }
+
+    List<Order> content = orders.subList(0, size);
+    return new KeysetPage<>(content, size,
+        ContinuationToken.after(content.get(size - 1)).encode());
+  }
+
+  /**
+   * Returns ids of processing periods matching the given parameters, {@code null} if the
+   * parameters do not limit processing periods or an empty set if no period matches them.
+   */
+  private Set<UUID> findProcessingPeriodIds(OrderSearchParams params) {
+    XLOGGER.debug("order service search startDate {}", params.getPeriodStartDate());
+    XLOGGER.debug("order service search endDate {}", params.getPeriodEndDate());
 
     Set<UUID> processingPeriodIds = null;
 
@@ -203,7 +384,7 @@ public class OrderService {
           .map(ProcessingPeriodDto::getId)
           .collect(Collectors.toSet());
       if (isEmpty(processingPeriodIds)) {
-        return new PageImpl<>(emptyList(), pageable, 0);
+        return emptySet();
       }
     }
 
@@ -213,26 +394,18 @@ public class OrderService {
         processingPeriodIds = singleton(params.getProcessingPeriodId());
         XLOGGER.debug("order service search period ids {}", processingPeriodIds);
       } else {
-        return new PageImpl<>(emptyList(), pageable, 0);
+        return emptySet();
       }
     }
 
-    if (null != user) {
-      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
-
-      return orderRepository.searchOrders(
-          params, processingPeriodIds, pageable,
-          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
-          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
-      );
-
-    } else {
-      return orderRepository.searchOrders(params, processingPeriodIds, pageable);
-    }
+    return processingPeriodIds;
   }
 
   /**
-   * Finds information about the number of orders to be executed and received.
+   * Finds information about the number of orders to be executed and received. Both numbers are
+   * counted with a single query and cached for {@code order.numberOfOrdersData.cacheTtl} seconds
+   * per set of facilities available to the user. The cache is keyed by a digest of the facility
+   * sets, so users with thousands of facilities do not make the cache keep the whole sets.
    *
    * @return Map containing orders data.
    */
@@ -240,22 +413,53 @@ public class OrderService {
     UserDto user = authenticationHelper.getCurrentUser();
     PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
 
-    NumberOfOrdersData ordersData = new NumberOfOrdersData();
-    OrderSearchParams params = new OrderSearchParams();
+    Set<UUID> supplyingFacilities = handler
+        .getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW);
+    Set<UUID> requestingFacilities = handler.getFacilityIds(PODS_MANAGE, PODS_VIEW);
 
-    params.setStatus(Sets.asSet(FULFILLING.name(), ORDERED.name()));
-    ordersData.setOrdersToBeExecuted(orderRepository.countOrders(params, null,
-        handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
-        handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)));
+    if (null == ordersDataCache) {
+      return countOrdersData(supplyingFacilities, requestingFacilities);
+    }
+
+    HashCode key = digest(supplyingFacilities, requestingFacilities);
+    NumberOfOrdersData ordersData = ordersDataCache.getIfPresent(key);
 
-    params.setStatus(Sets.asSet(READY_TO_PACK.name(), SHIPPED.name(), IN_ROUTE.name()));
-    ordersData.setOrdersToBeReceived(orderRepository.countOrders(params, null,
-        handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
-        handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)));
+    if (null == ordersData) {
+      ordersData = countOrdersData(supplyingFacilities, requestingFacilities);
+      ordersDataCache.put(key, ordersData);
+    }
 
     return ordersData;
   }
 
+  /**
+   * Retrieves the distinct UUIDs of the requesting facilities of orders supplied by the given
+   * facilities (or by any facility if none are given). The result is cached for
+   * {@code order.requestingFacilities.cacheTtl} seconds.
+   *
+   * @param supplyingFacilityIds ids of supplying facilities, can be null or empty.
+   * @return List of requesting facility ids.
+   */
+  public List<UUID> getRequestingFacilities(List<UUID> supplyingFacilityIds) {
+    Set<UUID> key = isEmpty(supplyingFacilityIds)
+        ? emptySet()
+        : new HashSet<>(supplyingFacilityIds);
+
+    List<UUID> requestingFacilities = null == requestingFacilitiesCache
+        ? null
+        : requestingFacilitiesCache.getIfPresent(key);
+
+    if (null == requestingFacilities) {
+      requestingFacilities = orderRepository.getRequestingFacilities(supplyingFacilityIds);
+
+      if (null != requestingFacilitiesCache) {
+        requestingFacilitiesCache.put(key, requestingFacilities);
+      }
+    }
+
+    return requestingFacilities;
+  }
+
   /**
    * Saves a new instance of order. The method also stores the order in local directory and try to
    * send (if there are FTP transfer properties) to an FTP server. Also, the status field in the
@@ -287,12 +491,10 @@ public class OrderService {
    * @return OrderStatsData object.
    */
   public OrderStatsData getStatusesStatsData(UUID facilityId) {
+    Map<OrderStatus, Long> counts = orderRepository.countStatuses(facilityId);
     Map<String, Long> statusesStats = new HashMap<>();
     for (OrderStatus status : OrderStatus.values()) {
-      statusesStats.put(
-          status.name(),
-          orderRepository.countByFacilityIdAndStatus(facilityId, status)
-      );
+      statusesStats.put(status.name(), counts.getOrDefault(status, 0L));
     }
     OrderStatsData orderStatsData = new OrderStatsData();
     orderStatsData.setFacilityId(facilityId);
@@ -317,38 +519,42 @@ public class OrderService {
   }
 
   private void setOrderStatus(Order order) {
-    // Is the order associated with a supply line?
-    if (null != order.getSupplyingFacilityId()) {
-      // Is the supplying facility have the FTP configuration?
-
-      ProgramDto program = programReferenceDataService.findOne(order.getProgramId());
-      Optional<ProgramDto> supportedProgram = facilityReferenceDataService
-          .findOne(order.getSupplyingFacilityId())
-          .getSupportedPrograms()
-          .stream()
-          .filter(p -> program.getCode().equals(p.getCode()))
-          .findFirst();
+    FulfillmentRoute route = fulfillmentRoutingResolver
+        .resolve(order.getSupplyingFacilityId(), order.getProgramId());
 
-      if (supportedProgram.isPresent() && supportedProgram.get().isSupportLocallyFulfilled()) {
-        order.prepareToLocalFulfill();
-      } else {
-        TransferProperties properties = transferPropertiesRepository
-            .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-                TransferType.ORDER);
-
-        if (null == properties) {
-          // Set order status as TRANSFER_FAILED
-          order.setStatus(TRANSFER_FAILED);
-        } else {
-          // Is the export-orders flag enabled on the supply line associated with the order
-          // yes -> Set order status as IN_ROUTE
-          // no  -> Set order status as READY_TO_PACK
-          order.setStatus(properties instanceof FtpTransferProperties ? IN_ROUTE : READY_TO_PACK);
-        }
-      }
+    if (route == FulfillmentRoute.LOCAL_FULFILL) {
+      order.prepareToLocalFulfill();
     } else {
-      // Set order status as TRANSFER_FAILED
-      order.setStatus(TRANSFER_FAILED);
+      order.setStatus(route.getOrderStatus());
+    }
+  }
+
+  // each set is prefixed with its size, so the same ids split differently between the supplying
+  // and the requesting facilities give a different digest
+  private static HashCode digest(Set<UUID> supplyingFacilities,
+      Set<UUID> requestingFacilities) {
+    Hasher hasher = Hashing.sha256().newHasher();
+
+    for (Set<UUID> facilities : Arrays.asList(supplyingFacilities, requestingFacilities)) {
+      hasher.putInt(facilities.size());
+      facilities.stream().sorted().forEach(id -> hasher
+          .putLong(id.getMostSignificantBits())
+          .putLong(id.getLeastSignificantBits()));
     }
+
+    return hasher.hash();
+  }
+
+  private NumberOfOrdersData countOrdersData(Set<UUID> supplyingFacilities,
+      Set<UUID> requestingFacilities) {
+    List<Long> numbers = orderRepository.countOrdersByStatuses(
+        Arrays.asList(ORDERS_TO_BE_EXECUTED, ORDERS_TO_BE_RECEIVED),
+        supplyingFacilities, requestingFacilities);
+
+    NumberOfOrdersData ordersData = new NumberOfOrdersData();
+    ordersData.setOrdersToBeExecuted(numbers.get(0));
+    ordersData.setOrdersToBeReceived(numbers.get(1));
+
+    return ordersData;
   }
 }
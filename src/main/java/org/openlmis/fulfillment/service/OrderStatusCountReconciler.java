@@ -0,0 +1,111 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains the order status counts. Database triggers append a delta for every order change,
+ * which are frequently folded into the counts, so the deltas table stays small. The counts are
+ * also periodically compared with the orders table and fixed if they are different. They should
+ * only drift after changes that bypass the triggers (for example a truncated or manually restored
+ * table).
+ */
+@Component
+public class OrderStatusCountReconciler {
+  private static final XLogger XLOGGER =
+      XLoggerFactory.getXLogger(OrderStatusCountReconciler.class);
+
+  static final String METRIC_FIXED = "order.statusCounts.fixed";
+  static final String METRIC_FOLDED = "order.statusCounts.folded";
+  static final int FOLD_BATCH_SIZE = 10_000;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  /**
+   * Folds all order status count deltas into the counts, in batches of
+   * {@value #FOLD_BATCH_SIZE}, each in its own transaction.
+   *
+   * @return number of folded deltas.
+   */
+  public int fold() {
+    int total = 0;
+    int folded;
+
+    do {
+      folded = orderRepository.foldStatusCountDeltas(FOLD_BATCH_SIZE);
+      total += folded;
+    } while (folded == FOLD_BATCH_SIZE);
+
+    meterRegistry.counter(METRIC_FOLDED).increment(total);
+    XLOGGER.debug("Folded {} order status count deltas", total);
+
+    return total;
+  }
+
+  /**
+   * Folds the order status count deltas on the configured schedule.
+   */
+  @Scheduled(fixedDelayString = "${order.statusCounts.foldDelay}")
+  public void foldInBackground() {
+    try {
+      fold();
+    } catch (RuntimeException ex) {
+      XLOGGER.warn("Unable to fold order status count deltas", ex);
+    }
+  }
+
+  /**
+   * Reconciles the order status counts.
+   *
+   * @return number of fixed counts.
+   */
+  public int reconcile() {
+    int fixed = orderRepository.reconcileStatusCounts();
+    meterRegistry.counter(METRIC_FIXED).increment(fixed);
+
+    if (fixed > 0) {
+      XLOGGER.warn("Fixed {} order status counts that did not match the orders", fixed);
+    } else {
+      XLOGGER.info("Order status counts match the orders");
+    }
+
+    return fixed;
+  }
+
+  /**
+   * Reconciles the order status counts on the configured schedule.
+   */
+  @Scheduled(cron = "${order.statusCounts.reconcileCron}")
+  public void reconcileInBackground() {
+    try {
+      reconcile();
+    } catch (RuntimeException ex) {
+      XLOGGER.warn("Unable to reconcile order status counts", ex);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A single permission to check with {@link PermissionService#hasPermissions}: a right for either
+ * a facility and program (supervision rights) or a warehouse (fulfillment rights).
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PermissionCheck {
+  private final String rightName;
+  private final UUID facilityId;
+  private final UUID programId;
+  private final UUID warehouseId;
+
+  public static PermissionCheck of(String rightName, UUID facilityId, UUID programId) {
+    return new PermissionCheck(rightName, facilityId, programId, null);
+  }
+
+  public static PermissionCheck ofWarehouse(String rightName, UUID warehouseId) {
+    return new PermissionCheck(rightName, null, null, warehouseId);
+  }
+}
@@ -18,8 +18,15 @@ package org.openlmis.fulfillment.service;
 import static org.apache.commons.lang.BooleanUtils.isTrue;
 import static org.apache.commons.lang3.StringUtils.startsWith;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_NOT_FOUND;
+import static org.openlmis.fulfillment.service.PermissionCheck.ofWarehouse;
 
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import javax.validation.constraints.NotNull;
 import org.openlmis.fulfillment.domain.Order;
@@ -38,15 +45,20 @@ import org.openlmis.fulfillment.web.shipment.ShipmentDto;
 import org.openlmis.fulfillment.web.shipmentdraft.ShipmentDraftDto;
 import org.openlmis.fulfillment.web.util.ObjectReferenceDto;
 import org.openlmis.fulfillment.web.util.OrderDto;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 
 @Service
 @SuppressWarnings("PMD.TooManyMethods")
 public class PermissionService {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(PermissionService.class);
+
   static final String ORDERS_TRANSFER = "ORDERS_TRANSFER";
   public static final String PODS_MANAGE = "PODS_MANAGE";
   public static final String PODS_VIEW = "PODS_VIEW";
@@ -146,6 +158,25 @@ public class PermissionService {
     checkPermission(ORDERS_EDIT, order.getSupplyingFacility().getId());
   }
 
+  /**
+   * Checks if user has permission to edit all the given orders. The rights for the supplying
+   * facilities of all orders are checked at once, so none of the orders has to be processed
+   * before a missing right is found.
+   *
+   * @param orders orders to be checked
+   */
+  public void canEditOrders(Collection<OrderDto> orders) {
+    List<PermissionCheck> checks = new ArrayList<>(orders.size());
+
+    for (OrderDto order : orders) {
+      checks.add(ofWarehouse(ORDERS_EDIT, order.getSupplyingFacility().getId()));
+    }
+
+    if (hasPermissions(checks).containsValue(false)) {
+      throw new MissingPermissionException(ORDERS_EDIT);
+    }
+  }
+
   public void canCreateOrder(OrderDto order) {
     checkPermission(ORDER_CREATE, order.getReceivingFacility().getId());
   }
@@ -155,19 +186,75 @@ public class PermissionService {
   }
 
   /**
-   * Delete orders.
+   * Delete orders. The user needs the right to create or delete orders for every given facility.
    *
-   * @param ids ids of orders to be checked
+   * @param ids ids of receiving facilities of orders to be checked
    */
   public void canDeleteOrders(List<UUID> ids) {
+    List<PermissionCheck> checks = new ArrayList<>(ids.size() * 2);
+
     for (UUID id : ids) {
-      if (hasPermission(ORDER_CREATE, id)
-          || hasPermission(ORDERS_DELETE, id)) {
-        return;
+      checks.add(ofWarehouse(ORDER_CREATE, id));
+      checks.add(ofWarehouse(ORDERS_DELETE, id));
+    }
+
+    Map<PermissionCheck, Boolean> decisions = hasPermissions(checks);
+
+    for (UUID id : ids) {
+      if (!decisions.get(ofWarehouse(ORDER_CREATE, id))
+          && !decisions.get(ofWarehouse(ORDERS_DELETE, id))) {
+        throw new MissingPermissionException(ORDER_CREATE, ORDERS_DELETE);
       }
+    }
+  }
 
-      throw new MissingPermissionException(ORDER_CREATE, ORDERS_DELETE);
+  /**
+   * Checks many permissions of the current user at once. The permission strings of the user are
+   * retrieved once for all checks. Only if they are not available, each distinct permission is
+   * checked with the reference data service. Service tokens are allowed everything and API keys
+   * nothing, as in the single checks.
+   *
+   * @param checks permissions to check
+   * @return decision for each of the given permissions
+   */
+  public Map<PermissionCheck, Boolean> hasPermissions(Collection<PermissionCheck> checks) {
+    Set<PermissionCheck> distinct = new LinkedHashSet<>(checks);
+    Map<PermissionCheck, Boolean> decisions = Maps.newHashMapWithExpectedSize(distinct.size());
+    OAuth2Authentication authentication = (OAuth2Authentication) SecurityContextHolder
+        .getContext()
+        .getAuthentication();
+
+    if (authentication.isClientOnly()) {
+      boolean allowed = checkServiceToken(false, authentication);
+      distinct.forEach(check -> decisions.put(check, allowed));
+      return decisions;
+    }
+
+    UUID userId = authenticationHelper.getCurrentUserId();
+
+    try {
+      PermissionStrings.Handler handler = permissionStrings.forUser(userId);
+
+      for (PermissionCheck check : distinct) {
+        decisions.put(check, handler.hasPermission(check.getRightName(), check.getFacilityId(),
+            check.getProgramId(), check.getWarehouseId()));
+      }
+
+      return decisions;
+    } catch (DataRetrievalException | RestClientException | IllegalStateException ex) {
+      XLOGGER.warn("Unable to check {} permissions of user {} with permission strings, "
+          + "checking them with reference data service: {}", distinct.size(), userId,
+          ex.getMessage());
+    }
+
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    for (PermissionCheck check : distinct) {
+      decisions.put(check, hasRight(user, check.getRightName(), check.getFacilityId(),
+          check.getProgramId(), check.getWarehouseId()));
     }
+
+    return decisions;
   }
 
   /**
@@ -296,7 +383,22 @@ public class PermissionService {
       return false;
     }
 
-    UserDto user = authenticationHelper.getCurrentUser();
+    UUID userId = authenticationHelper.getCurrentUserId();
+
+    try {
+      return permissionStrings
+          .forUser(userId)
+          .hasPermission(rightName, facility, program, warehouse);
+    } catch (DataRetrievalException | RestClientException | IllegalStateException ex) {
+      XLOGGER.warn("Unable to check right {} of user {} with permission strings, "
+          + "checking it with reference data service: {}", rightName, userId, ex.getMessage());
+    }
+
+    return hasRight(authenticationHelper.getCurrentUser(), rightName, facility, program, warehouse);
+  }
+
+  private boolean hasRight(UserDto user, String rightName, UUID facility, UUID program,
+                           UUID warehouse) {
     RightDto right = authenticationHelper.getRight(rightName);
     ResultDto<Boolean> result =  userReferenceDataService.hasRight(
         user.getId(), right.getId(), program, facility, warehouse
@@ -30,7 +30,8 @@ import org.openlmis.fulfillment.service.referencedata.PermissionStringDto;
 import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
-import org.openlmis.fulfillment.util.Pagination;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
@@ -68,6 +69,21 @@ public class ProofOfDeliveryService {
    * @return page of filtered PODs.
    */
   public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Pageable pageable) {
+    return search(shipmentId, orderId, pageable, CountStrategy.EXACT);
+  }
+
+  /**
+   * Get a list of Proofs Of Delivery, the same as {@link #search(UUID, UUID, Pageable)}, with the
+   * total number of PODs computed with the given strategy.
+   *
+   * @param shipmentId    UUID of shipment associated with POD, optional
+   * @param orderId       UUID of order associated with POD, optional
+   * @param pageable      pagination parameters
+   * @param countStrategy how the total number of PODs should be computed
+   * @return page of filtered PODs.
+   */
+  public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Pageable pageable,
+      CountStrategy countStrategy) {
     Profiler profiler = new Profiler("SEARCH_PODS");
     profiler.setLogger(XLOGGER);
 
@@ -88,12 +104,12 @@ public class ProofOfDeliveryService {
       if (isEmpty(programIds)
           && isEmpty(receivingFacilitiesIds)
           && isEmpty(supplyingFacilitiesIds)) {
-        return Pagination.getPage(emptyList(), pageable, 0);
+        return new CountedPage<>(emptyList(), pageable, 0, countStrategy);
       }
     }
     profiler.start("FIND_PODS");
     Page<ProofOfDelivery> result = proofOfDeliveryRepository.search(shipmentId, orderId,
-        receivingFacilitiesIds, supplyingFacilitiesIds, programIds, pageable);
+        receivingFacilitiesIds, supplyingFacilitiesIds, programIds, pageable, countStrategy);
 
     profiler.stop().log();
     return result;
@@ -37,6 +37,9 @@ public class TransferPropertiesService {
   @Autowired
   private ShipmentContextRunner shipmentContextRunner;
 
+  @Autowired
+  private FulfillmentRoutingResolver fulfillmentRoutingResolver;
+
   /**
    * Retrieves TransferProperties for given facility.
    *
@@ -69,6 +72,8 @@ public class TransferPropertiesService {
     }
 
     TransferProperties persistedSetting = transferPropertiesRepository.save(setting);
+    fulfillmentRoutingResolver.evict(persistedSetting.getFacilityId());
+
     if (TransferType.SHIPMENT.equals(persistedSetting.getTransferType())) {
       shipmentContextRunner.reCreateShipmentChannel(persistedSetting);
     }
@@ -24,6 +24,7 @@ import org.openlmis.fulfillment.service.AuthService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.request.RequestHeaders;
 import org.openlmis.fulfillment.service.request.RequestHelper;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,6 +47,11 @@ public class NotificationService {
 
   private RestOperations restTemplate = new RestTemplate();
 
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    this.restTemplate = restTemplateFactory.create("notification");
+  }
+
   /**
    * Send an email notification.
    *
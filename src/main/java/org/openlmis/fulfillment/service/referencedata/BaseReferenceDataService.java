@@ -18,11 +18,17 @@ package org.openlmis.fulfillment.service.referencedata;
 import static org.openlmis.fulfillment.service.request.RequestHelper.createUri;
 
 import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
 import org.openlmis.fulfillment.service.BaseCommunicationService;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.openlmis.fulfillment.service.request.RequestCoalescer;
+import org.openlmis.fulfillment.service.request.RequestHeaders;
 import org.openlmis.fulfillment.service.request.RequestParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,35 +40,64 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
   @Value("${referencedata.url}")
   private String referenceDataUrl;
 
+  private ReferenceDataCache cache = new ReferenceDataCache();
+
+  @Autowired
+  public void setCache(ReferenceDataCache cache) {
+    this.cache = cache;
+  }
+
   /**
-   * Return one object from Reference data service.
+   * Return one object from Reference data service. The object is served from the
+   * {@link ReferenceDataCache} if it has been retrieved recently and concurrent lookups of the
+   * same object share a single request.
    *
    * @param id UUID of requesting object.
    * @return Requesting reference data object.
    */
   public T findOne(UUID id) {
+    return cache.get(getCacheName(), id, etag -> coalesce(
+        RequestCoalescer.key(HttpMethod.GET, getUrl(), id, etag), () -> findOne(id, etag)));
+  }
+
+  private ServiceResponse<T> findOne(UUID id, String etag) {
     String url = getServiceUrl() + getUrl() + id;
 
     try {
+      RequestHeaders headers = RequestHeaders.init().setIfNoneMatch(etag);
       ResponseEntity<T> responseEntity = restTemplate.exchange(
-          buildUri(url), HttpMethod.GET, createEntity(), getResultClass());
-      return responseEntity.getBody();
+          buildUri(url), HttpMethod.GET, createEntity(headers), getResultClass());
+
+      return new ServiceResponse<>(responseEntity.getBody(), responseEntity.getHeaders(),
+          responseEntity.getStatusCode() != HttpStatus.NOT_MODIFIED);
     } catch (HttpStatusCodeException ex) {
       // rest template will handle 404 as an exception, instead of returning null
       if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
         logger.warn("{} with id {} does not exist. ", getResultClass().getSimpleName(), id);
-        return null;
+        return new ServiceResponse<>(null, new HttpHeaders(), true);
       } else {
         throw buildDataRetrievalException(ex);
       }
     }
   }
 
-  <P> P get(Class<P> type, String resourceUrl, RequestParameters parameters) {
+  /**
+   * Name of the {@link ReferenceDataCache} region used by this service. By default it is the
+   * last segment of the resource url, for example {@code facilities}.
+   */
+  protected String getCacheName() {
+    return StringUtils.substringAfterLast(StringUtils.removeEnd(getUrl(), "/"), "/");
+  }
+
+  <P> P get(Class<P> type, String resourceUrl, RequestParameters parameters,
+      boolean allowStale) {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
-    ResponseEntity<P> response = restTemplate.exchange(createUri(url, parameters), HttpMethod.GET,
-            createEntity(), type);
+    ResponseEntity<P> response = coalesce(
+        RequestCoalescer.key(HttpMethod.GET, url, parameters, type),
+        () -> restTemplate.exchange(createUri(url, parameters), HttpMethod.GET,
+            createEntity(), type),
+        allowStale);
 
     return response.getBody();
   }
@@ -71,6 +106,11 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
     return referenceDataUrl;
   }
 
+  @Override
+  protected String getServiceName() {
+    return "referencedata";
+  }
+
   protected abstract String getUrl();
 
   protected abstract Class<T> getResultClass();
@@ -40,6 +40,11 @@ public class FacilityReferenceDataService extends BaseReferenceDataService<Facil
     return FacilityDto[].class;
   }
 
+  @Override
+  protected String getSearchResourceUrl() {
+    return "search";
+  }
+
   /**
    * Finds facilities by their ids.
    *
@@ -0,0 +1,112 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local snapshot of the orderable catalog, indexed by product code and id. The snapshot is
+ * loaded the first time it is needed and then refreshed in the background. Refreshes send the
+ * ETag of the current snapshot, so as long as the catalog does not change the reference data
+ * service only responds with 304 and the snapshot is reused.
+ */
+@Component
+public class OrderableCatalog {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderableCatalog.class);
+
+  @Autowired
+  private OrderableReferenceDataService orderableReferenceDataService;
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Returns the current snapshot of the catalog, loading it if it has not been loaded yet.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    return null == current ? refresh() : current;
+  }
+
+  /**
+   * Revalidates the snapshot with the reference data service and returns the up to date one.
+   */
+  public synchronized Snapshot refresh() {
+    Snapshot current = snapshot;
+    ServiceResponse<List<OrderableDto>> response = orderableReferenceDataService
+        .findAll(null == current ? null : current.getEtag());
+
+    if (null != current && !response.isModified()) {
+      XLOGGER.debug("Orderable catalog has not been modified");
+      return current;
+    }
+
+    Snapshot updated = new Snapshot(response.getBody(),
+        null == response.getHeaders() ? null : response.getETag());
+    XLOGGER.info("Loaded orderable catalog with {} orderables", updated.getById().size());
+
+    snapshot = updated;
+    return updated;
+  }
+
+  /**
+   * Refreshes the snapshot periodically, but only once it has been loaded.
+   */
+  @Scheduled(fixedDelayString = "${referencedata.orderableCatalog.refreshRate}",
+      initialDelayString = "${referencedata.orderableCatalog.refreshRate}")
+  public void refreshInBackground() {
+    if (null == snapshot) {
+      return;
+    }
+
+    try {
+      refresh();
+    } catch (RuntimeException ex) {
+      XLOGGER.warn("Unable to refresh orderable catalog, the previous snapshot will be used", ex);
+    }
+  }
+
+  @Getter
+  public static final class Snapshot {
+    private final Map<String, OrderableDto> byProductCode;
+    private final Map<String, OrderableDto> byId;
+    private final String etag;
+
+    Snapshot(List<OrderableDto> orderables, String etag) {
+      Map<String, OrderableDto> codes = new HashMap<>();
+      Map<String, OrderableDto> ids = new HashMap<>();
+
+      for (OrderableDto orderable : orderables) {
+        codes.putIfAbsent(orderable.getProductCode(), orderable);
+        ids.put(orderable.getId().toString(), orderable);
+      }
+
+      this.byProductCode = unmodifiableMap(codes);
+      this.byId = unmodifiableMap(ids);
+      this.etag = etag;
+    }
+  }
+}
@@ -15,15 +15,20 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
+import org.openlmis.fulfillment.service.ServiceResponse;
 import org.openlmis.fulfillment.service.request.RequestParameters;
 import org.openlmis.fulfillment.web.util.VersionIdentityDto;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -31,6 +36,19 @@ import org.springframework.util.CollectionUtils;
 public class OrderableReferenceDataService
     extends BaseReferenceDataService<OrderableDto> {
 
+  @Value("${referencedata.cache.orderableVersions.maxSize}")
+  private long versionCacheSize;
+
+  private Cache<VersionIdentityDto, OrderableDto> versions;
+
+  /**
+   * Creates the size-bounded cache of orderable versions.
+   */
+  @PostConstruct
+  public void init() {
+    versions = CacheBuilder.newBuilder().maximumSize(versionCacheSize).build();
+  }
+
   @Override
   protected String getUrl() {
     return "/api/orderables/";
@@ -64,21 +82,56 @@ public class OrderableReferenceDataService
   }
 
   /**
-   * Finds orderables by their identities.
+   * Finds all orderables, unless they have not been modified since the response with the given
+   * ETag was received.
+   *
+   * @param etag ETag of the previous response (can be {@code null}).
+   * @return all orderables, or a response without body if nothing has been modified.
+   */
+  public ServiceResponse<List<OrderableDto>> findAll(String etag) {
+    return tryFindPage("", RequestParameters.init(), OrderableDto.class, etag);
+  }
+
+  /**
+   * Finds orderables by their identities. An orderable version never changes, so orderables
+   * with a version number are kept in a size-bounded cache and only the missing ones are
+   * retrieved (in a single request) from the reference data service.
    */
   public List<OrderableDto> findByIdentities(Set<VersionEntityReference> references) {
     if (CollectionUtils.isEmpty(references)) {
       return Collections.emptyList();
     }
 
-    List<VersionIdentityDto> identities = references
-        .stream()
-        .map(ref -> new VersionIdentityDto(ref.getId(), ref.getVersionNumber()))
-        .collect(Collectors.toList());
+    List<OrderableDto> orderables = new ArrayList<>(references.size());
+    List<VersionIdentityDto> missing = new ArrayList<>();
+
+    for (VersionEntityReference reference : references) {
+      VersionIdentityDto identity = new VersionIdentityDto(reference);
+      OrderableDto orderable = null == identity.getVersionNumber()
+          ? null
+          : versions.getIfPresent(identity);
+
+      if (null == orderable) {
+        missing.add(identity);
+      } else {
+        orderables.add(orderable);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      OrderableSearchParams payload = new OrderableSearchParams(
+          null, null, null, missing, 0, missing.size());
 
-    OrderableSearchParams payload = new OrderableSearchParams(
-        null, null, null, identities, 0, identities.size());
+      for (OrderableDto orderable : getPage("/search", RequestParameters.init(), payload)) {
+        if (null != orderable.getId() && null != orderable.getMeta()
+            && null != orderable.getVersionNumber()) {
+          versions.put(orderable.getIdentity(), orderable);
+        }
+
+        orderables.add(orderable);
+      }
+    }
 
-    return getPage("/search", RequestParameters.init(), payload).getContent();
+    return orderables;
   }
 }
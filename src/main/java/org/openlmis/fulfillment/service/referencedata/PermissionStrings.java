@@ -19,39 +19,164 @@ import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toSet;
 
-import com.google.common.collect.Maps;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
 import org.openlmis.fulfillment.service.ServiceResponse;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Keeps permission strings of users who recently sent requests. Permission strings younger than
+ * {@code referencedata.permissionStrings.freshness} seconds are used without asking the reference
+ * data service. Older ones are still used, but they are revalidated with their ETag in the
+ * background, so only the first request of a user waits for the reference data service.
+ * Permission strings older than {@code referencedata.permissionStrings.maxStaleness} seconds
+ * (because the background revalidation keeps failing) are never used: they are revalidated in
+ * the request thread and an error is thrown if that fails, so revoked rights are not kept
+ * during a long outage of the reference data service.
+ *
+ * <p>At most {@code referencedata.permissionStrings.maxSize} users are kept, and users that did
+ * not send any request for {@code referencedata.permissionStrings.expireAfterAccess} seconds are
+ * removed.
+ */
 @Component
 public class PermissionStrings {
-  private final Map<UUID, Handler> handlers = Maps.newConcurrentMap();
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(PermissionStrings.class);
+
+  static final String METRIC_REVALIDATIONS = "referencedata.permissionStrings.revalidations";
+  static final String METRIC_EVICTIONS = "referencedata.permissionStrings.evictions";
+  static final String METRIC_SIZE = "referencedata.permissionStrings.size";
 
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @Autowired
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Value("${referencedata.permissionStrings.freshness}")
+  private long freshness;
+
+  @Value("${referencedata.permissionStrings.maxStaleness}")
+  private long maxStaleness;
+
+  @Value("${referencedata.permissionStrings.maxSize}")
+  private long maxSize;
+
+  @Value("${referencedata.permissionStrings.expireAfterAccess}")
+  private long expireAfterAccess;
+
+  @Value("${referencedata.permissionStrings.refreshParallelism}")
+  private int refreshParallelism;
+
+  private Ticker ticker = Ticker.systemTicker();
+
+  private Cache<UUID, Handler> handlers;
+  private ExecutorService executor;
+
+  private Counter modified;
+  private Counter notModified;
+  private Counter failed;
+
+  /**
+   * Creates the handler registry and the thread pool used to revalidate permission strings.
+   */
+  @PostConstruct
+  public void init() {
+    final Counter evictions = meterRegistry.counter(METRIC_EVICTIONS);
+    modified = meterRegistry.counter(METRIC_REVALIDATIONS, "result", "modified");
+    notModified = meterRegistry.counter(METRIC_REVALIDATIONS, "result", "notModified");
+    failed = meterRegistry.counter(METRIC_REVALIDATIONS, "result", "failed");
+
+    handlers = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterAccess(expireAfterAccess, TimeUnit.SECONDS)
+        .<UUID, Handler>removalListener(notification -> {
+          if (notification.wasEvicted()) {
+            evictions.increment();
+          }
+        })
+        .build();
+
+    meterRegistry.gauge(METRIC_SIZE, handlers, Cache::size);
+
+    if (refreshParallelism > 0) {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(refreshParallelism, refreshParallelism,
+          60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000),
+          new ThreadFactoryBuilder().setNameFormat("permission-strings-%d").setDaemon(true).build(),
+          new ThreadPoolExecutor.CallerRunsPolicy());
+      pool.allowCoreThreadTimeOut(true);
+
+      executor = pool;
+    }
+  }
+
+  /**
+   * Stops the thread pool used to revalidate permission strings.
+   */
+  @PreDestroy
+  public void stop() {
+    if (null != executor) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the permission strings handler of the given user.
+   */
   public Handler forUser(UUID user) {
-    return handlers.computeIfAbsent(user, Handler::new);
+    try {
+      return handlers.get(user, () -> new Handler(user));
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  @AllArgsConstructor
+  private static final class Snapshot {
+    private final Set<PermissionStringDto> permissionStrings;
+    private final Map<String, Set<UUID>> facilityIds;
+    private final String etag;
+    private final long validatedAt;
+
+    private Snapshot revalidate(long now) {
+      return new Snapshot(permissionStrings, facilityIds, etag, now);
+    }
   }
 
   public class Handler implements Supplier<Set<PermissionStringDto>> {
     private final Object lock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
 
     private UUID userId;
 
-    private Set<PermissionStringDto> permissionStrings;
-    private String etag;
-
-    private Map<String, Set<UUID>> facilityIds;
+    private volatile Snapshot snapshot;
 
     Handler(UUID userId) {
       this.userId = userId;
@@ -59,8 +184,7 @@ public class PermissionStrings {
 
     @Override
     public Set<PermissionStringDto> get() {
-      updatePermissionStrings();
-      return permissionStrings;
+      return current().permissionStrings;
     }
 
     /**
@@ -71,7 +195,8 @@ public class PermissionStrings {
      *         rights, an empty set will be returned.
      */
     public Set<UUID> getFacilityIds(String... rightNames) {
-      updatePermissionStrings();
+      Map<String, Set<UUID>> facilityIds = current().facilityIds;
+
       return Arrays
           .stream(rightNames)
           .map(facilityIds::get)
@@ -80,24 +205,117 @@ public class PermissionStrings {
           .collect(toSet());
     }
 
-    private void updatePermissionStrings() {
-      synchronized (lock) {
-        ServiceResponse<List<String>> response = userReferenceDataService
-            .getPermissionStrings(userId, etag);
-
-        if (response.isModified()) {
-          permissionStrings = PermissionStringDto.from(response.getBody());
-          etag = response.getETag();
-          facilityIds = permissionStrings
-              .stream()
-              .filter(Objects::nonNull)
-              .filter(elem -> Objects.nonNull(elem.getFacilityId()))
-              .collect(groupingBy(
-                  PermissionStringDto::getRightName,
-                  mapping(PermissionStringDto::getFacilityId, toSet())
-              ));
+    /**
+     * Checks in-process whether the user has the given right, the same way the reference data
+     * service does: fulfillment rights are checked for the warehouse, supervision rights for the
+     * facility and program, and general admin rights without any of them.
+     *
+     * @param rightName   the right name.
+     * @param facilityId  the facility id (supervision rights).
+     * @param programId   the program id (supervision rights).
+     * @param warehouseId the warehouse id (fulfillment rights).
+     * @return true if the user has the right, otherwise false.
+     * @throws IllegalStateException if the permission strings of the user are not available.
+     */
+    public boolean hasPermission(String rightName, UUID facilityId, UUID programId,
+        UUID warehouseId) {
+      Set<PermissionStringDto> current = current().permissionStrings;
+
+      if (null == current) {
+        throw new IllegalStateException("Permission strings of user " + userId
+            + " are not available");
+      }
+
+      return null == warehouseId
+          ? current.contains(PermissionStringDto.create(rightName, facilityId, programId))
+          : current.contains(PermissionStringDto.create(rightName, warehouseId, null));
+    }
+
+    private Snapshot current() {
+      Snapshot current = snapshot;
+
+      if (null == current) {
+        synchronized (lock) {
+          if (null == snapshot) {
+            revalidate();
+          }
+
+          return snapshot;
+        }
+      }
+
+      long age = ticker.read() - current.validatedAt;
+
+      if (age >= TimeUnit.SECONDS.toNanos(maxStaleness)) {
+        synchronized (lock) {
+          // unless another thread has revalidated it meanwhile, the snapshot is too old to be
+          // used and a failure of the revalidation is passed to the caller
+          if (snapshot == current) {
+            revalidate();
+          }
+
+          return snapshot;
         }
       }
+
+      if (age >= TimeUnit.SECONDS.toNanos(freshness)) {
+        refresh();
+      }
+
+      return snapshot;
+    }
+
+    private void refresh() {
+      if (!refreshing.compareAndSet(false, true)) {
+        return;
+      }
+
+      Runnable task = () -> {
+        try {
+          synchronized (lock) {
+            revalidate();
+          }
+        } catch (RuntimeException ex) {
+          failed.increment();
+          XLOGGER.warn("Unable to revalidate permission strings of user {}, using cached ones",
+              userId, ex);
+        } finally {
+          refreshing.set(false);
+        }
+      };
+
+      if (null == executor) {
+        task.run();
+      } else {
+        executor.execute(task);
+      }
+    }
+
+    private void revalidate() {
+      Snapshot current = snapshot;
+      ServiceResponse<List<String>> response = userReferenceDataService
+          .getPermissionStrings(userId, null == current ? null : current.etag);
+      long now = ticker.read();
+
+      if (response.isModified()) {
+        modified.increment();
+        Set<PermissionStringDto> permissionStrings = PermissionStringDto.from(response.getBody());
+        Map<String, Set<UUID>> facilityIds = permissionStrings
+            .stream()
+            .filter(Objects::nonNull)
+            .filter(elem -> Objects.nonNull(elem.getFacilityId()))
+            .collect(groupingBy(
+                PermissionStringDto::getRightName,
+                mapping(PermissionStringDto::getFacilityId, toSet())
+            ));
+
+        snapshot = new Snapshot(permissionStrings, facilityIds, response.getETag(), now);
+      } else {
+        notModified.increment();
+        snapshot = null == current
+            ? new Snapshot(null, Collections.emptyMap(), null, now)
+            : current.revalidate(now);
+      }
     }
   }
 }
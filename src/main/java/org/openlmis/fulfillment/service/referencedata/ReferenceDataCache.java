@@ -0,0 +1,246 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.openlmis.fulfillment.service.request.CallGuard;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache for single reference data resources retrieved by
+ * {@link BaseReferenceDataService#findOne(UUID)}. Each resource type (facilities, programs, ...)
+ * has its own region with a separate time to live and size limit. Entries older than the time to
+ * live are not dropped but revalidated with the ETag returned by the reference data service, so
+ * an unchanged resource costs only a 304 response. If the revalidation fails because the
+ * reference data service is unavailable, the stale entry is returned instead of an error, unless
+ * it was last validated more than {@code referencedata.cache.maxStaleness} seconds ago.
+ *
+ * <p>The time to live of a region can be set with the
+ * {@code referencedata.cache.ttl.<region>} property (in seconds). If it is not set, the
+ * {@code referencedata.cache.defaultTtl} value is used. A time to live of zero disables caching
+ * for the given region.
+ */
+@Component
+public class ReferenceDataCache {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(ReferenceDataCache.class);
+
+  static final String METRIC_NAME = "referencedata.cache.requests";
+  static final String METRIC_SIZE = "referencedata.cache.size";
+  static final String METRIC_EVICTIONS = "referencedata.cache.evictions";
+
+  private static final String TTL_PROPERTY_PREFIX = "referencedata.cache.ttl.";
+
+  @Value("${referencedata.cache.enabled}")
+  private boolean enabled;
+
+  @Value("${referencedata.cache.maxSize}")
+  private long maxSize;
+
+  @Value("${referencedata.cache.defaultTtl}")
+  private long defaultTtl;
+
+  @Value("${referencedata.cache.maxStaleness}")
+  private long maxStaleness;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Ticker ticker = Ticker.systemTicker();
+
+  private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the resource with the given id from the given region. If there is no valid entry in
+   * the cache, the loader is used to retrieve it. The loader receives the ETag of the cached
+   * entry (or {@code null}) and should send it in the If-None-Match header.
+   *
+   * @param regionName name of the cache region, usually the resource name.
+   * @param id         the resource id.
+   * @param loader     function that retrieves the resource from the reference data service.
+   * @return the resource or {@code null} if it does not exist.
+   */
+  public <T> T get(String regionName, UUID id, Function<String, ServiceResponse<T>> loader) {
+    Region region = getRegion(regionName);
+
+    if (null == region) {
+      return loader.apply(null).getBody();
+    }
+
+    return region.get(id, loader);
+  }
+
+  /**
+   * Removes the resource with the given id from the given region.
+   */
+  public void evict(String regionName, UUID id) {
+    Region region = regions.get(regionName);
+
+    if (null != region) {
+      region.entries.invalidate(id);
+    }
+  }
+
+  /**
+   * Removes all cached resources.
+   */
+  public void clear() {
+    regions.values().forEach(region -> region.entries.invalidateAll());
+  }
+
+  private Region getRegion(String name) {
+    if (!enabled) {
+      return null;
+    }
+
+    Region region = regions.computeIfAbsent(name, this::createRegion);
+    return region.ttlNanos > 0 ? region : null;
+  }
+
+  private Region createRegion(String name) {
+    long ttl = environment.getProperty(TTL_PROPERTY_PREFIX + name, Long.class, defaultTtl);
+    XLOGGER.info("Creating reference data cache region {} with ttl {}s and max size {}",
+        name, ttl, maxSize);
+
+    return new Region(name, TimeUnit.SECONDS.toNanos(ttl));
+  }
+
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  @Getter(AccessLevel.PRIVATE)
+  private static final class Entry<T> {
+    private final T value;
+    private final String etag;
+    private final long validatedAt;
+
+    Entry<T> revalidate(long now) {
+      return new Entry<>(value, etag, now);
+    }
+  }
+
+  private final class Region {
+    private final String name;
+    private final long ttlNanos;
+    private final Cache<UUID, Entry<?>> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidations;
+    private final Counter refreshes;
+    private final Counter staleHits;
+    private final Counter evictions;
+
+    Region(String name, long ttlNanos) {
+      this.name = name;
+      this.ttlNanos = ttlNanos;
+      this.hits = counter(name, "hit");
+      this.misses = counter(name, "miss");
+      this.revalidations = counter(name, "notModified");
+      this.refreshes = counter(name, "modified");
+      this.staleHits = counter(name, "stale");
+      this.evictions = meterRegistry.counter(METRIC_EVICTIONS, "cache", name);
+      this.entries = CacheBuilder
+          .newBuilder()
+          .maximumSize(maxSize)
+          .<UUID, Entry<?>>removalListener(notification -> {
+            if (notification.getCause() == RemovalCause.SIZE) {
+              evictions.increment();
+            }
+          })
+          .build();
+
+      meterRegistry.gauge(METRIC_SIZE, Tags.of("cache", name), entries, Cache::size);
+    }
+
+    <T> T get(UUID id, Function<String, ServiceResponse<T>> loader) {
+      long now = ticker.read();
+      Entry<T> entry = (Entry<T>) entries.getIfPresent(id);
+
+      if (null == entry) {
+        misses.increment();
+        return load(id, loader.apply(null), now);
+      }
+
+      if (now - entry.getValidatedAt() < ttlNanos) {
+        hits.increment();
+        return entry.getValue();
+      }
+
+      ServiceResponse<T> response;
+
+      try {
+        response = loader.apply(entry.getEtag());
+      } catch (RuntimeException ex) {
+        if (!CallGuard.isOutage(ex)
+            || now - entry.getValidatedAt() >= TimeUnit.SECONDS.toNanos(maxStaleness)) {
+          throw ex;
+        }
+
+        XLOGGER.warn("Unable to revalidate {} {}, using cached value: {}",
+            name, id, ex.getMessage());
+        staleHits.increment();
+        return entry.getValue();
+      }
+
+      if (!response.isModified()) {
+        revalidations.increment();
+        entries.put(id, entry.revalidate(now));
+        return entry.getValue();
+      }
+
+      refreshes.increment();
+      return load(id, response, now);
+    }
+
+    private <T> T load(UUID id, ServiceResponse<T> response, long now) {
+      T value = response.getBody();
+
+      if (null == value) {
+        entries.invalidate(id);
+      } else {
+        String etag = null == response.getHeaders() ? null : response.getETag();
+        entries.put(id, new Entry<>(value, etag, now));
+      }
+
+      return value;
+    }
+
+    private Counter counter(String name, String result) {
+      return meterRegistry.counter(METRIC_NAME, "cache", name, "result", result);
+    }
+  }
+}
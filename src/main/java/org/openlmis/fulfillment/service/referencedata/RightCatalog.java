@@ -0,0 +1,90 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local catalogue of rights, indexed by name. Rights are effectively static, so the whole list
+ * is loaded when the application starts and then refreshed in the background. A right that is
+ * not in the catalogue (for example because the catalogue could not be loaded yet) is retrieved
+ * from the reference data service and added to the catalogue.
+ */
+@Component
+public class RightCatalog {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(RightCatalog.class);
+
+  @Autowired
+  private RightReferenceDataService rightReferenceDataService;
+
+  private volatile Map<String, RightDto> rights = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the right with the given name.
+   *
+   * @param name right name
+   * @return right related with the name or {@code null}.
+   */
+  public RightDto findRight(String name) {
+    Map<String, RightDto> current = rights;
+    RightDto right = current.get(name);
+
+    if (null == right) {
+      right = rightReferenceDataService.findRight(name);
+
+      if (null != right) {
+        current.put(name, right);
+      }
+    }
+
+    return right;
+  }
+
+  /**
+   * Loads all rights from the reference data service and replaces the catalogue with them.
+   */
+  public void refresh() {
+    List<RightDto> all = rightReferenceDataService.findAll();
+    Map<String, RightDto> updated = new ConcurrentHashMap<>(all.size() * 2);
+
+    for (RightDto right : all) {
+      updated.put(right.getName(), right);
+    }
+
+    rights = updated;
+    XLOGGER.info("Loaded right catalogue with {} rights", updated.size());
+  }
+
+  /**
+   * Loads the catalogue when the application starts and refreshes it periodically. If the
+   * reference data service is not available, the previous catalogue will be used.
+   */
+  @Scheduled(fixedDelayString = "${referencedata.rightCatalog.refreshRate}")
+  public void refreshInBackground() {
+    try {
+      refresh();
+    } catch (RuntimeException ex) {
+      XLOGGER.warn("Unable to refresh right catalogue, the previous one will be used", ex);
+    }
+  }
+}
@@ -50,5 +50,14 @@ public class RightReferenceDataService extends BaseReferenceDataService<RightDto
     return rights.isEmpty() ? null : rights.get(0);
   }
 
+  /**
+   * Find all rights.
+   *
+   * @return list of all rights.
+   */
+  public List<RightDto> findAll() {
+    return new ArrayList<>(findAll("", RequestParameters.init()));
+  }
+
 }
 
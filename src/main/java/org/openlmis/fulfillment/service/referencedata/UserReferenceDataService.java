@@ -47,6 +47,11 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     return UserDto[].class;
   }
 
+  @Override
+  protected String getSearchResourceUrl() {
+    return "search";
+  }
+
   /**
    * This method retrieves a user with given name.
    *
@@ -74,13 +79,18 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
                                      UUID warehouse) {
     ResultDto result = get(ResultDto.class, user + "/hasRight", RequestParameters.init()
         .set("rightId", right).set("programId", program)
-        .set("facilityId", facility).set("warehouseId", warehouse));
+        .set("facilityId", facility).set("warehouseId", warehouse), false);
 
     return new ResultDto<>(BooleanUtils.toBoolean(result.getResult()));
   }
 
+  /**
+   * Retrieves the permission strings of the given user, unless they have not changed since the
+   * response with the given ETag. Outdated permission strings are never returned during an
+   * outage of the reference data service.
+   */
   public ServiceResponse<List<String>> getPermissionStrings(UUID user, String etag) {
-    return tryFindAll(user + "/permissionStrings", String[].class, etag);
+    return tryFindAll(user + "/permissionStrings", String[].class, etag, false);
   }
 
   /**
@@ -23,8 +23,10 @@ import org.openlmis.fulfillment.domain.Template;
 import org.openlmis.fulfillment.service.AuthService;
 import org.openlmis.fulfillment.service.request.RequestHeaders;
 import org.openlmis.fulfillment.service.request.RequestHelper;
+import org.openlmis.fulfillment.service.request.RestTemplateFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
@@ -47,7 +49,12 @@ public class ReportService {
 
   private final AuthService authService;
 
-  private final RestOperations restTemplate = new RestTemplate();
+  private RestOperations restTemplate = new RestTemplate();
+
+  @Autowired
+  public void setRestTemplateFactory(RestTemplateFactory restTemplateFactory) {
+    this.restTemplate = restTemplateFactory.create("report");
+  }
 
   /**
    * Generate report byte [ ].
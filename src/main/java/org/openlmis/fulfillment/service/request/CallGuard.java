@@ -0,0 +1,280 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.openlmis.fulfillment.service.DataRetrievalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Protects the calling service from a slow or failing downstream service. Calls are executed
+ * through a circuit breaker and a bulkhead:
+ * <ul>
+ *   <li>after {@code failureThreshold} consecutive failures (timeouts, connection errors and
+ *   5xx responses) the breaker opens and calls are rejected for {@code openDuration}; then a
+ *   single trial call is let through and closes the breaker again if it succeeds,</li>
+ *   <li>at most {@code maxConcurrentCalls} calls can be in progress; a call waits up to
+ *   {@code maxWait} for a free slot before it is rejected.</li>
+ * </ul>
+ *
+ * <p>The last successful result of each call is remembered (up to {@code staleCacheSize}
+ * results, for {@code staleTtl}) and returned instead of an error when a call is rejected or
+ * fails because of an outage. A zero value disables the given feature. Calls whose result must
+ * not be outdated, like authorization checks, can opt out of this with
+ * {@link #execute(List, Supplier, boolean)}.
+ */
+public class CallGuard {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CallGuard.class);
+
+  static final String METRIC_CALLS = "downstream.calls";
+  static final String METRIC_OPEN = "downstream.circuitBreaker.open";
+
+  private final String serviceName;
+  private final Settings settings;
+  private final Semaphore bulkhead;
+  private final Cache<List<Object>, Object> lastResults;
+  private final Ticker ticker;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger failures = new AtomicInteger();
+  private volatile long openedAt;
+
+  private final Counter successes;
+  private final Counter errors;
+  private final Counter rejections;
+  private final Counter staleResults;
+
+  /**
+   * Creates a guard that lets all calls through and does not remember any results.
+   */
+  public CallGuard(String serviceName, MeterRegistry meterRegistry) {
+    this(serviceName, new Settings(), meterRegistry, Ticker.systemTicker());
+  }
+
+  CallGuard(String serviceName, Settings settings, MeterRegistry meterRegistry, Ticker ticker) {
+    this.serviceName = serviceName;
+    this.settings = settings;
+    this.ticker = ticker;
+    this.bulkhead = settings.getMaxConcurrentCalls() > 0
+        ? new Semaphore(settings.getMaxConcurrentCalls())
+        : null;
+    this.lastResults = settings.getStaleCacheSize() > 0
+        ? CacheBuilder.newBuilder()
+            .maximumSize(settings.getStaleCacheSize())
+            .expireAfterWrite(settings.getStaleTtl(), TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build()
+        : null;
+
+    this.successes = counter(meterRegistry, "success");
+    this.errors = counter(meterRegistry, "failure");
+    this.rejections = counter(meterRegistry, "rejected");
+    this.staleResults = counter(meterRegistry, "stale");
+
+    meterRegistry.gauge(METRIC_OPEN, Tags.of("service", serviceName), state,
+        value -> value.get() == State.CLOSED ? 0 : 1);
+  }
+
+  /**
+   * Checks whether the given exception means that the downstream service is unavailable
+   * (as opposed to rejecting the request, for example with 403 or 404).
+   */
+  public static boolean isOutage(RuntimeException ex) {
+    if (ex instanceof ResourceAccessException || ex instanceof HttpServerErrorException
+        || ex instanceof CallNotPermittedException) {
+      return true;
+    }
+
+    return ex instanceof DataRetrievalException
+        && null != ((DataRetrievalException) ex).getStatus()
+        && ((DataRetrievalException) ex).getStatus().is5xxServerError();
+  }
+
+  /**
+   * Executes the given read call. If the call is rejected or fails because of an outage, the
+   * last successful result of the call with the same key is returned instead, if there is one.
+   *
+   * @param key  the call key, see {@link RequestCoalescer#key(Object...)}.
+   * @param call the call to execute.
+   * @return the result of the call.
+   */
+  public <R> R execute(List<Object> key, Supplier<R> call) {
+    return execute(key, call, true);
+  }
+
+  /**
+   * Executes the given read call. If {@code allowStale} is {@code false}, the result is not
+   * remembered and an error is thrown when the call is rejected or fails, so the caller never
+   * receives an outdated result (authorization checks have to fail closed).
+   *
+   * @param key        the call key, see {@link RequestCoalescer#key(Object...)}.
+   * @param call       the call to execute.
+   * @param allowStale whether the last known result can be returned instead of an error.
+   * @return the result of the call.
+   */
+  public <R> R execute(List<Object> key, Supplier<R> call, boolean allowStale) {
+    Cache<List<Object>, Object> results = allowStale ? lastResults : null;
+
+    if (!tryEnterCircuit()) {
+      return fallback(results, key, new CallNotPermittedException(
+          "Circuit breaker of " + serviceName + " service is open"));
+    }
+
+    if (!tryAcquireBulkhead()) {
+      releaseTrialCall();
+      return fallback(results, key, new CallNotPermittedException(
+          "Too many concurrent calls to " + serviceName + " service"));
+    }
+
+    try {
+      R result = call.get();
+      onSuccess();
+
+      if (null != results && null != result) {
+        results.put(key, result);
+      }
+
+      return result;
+    } catch (RuntimeException ex) {
+      if (!isOutage(ex)) {
+        onSuccess();
+        throw ex;
+      }
+
+      onFailure();
+      return fallback(results, key, ex);
+    } finally {
+      if (null != bulkhead) {
+        bulkhead.release();
+      }
+    }
+  }
+
+  boolean isOpen() {
+    return state.get() != State.CLOSED;
+  }
+
+  private boolean tryEnterCircuit() {
+    State current = state.get();
+
+    if (current == State.CLOSED) {
+      return true;
+    }
+
+    return current == State.OPEN
+        && ticker.read() - openedAt >= TimeUnit.MILLISECONDS.toNanos(settings.getOpenDuration())
+        && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+  }
+
+  private void releaseTrialCall() {
+    state.compareAndSet(State.HALF_OPEN, State.OPEN);
+  }
+
+  private boolean tryAcquireBulkhead() {
+    if (null == bulkhead) {
+      return true;
+    }
+
+    try {
+      return bulkhead.tryAcquire(settings.getMaxWait(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void onSuccess() {
+    successes.increment();
+    failures.set(0);
+
+    if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+      LOGGER.info("Circuit breaker of {} service closed", serviceName);
+    }
+  }
+
+  private void onFailure() {
+    errors.increment();
+
+    if (settings.getFailureThreshold() <= 0) {
+      return;
+    }
+
+    if (failures.incrementAndGet() >= settings.getFailureThreshold()
+        || state.get() == State.HALF_OPEN) {
+      openedAt = ticker.read();
+
+      if (state.getAndSet(State.OPEN) != State.OPEN) {
+        LOGGER.warn("Circuit breaker of {} service opened after {} failures", serviceName,
+            failures.get());
+      }
+    }
+  }
+
+  private <R> R fallback(Cache<List<Object>, Object> results, List<Object> key,
+      RuntimeException ex) {
+    if (ex instanceof CallNotPermittedException) {
+      rejections.increment();
+    }
+
+    Object result = null == results ? null : results.getIfPresent(key);
+
+    if (null == result) {
+      throw ex;
+    }
+
+    LOGGER.warn("Using last known result of {} call: {}", serviceName, ex.getMessage());
+    staleResults.increment();
+
+    return (R) result;
+  }
+
+  private Counter counter(MeterRegistry meterRegistry, String result) {
+    return meterRegistry.counter(METRIC_CALLS, "service", serviceName, "result", result);
+  }
+
+  private enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  @Getter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  static final class Settings {
+    private int failureThreshold;
+    private long openDuration;
+    private int maxConcurrentCalls;
+    private long maxWait;
+    private long staleCacheSize;
+    private long staleTtl;
+  }
+}
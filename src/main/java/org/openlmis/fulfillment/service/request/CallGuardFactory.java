@@ -0,0 +1,88 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides a single {@link CallGuard} per downstream service, so that calls to one service do
+ * not open the circuit breaker or use up the bulkhead of another.
+ *
+ * <p>The guard of a service is configured with the {@code resilience.<service>.<setting>}
+ * properties. If a setting is not defined for the given service, the value of
+ * {@code resilience.default.<setting>} is used. Supported settings are
+ * {@code failureThreshold}, {@code openDuration} (milliseconds), {@code maxConcurrentCalls},
+ * {@code maxWait} (milliseconds), {@code staleCacheSize} and {@code staleTtl} (seconds).
+ */
+@Component
+public class CallGuardFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CallGuardFactory.class);
+
+  static final String PROPERTY_PREFIX = "resilience.";
+  static final String DEFAULT_SERVICE = "default";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private final Map<String, CallGuard> guards = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the guard of the given service.
+   *
+   * @param serviceName name of the downstream service.
+   * @return the call guard.
+   */
+  public CallGuard get(String serviceName) {
+    return guards.computeIfAbsent(serviceName, this::createGuard);
+  }
+
+  private CallGuard createGuard(String serviceName) {
+    CallGuard.Settings settings = new CallGuard.Settings(
+        getProperty(serviceName, "failureThreshold", Integer.class),
+        getProperty(serviceName, "openDuration", Long.class),
+        getProperty(serviceName, "maxConcurrentCalls", Integer.class),
+        getProperty(serviceName, "maxWait", Long.class),
+        getProperty(serviceName, "staleCacheSize", Long.class),
+        getProperty(serviceName, "staleTtl", Long.class));
+
+    LOGGER.info("Creating call guard for {} with failure threshold {}, open duration {}ms, "
+        + "max concurrent calls {}, max wait {}ms, stale cache size {}, stale ttl {}s",
+        serviceName, settings.getFailureThreshold(), settings.getOpenDuration(),
+        settings.getMaxConcurrentCalls(), settings.getMaxWait(), settings.getStaleCacheSize(),
+        settings.getStaleTtl());
+
+    return new CallGuard(serviceName, settings, meterRegistry, Ticker.systemTicker());
+  }
+
+  private <V> V getProperty(String serviceName, String setting, Class<V> type) {
+    V value = environment.getProperty(PROPERTY_PREFIX + serviceName + '.' + setting, type);
+
+    return null == value
+        ? environment.getRequiredProperty(PROPERTY_PREFIX + DEFAULT_SERVICE + '.' + setting, type)
+        : value;
+  }
+}
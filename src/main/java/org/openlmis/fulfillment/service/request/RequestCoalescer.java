@@ -0,0 +1,95 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes sure that concurrent identical requests are sent only once. The first caller executes
+ * the request and all callers that arrive with the same key while it is in flight wait for it
+ * and receive the same result (or exception). Nothing is kept after the request completes.
+ */
+public final class RequestCoalescer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestCoalescer.class);
+
+  private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a key for the given request elements (method, url, parameters, payload, ...).
+   * Two requests are considered identical if all elements are equal.
+   */
+  public static List<Object> key(Object... elements) {
+    return Arrays.asList(elements);
+  }
+
+  /**
+   * Executes the given request or joins an identical request that is already in flight.
+   *
+   * @param key     the request key, see {@link #key(Object...)}.
+   * @param request the request to execute.
+   * @return the result of the request.
+   */
+  @SuppressWarnings("unchecked")
+  public <R> R execute(List<Object> key, Supplier<R> request) {
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+
+    if (null != existing) {
+      LOGGER.debug("Joining in-flight request {}", key);
+      return (R) join(existing);
+    }
+
+    try {
+      R result = request.get();
+      future.complete(result);
+      return result;
+    } catch (RuntimeException | Error ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private static Object join(CompletableFuture<Object> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+
+      throw ex;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executes the chunks of a split request (see {@link RequestHelper#splitRequest}) concurrently
+ * on a bounded thread pool. If the pool is saturated, the chunk is executed by the calling
+ * thread, so a burst of requests slows down instead of failing. The tasks passed to this class
+ * should only send a single HTTP request and must not use the executor themselves.
+ *
+ * <p>An instance created without Spring (or with {@code request.parallelism} lower than 2)
+ * executes all tasks sequentially in the calling thread.
+ */
+@Component
+public class RequestExecutor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutor.class);
+
+  @Value("${request.parallelism}")
+  private int parallelism;
+
+  @Value("${request.queueSize}")
+  private int queueSize;
+
+  private ExecutorService executor;
+
+  /**
+   * Creates the thread pool used to execute the requests.
+   */
+  @PostConstruct
+  public void start() {
+    if (parallelism < 2) {
+      LOGGER.info("Split requests will be executed sequentially");
+      return;
+    }
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism,
+        60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+        new ThreadFactoryBuilder().setNameFormat("request-executor-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.allowCoreThreadTimeOut(true);
+
+    executor = pool;
+  }
+
+  /**
+   * Stops the thread pool. Requests that are still running are interrupted.
+   */
+  @PreDestroy
+  public void stop() {
+    if (null != executor) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Executes all tasks and returns their results in the order of the tasks. The first task is
+   * executed by the calling thread. If any task fails, its exception is rethrown and the
+   * remaining tasks are cancelled.
+   *
+   * @param tasks tasks to execute.
+   * @return results of the tasks.
+   */
+  public <R> List<R> invokeAll(List<Supplier<R>> tasks) {
+    if (null == executor || tasks.size() < 2) {
+      return tasks.stream().map(Supplier::get).collect(Collectors.toList());
+    }
+
+    List<Future<R>> futures = new ArrayList<>(tasks.size() - 1);
+    List<R> results = new ArrayList<>(tasks.size());
+
+    try {
+      for (Supplier<R> task : tasks.subList(1, tasks.size())) {
+        futures.add(executor.submit(task::get));
+      }
+
+      results.add(tasks.get(0).get());
+
+      for (Future<R> future : futures) {
+        results.add(getResult(future));
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+
+    return results;
+  }
+
+  /**
+   * Executes all tasks and passes their results to the consumer in the order of the tasks. Each
+   * result is passed as soon as it and all results of the preceding tasks are available, so the
+   * results can be processed while later tasks are still running. The consumer is always called
+   * by the calling thread. If any task fails, its exception is rethrown and the remaining tasks
+   * are cancelled.
+   *
+   * @param tasks    tasks to execute.
+   * @param consumer consumer of the results.
+   */
+  public <R> void invokeAll(List<Supplier<R>> tasks, Consumer<? super R> consumer) {
+    if (null == executor || tasks.size() < 2) {
+      tasks.forEach(task -> consumer.accept(task.get()));
+      return;
+    }
+
+    List<Future<R>> futures = new ArrayList<>(tasks.size() - 1);
+
+    try {
+      for (Supplier<R> task : tasks.subList(1, tasks.size())) {
+        futures.add(executor.submit(task::get));
+      }
+
+      consumer.accept(tasks.get(0).get());
+
+      for (Future<R> future : futures) {
+        consumer.accept(getResult(future));
+      }
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+  }
+
+  private static <R> R getResult(Future<R> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a request", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+
+      throw new IllegalStateException(ex);
+    }
+  }
+}
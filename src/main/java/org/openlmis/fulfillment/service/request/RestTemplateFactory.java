@@ -0,0 +1,148 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Creates {@link RestTemplate} instances backed by a pooled Apache HTTP client. Each downstream
+ * service (referencedata, auth, notification, ...) has its own connection pool, so a slow service
+ * cannot use up the connections of the others. Connections are kept alive and reused between
+ * requests, and responses are requested gzip compressed.
+ *
+ * <p>The client of a service is configured with the {@code http.client.<service>.<setting>}
+ * properties. If a setting is not defined for the given service, the value of
+ * {@code http.client.default.<setting>} is used. Supported settings are {@code connectTimeout},
+ * {@code readTimeout}, {@code connectionRequestTimeout}, {@code maxConnections} (per route and in
+ * total), {@code keepAlive} (all in milliseconds except the number of connections) and
+ * {@code compression}.
+ */
+@Component
+public class RestTemplateFactory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RestTemplateFactory.class);
+
+  static final String PROPERTY_PREFIX = "http.client.";
+  static final String DEFAULT_SERVICE = "default";
+
+  @Autowired
+  private Environment environment;
+
+  private final Map<String, HttpComponentsClientHttpRequestFactory> requestFactories =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new {@link RestTemplate} for the given service. Templates created for the same
+   * service share the connection pool, but can be customized (for example with an error handler)
+   * independently.
+   *
+   * @param serviceName name of the downstream service.
+   * @return a new rest template.
+   */
+  public RestTemplate create(String serviceName) {
+    return new RestTemplate(getRequestFactory(serviceName));
+  }
+
+  /**
+   * Returns the request factory with the connection pool of the given service.
+   */
+  public ClientHttpRequestFactory getRequestFactory(String serviceName) {
+    return requestFactories.computeIfAbsent(serviceName, this::createRequestFactory);
+  }
+
+  /**
+   * Closes all connection pools.
+   */
+  @PreDestroy
+  public void close() {
+    requestFactories.forEach((name, factory) -> {
+      try {
+        ((CloseableHttpClient) factory.getHttpClient()).close();
+      } catch (IOException ex) {
+        LOGGER.warn("Unable to close http client for {}", name, ex);
+      }
+    });
+    requestFactories.clear();
+  }
+
+  private HttpComponentsClientHttpRequestFactory createRequestFactory(String serviceName) {
+    final int maxConnections = getProperty(serviceName, "maxConnections", Integer.class);
+    final long keepAlive = getProperty(serviceName, "keepAlive", Long.class);
+    final boolean compression = getProperty(serviceName, "compression", Boolean.class);
+
+    RequestConfig requestConfig = RequestConfig
+        .custom()
+        .setConnectTimeout(getProperty(serviceName, "connectTimeout", Integer.class))
+        .setSocketTimeout(getProperty(serviceName, "readTimeout", Integer.class))
+        .setConnectionRequestTimeout(
+            getProperty(serviceName, "connectionRequestTimeout", Integer.class))
+        .build();
+
+    LOGGER.info("Creating http client for {} with {}, max connections {}, keep alive {}ms, "
+        + "compression {}", serviceName, requestConfig, maxConnections, keepAlive, compression);
+
+    PoolingHttpClientConnectionManager connectionManager =
+        new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnections);
+    connectionManager.setValidateAfterInactivity(1000);
+
+    HttpClientBuilder builder = HttpClientBuilder
+        .create()
+        .useSystemProperties()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy((response, context) -> {
+          long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+              .getKeepAliveDuration(response, context);
+          return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+        })
+        .evictExpiredConnections()
+        .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+
+    if (!compression) {
+      builder.disableContentCompression();
+    }
+
+    CloseableHttpClient httpClient = builder.build();
+
+    return new HttpComponentsClientHttpRequestFactory(httpClient);
+  }
+
+  private <V> V getProperty(String serviceName, String setting, Class<V> type) {
+    V value = environment.getProperty(PROPERTY_PREFIX + serviceName + '.' + setting, type);
+
+    return null == value
+        ? environment.getRequiredProperty(PROPERTY_PREFIX + DEFAULT_SERVICE + '.' + setting, type)
+        : value;
+  }
+}
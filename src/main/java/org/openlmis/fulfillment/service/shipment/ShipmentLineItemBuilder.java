@@ -17,7 +17,6 @@ package org.openlmis.fulfillment.service.shipment;
 
 import static java.lang.Long.parseLong;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang.StringUtils.isEmpty;
 import static org.apache.commons.lang.StringUtils.isNumeric;
 import static org.openlmis.fulfillment.util.FileColumnKeyPath.ALL_REQUIRED_COLUMN_PATHS;
@@ -35,8 +34,8 @@ import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.ShipmentLineItem;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.service.FulfillmentException;
+import org.openlmis.fulfillment.service.referencedata.OrderableCatalog;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
-import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.web.util.VersionIdentityDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -47,7 +46,7 @@ public class ShipmentLineItemBuilder {
   private static final String LINE_ITEM = "lineItem";
 
   @Autowired
-  private OrderableReferenceDataService orderableService;
+  private OrderableCatalog orderableCatalog;
 
   /**
    * Builds shipment line item objects from parsed CSV data.
@@ -69,13 +68,7 @@ public class ShipmentLineItemBuilder {
 
     ImportedShipmentLineItemData result = new ImportedShipmentLineItemData();
     // Initialize and cache variables that would be used repeatedly for each row.
-    List<OrderableDto> orderables = orderableService.findAll();
-    Map<String, OrderableDto> orderableDtoMap = orderables
-        .stream()
-        .collect(toMap(orderable -> (PRODUCT_CODE.equals(orderableColumn.getFileColumnKeyPathEnum())
-            ? orderable.getProductCode()
-            : orderable.getId().toString()),
-            orderable -> orderable));
+    Map<String, OrderableDto> orderableDtoMap = getOrderables(orderableColumn, lines);
 
     List<FileColumn> extraDataFields = template.getFileColumns()
         .stream()
@@ -111,6 +104,28 @@ public class ShipmentLineItemBuilder {
     return result;
   }
 
+  private Map<String, OrderableDto> getOrderables(FileColumn orderableColumn,
+      List<CSVRecord> lines) {
+    Map<String, OrderableDto> orderables = getOrderables(orderableColumn,
+        orderableCatalog.getSnapshot());
+
+    boolean unknownOrderable = lines
+        .stream()
+        .anyMatch(row -> !orderables.containsKey(row.get(orderableColumn.getPosition())));
+
+    // the orderable could have been added after the catalog snapshot was taken
+    return unknownOrderable
+        ? getOrderables(orderableColumn, orderableCatalog.refresh())
+        : orderables;
+  }
+
+  private Map<String, OrderableDto> getOrderables(FileColumn orderableColumn,
+      OrderableCatalog.Snapshot catalog) {
+    return PRODUCT_CODE.equals(orderableColumn.getFileColumnKeyPathEnum())
+        ? catalog.getByProductCode()
+        : catalog.getById();
+  }
+
   private void validateOrderIdentifier(FileColumn orderColumn, String orderIdentifier,
       CSVRecord row) {
     String orderIdForRow = row.get(orderColumn.getPosition());
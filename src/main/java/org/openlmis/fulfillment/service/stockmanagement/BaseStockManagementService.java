@@ -28,4 +28,9 @@ public abstract class BaseStockManagementService<T> extends BaseCommunicationSer
     return stockmanagementUrl;
   }
 
+  @Override
+  protected String getServiceName() {
+    return "stockmanagement";
+  }
+
 }
@@ -18,27 +18,32 @@ package org.openlmis.fulfillment.util;
 import static org.openlmis.fulfillment.i18n.MessageKeys.USER_NOT_FOUND;
 
 import java.util.UUID;
+import org.openlmis.fulfillment.service.referencedata.RightCatalog;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
-import org.openlmis.fulfillment.service.referencedata.RightReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Component
 public class AuthenticationHelper {
+  private static final String CURRENT_USER_ATTRIBUTE =
+      AuthenticationHelper.class.getName() + ".currentUser";
 
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
   @Autowired
-  private RightReferenceDataService rightReferenceDataService;
+  private RightCatalog rightCatalog;
 
   /**
    * Method returns current user based on Spring context
-   * and fetches his data from reference-data service.
+   * and fetches his data from reference-data service. Within an HTTP request the user is fetched
+   * only once and remembered for the rest of the request.
    *
    * @return UserDto entity of current user.
    * @throws AuthenticationException if user cannot be found.
@@ -50,25 +55,51 @@ public class AuthenticationHelper {
 
     if (!authentication.isClientOnly()) {
       UUID userId = (UUID) authentication.getPrincipal();
-      user = userReferenceDataService.findOne(userId);
+      RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+      String attributeName = CURRENT_USER_ATTRIBUTE + '.' + userId;
+
+      if (null != attributes) {
+        user = (UserDto) attributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+      }
+
+      if (null == user) {
+        user = userReferenceDataService.findOne(userId);
+      }
 
       if (user == null) {
         throw new AuthenticationException(USER_NOT_FOUND, userId.toString());
       }
+
+      if (null != attributes) {
+        attributes.setAttribute(attributeName, user, RequestAttributes.SCOPE_REQUEST);
+      }
     }
 
     return user;
   }
 
   /**
-   * Method returns a correct right and fetches his data from reference-data service.
+   * Method returns id of the current user based on Spring context, without fetching the user
+   * from reference-data service.
+   *
+   * @return id of the current user or {@code null} if the request was made with a service token.
+   */
+  public UUID getCurrentUserId() {
+    OAuth2Authentication authentication =
+        (OAuth2Authentication) SecurityContextHolder.getContext().getAuthentication();
+
+    return authentication.isClientOnly() ? null : (UUID) authentication.getPrincipal();
+  }
+
+  /**
+   * Method returns a correct right from the local right catalogue.
    *
    * @param name right name
    * @return RightDto entity of right.
    * @throws AuthenticationException if right cannot be found.
    */
   public RightDto getRight(String name) {
-    RightDto right = rightReferenceDataService.findRight(name);
+    RightDto right = rightCatalog.findRight(name);
 
     if (null == right) {
       throw new AuthenticationException("Right with name \"" + name + "\" not found");
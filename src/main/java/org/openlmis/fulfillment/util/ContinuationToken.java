@@ -0,0 +1,89 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_CONTINUATION_TOKEN_INVALID;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.web.ValidationException;
+
+/**
+ * Position in a list of orders sorted by the created date and id (both descending), used by the
+ * keyset pagination. The position is passed to clients as an opaque string.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ContinuationToken {
+  private static final String SEPARATOR = "|";
+
+  private final ZonedDateTime createdDate;
+  private final UUID id;
+
+  /**
+   * Creates a token that points right after the given order.
+   */
+  public static ContinuationToken after(Order order) {
+    return new ContinuationToken(
+        order.getCreatedDate().withZoneSameInstant(ZoneOffset.UTC), order.getId());
+  }
+
+  /**
+   * Decodes the token from its string form.
+   *
+   * @param value the token returned by {@link #encode()}.
+   * @return the token or {@code null} if the value is blank.
+   * @throws ValidationException if the value is not a valid token.
+   */
+  public static ContinuationToken decode(String value) {
+    if (null == value || value.trim().isEmpty()) {
+      return null;
+    }
+
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(value), UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+
+      return new ContinuationToken(
+          Instant.parse(decoded.substring(0, separator)).atZone(ZoneOffset.UTC),
+          UUID.fromString(decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException
+        | StringIndexOutOfBoundsException ex) {
+      throw new ValidationException(ex, ORDER_CONTINUATION_TOKEN_INVALID, value);
+    }
+  }
+
+  /**
+   * Returns the string form of the token.
+   */
+  public String encode() {
+    String value = createdDate.toInstant().toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.openlmis.fulfillment.i18n.MessageKeys.COUNT_STRATEGY_INVALID;
+
+import org.openlmis.fulfillment.web.ValidationException;
+
+/**
+ * Defines how the total number of elements is computed for a page of search results.
+ * <ul>
+ *   <li>{@link #NONE} - no count query is run. The total is exact only on the last page,
+ *   otherwise it is a lower bound that shows there is at least one more page.</li>
+ *   <li>{@link #ESTIMATE} - the total is taken from the row estimate of the database query
+ *   planner. It is cheap but may be inaccurate, especially with many filters.</li>
+ *   <li>{@link #EXACT} - the total is computed with a count query (the default).</li>
+ * </ul>
+ */
+public enum CountStrategy {
+  NONE, ESTIMATE, EXACT;
+
+  /**
+   * Parses the given value, ignoring case. If the value is blank, {@link #EXACT} is returned.
+   *
+   * @param value the count strategy name.
+   * @return the count strategy.
+   * @throws ValidationException if the value is not a valid count strategy.
+   */
+  public static CountStrategy fromString(String value) {
+    if (isBlank(value)) {
+      return EXACT;
+    }
+
+    for (CountStrategy strategy : values()) {
+      if (equalsIgnoreCase(value, strategy.name())) {
+        return strategy;
+      }
+    }
+
+    throw new ValidationException(COUNT_STRATEGY_INVALID, value);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import java.util.List;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * A page that also tells how its total number of elements was computed. If the strategy is not
+ * {@link CountStrategy#EXACT}, the total may not be the real number of matching elements.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+  private static final long serialVersionUID = -4096223839472345321L;
+
+  private final CountStrategy countStrategy;
+
+  public CountedPage(List<T> content, Pageable pageable, long total,
+      CountStrategy countStrategy) {
+    super(content, pageable, total);
+    this.countStrategy = countStrategy;
+  }
+
+  public CountStrategy getCountStrategy() {
+    return countStrategy;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import java.util.List;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A page of a keyset paginated list. Unlike {@link org.springframework.data.domain.Page} it does
+ * not contain the total number of elements. The next page is requested with the
+ * {@code continuationToken}, which is {@code null} on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+  private final List<T> content;
+  private final int size;
+  private final String continuationToken;
+
+  public int getNumberOfElements() {
+    return content.size();
+  }
+
+  public boolean isLast() {
+    return null == continuationToken;
+  }
+
+  /**
+   * Returns a page with the given content and the same size and continuation token.
+   */
+  public <R> KeysetPage<R> withContent(Function<List<T>, List<R>> converter) {
+    return new KeysetPage<>(converter.apply(content), size, continuationToken);
+  }
+}
@@ -15,53 +15,77 @@
 
 package org.openlmis.fulfillment.util;
 
+import com.google.common.collect.Maps;
 import java.lang.reflect.Array;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Map;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import lombok.AccessLevel;
 import lombok.Getter;
-import org.apache.commons.collections.CollectionUtils;
 import org.openlmis.fulfillment.service.PageDto;
+import org.openlmis.fulfillment.web.util.BaseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+/**
+ * Merges the responses of a split request into a single response. Chunks can be passed all at
+ * once ({@link #ofArrays(List)}, {@link #ofPages(List)}) or added one by one with
+ * {@link #add(Object)} ({@link #ofArrays(int)}, {@link #ofPages(int)}).
+ *
+ * <p>Elements that extend {@link BaseDto} and have an id are deduplicated by that id, so the
+ * merge never has to compare or hash whole DTOs. Other elements are deduplicated with their
+ * {@code equals} method. The order in which elements were added is kept.
+ */
 @Getter(AccessLevel.PACKAGE)
 // we keep implementation classes inside this one to give a single access point by ofXXX methods.
 @SuppressWarnings("PMD.TooManyMethods")
 public abstract class Merger<T> {
-  private List<T> elements;
+  private final int expectedChunks;
   private Supplier<T> defaultValue;
+  private T first;
+  private int chunks;
 
-  private Merger(List<T> elements) {
-    this.elements = elements;
+  private Merger(int expectedChunks) {
+    this.expectedChunks = expectedChunks;
     this.defaultValue = () -> null;
   }
 
   public static <E> Merger<E[]> ofArrays(List<E[]> elements) {
-    return of(elements).orElseGet(() -> new ArraysMerger<>(elements));
+    return addAll(new ArraysMerger<>(size(elements)), elements);
   }
 
-  public static <E> Merger<PageDto<E>> ofPages(
-      List<PageDto<E>> elements) {
-    return of(elements).orElseGet(() -> new PageMerger<>(elements));
+  /**
+   * Creates a merger for the given number of array chunks which are added with
+   * {@link #add(Object)}.
+   */
+  public static <E> Merger<E[]> ofArrays(int expectedChunks) {
+    return new ArraysMerger<>(expectedChunks);
   }
 
-  private static <E> Optional<Merger<E>> of(List<E> elements) {
-    if (CollectionUtils.isEmpty(elements)) {
-      return Optional.of(new EmptyMerger<>());
-    }
+  public static <E> Merger<PageDto<E>> ofPages(List<PageDto<E>> elements) {
+    return addAll(new PageMerger<>(size(elements)), elements);
+  }
+
+  /**
+   * Creates a merger for the given number of page chunks which are added with
+   * {@link #add(Object)}.
+   */
+  public static <E> Merger<PageDto<E>> ofPages(int expectedChunks) {
+    return new PageMerger<>(expectedChunks);
+  }
 
-    if (elements.size() == 1) {
-      return Optional.of(new SingleMerger<>(elements));
+  private static <E> Merger<E> addAll(Merger<E> merger, List<E> elements) {
+    if (null != elements) {
+      elements.forEach(merger::add);
     }
 
-    return Optional.empty();
+    return merger;
+  }
+
+  private static int size(List<?> elements) {
+    return null == elements ? 0 : elements.size();
   }
 
   public Merger<T> withDefaultValue(Supplier<T> defaultValue) {
@@ -69,71 +93,141 @@ public abstract class Merger<T> {
     return this;
   }
 
-  public abstract T merge();
+  /**
+   * Adds a chunk to the merge. A single chunk is returned by {@link #merge()} as it is, so the
+   * elements are indexed only once the second chunk arrives. {@code null} chunks are ignored.
+   */
+  public Merger<T> add(T chunk) {
+    if (null == chunk) {
+      return this;
+    }
 
-  private static final class EmptyMerger<T> extends Merger<T> {
+    ++chunks;
 
-    private EmptyMerger() {
-      super(Collections.emptyList());
+    if (chunks == 1) {
+      first = chunk;
+      return this;
     }
 
-    @Override
-    public T merge() {
-      return getDefaultValue().get();
+    if (chunks == 2) {
+      index(first, sizeOf(first) * Math.max(expectedChunks, 2));
     }
 
+    index(chunk, 0);
+    return this;
   }
 
-  private static final class SingleMerger<T> extends Merger<T> {
-
-    private SingleMerger(List<T> elements) {
-      super(elements);
+  /**
+   * Returns the merged chunks, the only chunk that was added or the default value if there were
+   * no chunks at all.
+   */
+  public T merge() {
+    if (chunks == 0) {
+      return defaultValue.get();
     }
 
-    @Override
-    public T merge() {
-      return getElements().get(0);
+    return chunks == 1 ? first : combine();
+  }
+
+  abstract int sizeOf(T chunk);
+
+  /**
+   * Adds elements of the given chunk to the index. The expected size is only passed for the
+   * first indexed chunk and is used to pre-size the index.
+   */
+  abstract void index(T chunk, int expectedSize);
+
+  abstract T combine();
+
+  private static Object keyOf(Object element) {
+    if (element instanceof BaseDto && null != ((BaseDto) element).getId()) {
+      return ((BaseDto) element).getId();
     }
+
+    return element;
   }
 
+  private static final class ElementIndex<E> {
+    private final Map<Object, E> elements;
+
+    private ElementIndex(int expectedSize) {
+      this.elements = Maps.newLinkedHashMapWithExpectedSize(expectedSize);
+    }
+
+    private void add(E element) {
+      elements.putIfAbsent(keyOf(element), element);
+    }
+
+    private int size() {
+      return elements.size();
+    }
+
+    private Collection<E> values() {
+      return elements.values();
+    }
+  }
 
   private static final class ArraysMerger<T> extends Merger<T[]> {
+    private ElementIndex<T> index;
 
-    private ArraysMerger(List<T[]> elements) {
-      super(elements);
+    private ArraysMerger(int expectedChunks) {
+      super(expectedChunks);
     }
 
     @Override
-    public T[] merge() {
-      return getElements()
-          .stream()
-          .filter(Objects::nonNull)
-          .flatMap(Arrays::stream)
-          .distinct()
-          .toArray(size -> {
-            Class<?> componentType = getElements().get(0).getClass().getComponentType();
-            return (T[]) Array.newInstance(componentType, size);
-          });
+    int sizeOf(T[] chunk) {
+      return chunk.length;
+    }
+
+    @Override
+    void index(T[] chunk, int expectedSize) {
+      if (null == index) {
+        index = new ElementIndex<>(expectedSize);
+      }
+
+      for (T element : chunk) {
+        index.add(element);
+      }
+    }
+
+    @Override
+    T[] combine() {
+      Class<?> componentType = getFirst().getClass().getComponentType();
+      T[] result = (T[]) Array.newInstance(componentType, index.size());
+
+      return index.values().toArray(result);
     }
   }
 
   private static final class PageMerger<T> extends Merger<PageDto<T>> {
+    private ElementIndex<T> index;
+
+    private PageMerger(int expectedChunks) {
+      super(expectedChunks);
+    }
 
-    private PageMerger(List<PageDto<T>> elements) {
-      super(elements);
+    @Override
+    int sizeOf(PageDto<T> chunk) {
+      return null == chunk.getContent() ? 0 : chunk.getContent().size();
     }
 
     @Override
-    public PageDto<T> merge() {
-      List<T> content = getElements()
-          .stream()
-          .filter(Objects::nonNull)
-          .map(PageDto::getContent)
-          .flatMap(Collection::stream)
-          .distinct()
-          .collect(Collectors.toList());
-
-      Page<T> page = Pagination.getPage(content, PageRequest.of(0, content.size()));
+    void index(PageDto<T> chunk, int expectedSize) {
+      if (null == index) {
+        index = new ElementIndex<>(expectedSize);
+      }
+
+      if (null != chunk.getContent()) {
+        chunk.getContent().forEach(index::add);
+      }
+    }
+
+    @Override
+    PageDto<T> combine() {
+      List<T> content = new ArrayList<>(index.values());
+
+      Page<T> page = Pagination
+          .getPage(content, PageRequest.of(0, Math.max(content.size(), 1)));
       return new PageDto<>(page);
     }
   }
@@ -19,10 +19,16 @@ import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_EXISTS;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_NOT_FOUND_OR_WRONG_STATUS;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_RETRY_INVALID_STATUS;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_STREAM_INCOMPLETE;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
@@ -43,6 +49,7 @@ import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.fulfillment.domain.Shipment;
 import org.openlmis.fulfillment.domain.ShipmentLineItem;
 import org.openlmis.fulfillment.domain.Template;
+import org.openlmis.fulfillment.i18n.MessageService;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.fulfillment.service.ExporterBuilder;
 import org.openlmis.fulfillment.service.FileTemplateService;
@@ -56,12 +63,18 @@ import org.openlmis.fulfillment.service.TemplateService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.report.ReportService;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
+import org.openlmis.fulfillment.util.KeysetPage;
+import org.openlmis.fulfillment.util.Message;
 import org.openlmis.fulfillment.web.util.BasicOrderDto;
 import org.openlmis.fulfillment.web.util.BasicOrderDtoBuilder;
+import org.openlmis.fulfillment.web.util.BasicOrderDtoStreamWriter;
 import org.openlmis.fulfillment.web.util.IdsDto;
 import org.openlmis.fulfillment.web.util.OrderDto;
 import org.openlmis.fulfillment.web.util.OrderDtoBuilder;
 import org.openlmis.fulfillment.web.util.OrderReportDto;
+import org.openlmis.fulfillment.web.util.OrderStreamFormat;
 import org.openlmis.fulfillment.web.validator.OrderValidator;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
@@ -69,7 +82,6 @@ import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -138,6 +150,12 @@ public class OrderController extends BaseController {
   @Autowired
   private ExporterBuilder exporter;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MessageService messageService;
+
   @Value("${groupingSeparator}")
   private String groupingSeparator;
 
@@ -165,7 +183,7 @@ public class OrderController extends BaseController {
       }
     }
 
-    Order order = createSingleOrder(orderDto, authentication);
+    Order order = createSingleOrder(orderDto, !authentication.isClientOnly());
     return orderDtoBuilder.build(order);
   }
 
@@ -251,7 +269,8 @@ public class OrderController extends BaseController {
 
   /**
    * Allows creating multiple new orders at once in a single transaction.
-   * If the id is specified for any of the orders, it will be ignored.
+   * If the id is specified for any of the orders, it will be ignored. The rights to edit orders
+   * of all supplying facilities are checked before any order is created.
    *
    * @param orders A list of orders to be created
    * @return a list of newly created or existing orders for provided externalIds
@@ -261,9 +280,14 @@ public class OrderController extends BaseController {
   @ResponseBody
   public Iterable<BasicOrderDto> batchCreateOrders(@RequestBody List<OrderDto> orders,
                                                    OAuth2Authentication authentication) {
+    if (!authentication.isClientOnly()) {
+      XLOGGER.debug("Checking rights to create {} orders", orders.size());
+      permissionService.canEditOrders(orders);
+    }
+
     List<Order> newOrders = orders
         .stream()
-        .map(order -> createSingleOrder(order, authentication))
+        .map(order -> createSingleOrder(order, false))
         .collect(Collectors.toList());
     return basicOrderDtoBuilder.build(newOrders);
   }
@@ -272,33 +296,125 @@ public class OrderController extends BaseController {
    * Search through orders with given parameters.
    *
    * @param params   order search params
+   * @param count    how the total number of orders is computed: none, estimate or exact
+   *                 (default)
    * @param pageable pagination parameters
    * @return OrderDtos.
    */
+  @Transactional(readOnly = true)
   @GetMapping("/orders")
   @ResponseBody
-  public Page<BasicOrderDto> searchOrders(OrderSearchParams params, Pageable pageable) {
+  public Page<BasicOrderDto> searchOrders(OrderSearchParams params,
+      @RequestParam(name = "count", required = false) String count, Pageable pageable) {
     Profiler profiler = new Profiler("SEARCH_ORDERS");
     profiler.setLogger(XLOGGER);
 
+    CountStrategy countStrategy = CountStrategy.fromString(count);
+
     profiler.start("SEARCH_ORDERS_IN_SERVICE");
-    Page<Order> orders = orderService.searchOrders(params, pageable);
+    Page<Order> orders = orderService.searchOrderSummaries(params, pageable, countStrategy);
 
     profiler.start("TO_DTO");
     List<BasicOrderDto> dtos = basicOrderDtoBuilder.build(orders.getContent());
-    Page<BasicOrderDto> dtoPage = new PageImpl<>(
+    Page<BasicOrderDto> dtoPage = new CountedPage<>(
         dtos,
-        pageable, orders.getTotalElements());
+        pageable, orders.getTotalElements(), countStrategy);
 
     profiler.stop().log();
     return dtoPage;
   }
 
+  /**
+   * Search through orders with given parameters using keyset pagination. Orders are sorted by the
+   * created date and id (both descending) and the total number of orders is not counted, so deep
+   * pages are as cheap as the first one. The next page is retrieved with the continuation token
+   * returned with the previous page.
+   *
+   * @param params            order search params
+   * @param continuationToken continuation token returned with the previous page
+   * @param pageable          pagination parameters, only the page size is used
+   * @return page of OrderDtos.
+   */
+  @Transactional(readOnly = true)
+  @GetMapping(value = "/orders", params = "keyset=true")
+  @ResponseBody
+  public KeysetPage<BasicOrderDto> seekOrders(OrderSearchParams params,
+      @RequestParam(name = "continuationToken", required = false) String continuationToken,
+      Pageable pageable) {
+    Profiler profiler = new Profiler("SEEK_ORDERS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("SEEK_ORDERS_IN_SERVICE");
+    KeysetPage<Order> orders = orderService
+        .seekOrders(params, continuationToken, pageable.getPageSize());
+
+    profiler.start("TO_DTO");
+    KeysetPage<BasicOrderDto> dtoPage = orders.withContent(basicOrderDtoBuilder::build);
+
+    profiler.stop().log();
+    return dtoPage;
+  }
+
+  /**
+   * Streams all orders matching the given parameters as NDJSON or CSV. Orders are read from the
+   * database with a cursor and written to the response in chunks, so the memory usage does not
+   * depend on the number of orders. Reference data is retrieved once per chunk. Orders are sorted
+   * by the created date and id (both descending). If the stream fails after the response has
+   * been committed, an error record is written as the last line.
+   *
+   * @param params   order search params
+   * @param format   output format, ndjson (default) or csv
+   * @param response HttpServletResponse object
+   */
+  @Transactional(readOnly = true)
+  @GetMapping("/orders/stream")
+  public void streamOrders(OrderSearchParams params,
+      @RequestParam(name = "format", required = false) String format,
+      HttpServletResponse response) throws IOException {
+    OrderStreamFormat streamFormat = OrderStreamFormat.fromString(format);
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(streamFormat.getContentType());
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+    BasicOrderDtoStreamWriter dtoWriter =
+        new BasicOrderDtoStreamWriter(streamFormat, writer, objectMapper);
+
+    try {
+      orderService.streamOrderSummaries(params, orders -> {
+        try {
+          dtoWriter.write(basicOrderDtoBuilder.build(orders));
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      });
+    } catch (UncheckedIOException ex) {
+      XLOGGER.warn("Unable to stream orders: {}", ex.getMessage());
+      throw ex.getCause();
+    } catch (RuntimeException ex) {
+      if (!response.isCommitted()) {
+        // nothing has been sent yet, so the error handlers can still set the error status
+        throw ex;
+      }
+
+      // the status and some orders have already been sent, so the error record is the only way
+      // to tell the client that the output is incomplete
+      XLOGGER.error("Order stream failed after {} orders", dtoWriter.getWrittenCount(), ex);
+      dtoWriter.writeError(messageService.localize(
+          new Message(ORDER_STREAM_INCOMPLETE, dtoWriter.getWrittenCount())));
+    }
+
+    dtoWriter.close();
+  }
+
   /**
    * Get information about number of orders.
    *
    * @return Data regarding number of orders to be executed and received.
    */
+  @Transactional(readOnly = true)
   @GetMapping("/orders/numberOfOrdersData")
   @ResponseBody
   public NumberOfOrdersData getOrdersData() {
@@ -317,6 +433,7 @@ public class OrderController extends BaseController {
    *
    * @return Orders statistics data.
    */
+  @Transactional(readOnly = true)
   @GetMapping("/orders/statusesStatsData")
   @ResponseBody
   public OrderStatsData getOrderStatusesStatsData() {
@@ -340,6 +457,7 @@ public class OrderController extends BaseController {
    * @param expand  a set of field names to expand
    * @return OrderDto.
    */
+  @Transactional(readOnly = true)
   @RequestMapping(value = "/orders/{id}", method = RequestMethod.GET)
   @ResponseBody
   public OrderDto getOrder(@PathVariable("id") UUID orderId,
@@ -356,13 +474,14 @@ public class OrderController extends BaseController {
   /**
    * Retrieves the distinct UUIDs of the available requesting facilities.
    */
+  @Transactional(readOnly = true)
   @RequestMapping(value = "/orders/requestingFacilities", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
   public List<UUID> getRequestingFacilities(
       @RequestParam(name = "supplyingFacilityId", required = false)
       List<UUID> supplyingFacilityIds) {
-    return orderRepository.getRequestingFacilities(supplyingFacilityIds);
+    return orderService.getRequestingFacilities(supplyingFacilityIds);
   }
 
   /**
@@ -547,8 +666,7 @@ public class OrderController extends BaseController {
     }
   }
 
-  private Order createSingleOrder(OrderDto orderDto,
-                                  OAuth2Authentication authentication) {
+  private Order createSingleOrder(OrderDto orderDto, boolean checkRights) {
 
     XLOGGER.entry(orderDto);
     Profiler profiler = new Profiler("CREATE_SINGLE_ORDER");
@@ -568,7 +686,7 @@ public class OrderController extends BaseController {
     profiler.start("CHECK_PERMISSIONS");
     UserDto currentUser = authenticationHelper.getCurrentUser();
 
-    if (!authentication.isClientOnly()) {
+    if (checkRights) {
       XLOGGER.debug("Checking rights to create order");
       permissionService.canEditOrder(orderDto);
     }
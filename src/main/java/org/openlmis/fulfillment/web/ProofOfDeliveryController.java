@@ -49,8 +49,9 @@ import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataServ
 import org.openlmis.fulfillment.service.report.ReportService;
 import org.openlmis.fulfillment.service.stockmanagement.StockEventStockManagementService;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.openlmis.fulfillment.util.DateHelper;
-import org.openlmis.fulfillment.util.Pagination;
 import org.openlmis.fulfillment.web.stockmanagement.StockEventDto;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDto;
 import org.openlmis.fulfillment.web.util.ProofOfDeliveryDtoBuilder;
@@ -149,24 +150,30 @@ public class ProofOfDeliveryController extends BaseController {
   /**
    * Get all proofs of delivery.
    *
+   * @param count how the total number of PODs is computed: none, estimate or exact (default)
    * @return proofs of delivery.
    */
+  @Transactional(readOnly = true)
   @RequestMapping(value = "/proofsOfDelivery", method = RequestMethod.GET)
   @ResponseBody
   public Page<ProofOfDeliveryDto> getAllProofsOfDelivery(
       @RequestParam(required = false) UUID orderId,
       @RequestParam(required = false) UUID shipmentId,
+      @RequestParam(name = "count", required = false) String count,
       Pageable pageable) {
     XLOGGER.entry(shipmentId, pageable);
     Profiler profiler = new Profiler("GET_PODS");
     profiler.setLogger(XLOGGER);
 
+    CountStrategy countStrategy = CountStrategy.fromString(count);
+
     profiler.start("SEARCH_PODS_SERVICE");
-    Page<ProofOfDelivery> result = proofOfDeliveryService.search(shipmentId, orderId, pageable);
+    Page<ProofOfDelivery> result = proofOfDeliveryService.search(shipmentId, orderId, pageable,
+        countStrategy);
 
     profiler.start("BUILD_DTO_PAGE");
-    Page<ProofOfDeliveryDto> dtoPage = Pagination.getPage(dtoBuilder.build(result.getContent()),
-        pageable, result.getTotalElements());
+    Page<ProofOfDeliveryDto> dtoPage = new CountedPage<>(dtoBuilder.build(result.getContent()),
+        pageable, result.getTotalElements(), countStrategy);
 
     profiler.stop().log();
     XLOGGER.exit(dtoPage);
@@ -255,6 +262,7 @@ public class ProofOfDeliveryController extends BaseController {
    * @param id UUID of proofOfDelivery whose we want to get
    * @return ProofOfDelivery.
    */
+  @Transactional(readOnly = true)
   @RequestMapping(value = "/proofsOfDelivery/{id}", method = RequestMethod.GET)
   @ResponseBody
   public ProofOfDeliveryDto getProofOfDelivery(@PathVariable("id") UUID id,
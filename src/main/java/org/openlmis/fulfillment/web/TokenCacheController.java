@@ -0,0 +1,77 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web;
+
+import static org.openlmis.fulfillment.i18n.MessageKeys.ACCESS_TOKEN_REQUIRED;
+
+import org.openlmis.fulfillment.security.CustomTokenServices;
+import org.openlmis.fulfillment.service.PermissionService;
+import org.openlmis.fulfillment.web.util.AccessTokenDto;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Lets the auth service (with the service token) or an administrator remove access tokens from
+ * the validated token cache, so a revoked token is rejected right away instead of being accepted
+ * until it leaves the cache.
+ */
+@Controller
+public class TokenCacheController extends BaseController {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(TokenCacheController.class);
+
+  @Autowired
+  private CustomTokenServices tokenServices;
+
+  @Autowired
+  private PermissionService permissionService;
+
+  /**
+   * Removes the given revoked access token from the cache. The next request with the token is
+   * validated with the auth service again.
+   *
+   * @param accessToken the revoked access token.
+   */
+  @PostMapping("/tokenCache/revokedTokens")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void evictToken(@RequestBody AccessTokenDto accessToken) {
+    permissionService.canManageSystemSettings();
+
+    if (null == accessToken.getToken()) {
+      throw new ValidationException(ACCESS_TOKEN_REQUIRED);
+    }
+
+    tokenServices.evict(accessToken.getToken());
+  }
+
+  /**
+   * Removes all access tokens from the cache.
+   */
+  @DeleteMapping("/tokenCache")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void evictAllTokens() {
+    permissionService.canManageSystemSettings();
+
+    XLOGGER.info("Removing all access tokens from the token cache");
+    tokenServices.evictAll();
+  }
+}
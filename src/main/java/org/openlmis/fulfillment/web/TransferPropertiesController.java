@@ -26,6 +26,7 @@ import org.openlmis.fulfillment.domain.TransferProperties;
 import org.openlmis.fulfillment.domain.TransferType;
 import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.openlmis.fulfillment.service.ExporterBuilder;
+import org.openlmis.fulfillment.service.FulfillmentRoutingResolver;
 import org.openlmis.fulfillment.service.IncorrectTransferPropertiesException;
 import org.openlmis.fulfillment.service.PermissionService;
 import org.openlmis.fulfillment.service.TransferPropertiesService;
@@ -60,6 +61,9 @@ public class TransferPropertiesController extends BaseController {
   @Autowired
   private TransferPropertiesService transferPropertiesService;
 
+  @Autowired
+  private FulfillmentRoutingResolver fulfillmentRoutingResolver;
+
   @Autowired
   private ExporterBuilder exporter;
 
@@ -144,6 +148,7 @@ public class TransferPropertiesController extends BaseController {
     }
 
     toUpdate = transferPropertiesRepository.save(entity);
+    fulfillmentRoutingResolver.evict(toUpdate.getFacilityId());
 
     LOGGER.debug("Updated Transfer Properties with id: {}", toUpdate.getId());
 
@@ -186,6 +191,7 @@ public class TransferPropertiesController extends BaseController {
       return ResponseEntity.notFound().build();
     } else {
       transferPropertiesRepository.delete(toDelete);
+      fulfillmentRoutingResolver.evict(toDelete.getFacilityId());
       return ResponseEntity.noContent().build();
     }
   }
@@ -168,6 +168,7 @@ public class ShipmentController extends BaseController {
    * @param orderId order UUID (required).
    * @return a page of shipments.
    */
+  @Transactional(readOnly = true)
   @GetMapping
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
@@ -206,6 +207,7 @@ public class ShipmentController extends BaseController {
    * @param id UUID of shipment item which we want to get
    * @return shipment.
    */
+  @Transactional(readOnly = true)
   @GetMapping("/{id}")
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.openlmis.fulfillment.domain.Order;
@@ -60,6 +61,9 @@ public class BasicOrderDtoBuilder {
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @Autowired
+  private ReferenceDataPrefetcher prefetcher = new ReferenceDataPrefetcher();
+
   /**
    * Create a list of BasicOrderDtos based on data from the list of {@link Order}s.
    *
@@ -71,11 +75,23 @@ public class BasicOrderDtoBuilder {
     Profiler profiler = new Profiler("GET_REFERENCE_DATA");
     profiler.setLogger(XLOGGER);
 
-    Map<UUID, FacilityDto> facilities = getFacilities(orders);
-    Map<UUID, ProgramDto> programs = getPrograms(orders);
-    Map<UUID, ProcessingPeriodDto> periods = getPeriods(orders);
-    Map<UUID, UserDto> users = getUsers(orders);
-
+    profiler.start("FETCH_REFERENCE_DATA_CONCURRENTLY");
+    CompletableFuture<Map<UUID, FacilityDto>> facilitiesFuture = prefetcher
+        .fetch("GET_FACILITIES", () -> getFacilities(orders));
+    CompletableFuture<Map<UUID, ProgramDto>> programsFuture = prefetcher
+        .fetch("GET_PROGRAMS", () -> getPrograms(orders));
+    CompletableFuture<Map<UUID, ProcessingPeriodDto>> periodsFuture = prefetcher
+        .fetch("GET_PERIODS", () -> getPeriods(orders));
+    CompletableFuture<Map<UUID, UserDto>> usersFuture = prefetcher
+        .fetch("GET_USERS", () -> getUsers(orders));
+
+    profiler.start("WAIT_FOR_REFERENCE_DATA");
+    Map<UUID, FacilityDto> facilities = prefetcher.get(facilitiesFuture);
+    Map<UUID, ProgramDto> programs = prefetcher.get(programsFuture);
+    Map<UUID, ProcessingPeriodDto> periods = prefetcher.get(periodsFuture);
+    Map<UUID, UserDto> users = prefetcher.get(usersFuture);
+
+    profiler.start("BUILD_DTOS");
     List<BasicOrderDto> dtos = orders.stream()
         .map(order -> build(order, facilities, programs, periods, users))
         .collect(Collectors.toList());
@@ -0,0 +1,151 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import static java.util.Collections.singletonMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.util.Message.LocalizedMessage;
+
+/**
+ * Writes basic orders to a character stream in the given {@link OrderStreamFormat}. Orders are
+ * written in chunks and the stream is flushed after each chunk, so the client receives them
+ * while the next chunk is being read. The CSV header is written when the writer is created.
+ *
+ * <p>If the stream cannot be completed, an error record is written instead of the remaining
+ * orders: a line with a single {@code error} property for NDJSON and a comment line starting
+ * with {@code #} for CSV.
+ */
+public class BasicOrderDtoStreamWriter implements Closeable {
+  static final String[] CSV_HEADER = {"id", "orderCode", "externalId", "status", "emergency",
+      "createdDate", "createdBy", "program", "processingPeriod", "facility",
+      "requestingFacility", "receivingFacility", "supplyingFacility", "quotedCost",
+      "lastUpdatedDate", "lastUpdaterId"};
+
+  static final String ERROR_PROPERTY = "error";
+  static final char CSV_COMMENT_MARKER = '#';
+
+  private final Writer writer;
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter jsonWriter;
+  private final CSVPrinter csvPrinter;
+  private int writtenCount;
+
+  /**
+   * Creates a new writer. For the CSV format the header is written immediately.
+   *
+   * @param format       the output format.
+   * @param writer       the character stream, it is closed together with this writer.
+   * @param objectMapper the object mapper used for the NDJSON format.
+   */
+  public BasicOrderDtoStreamWriter(OrderStreamFormat format, Writer writer,
+      ObjectMapper objectMapper) throws IOException {
+    this.writer = writer;
+    this.objectMapper = objectMapper;
+
+    if (format == OrderStreamFormat.CSV) {
+      this.jsonWriter = null;
+      this.csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
+          .withHeader(CSV_HEADER)
+          .withCommentMarker(CSV_COMMENT_MARKER));
+    } else {
+      this.jsonWriter = objectMapper.writerFor(BasicOrderDto.class);
+      this.csvPrinter = null;
+    }
+  }
+
+  /**
+   * Writes the given orders and flushes the stream.
+   */
+  public void write(List<BasicOrderDto> orders) throws IOException {
+    for (BasicOrderDto order : orders) {
+      if (null == csvPrinter) {
+        writer.write(jsonWriter.writeValueAsString(order));
+        writer.write('\n');
+      } else {
+        csvPrinter.printRecord(toCsvRecord(order));
+      }
+    }
+
+    writtenCount += orders.size();
+    writer.flush();
+  }
+
+  /**
+   * Writes an error record that marks the output as incomplete and flushes the stream. No orders
+   * should be written after it.
+   */
+  public void writeError(LocalizedMessage error) throws IOException {
+    if (null == csvPrinter) {
+      writer.write(objectMapper.writeValueAsString(singletonMap(ERROR_PROPERTY, error)));
+      writer.write('\n');
+    } else {
+      csvPrinter.printComment(error.toString());
+    }
+
+    writer.flush();
+  }
+
+  /**
+   * Returns the number of orders written so far.
+   */
+  public int getWrittenCount() {
+    return writtenCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  private List<Object> toCsvRecord(BasicOrderDto order) {
+    return Arrays.asList(
+        order.getId(),
+        order.getOrderCode(),
+        order.getExternalId(),
+        order.getStatus(),
+        order.getEmergency(),
+        order.getCreatedDate(),
+        get(order.getCreatedBy(), UserDto::getUsername),
+        get(order.getProgram(), ProgramDto::getCode),
+        get(order.getProcessingPeriod(), ProcessingPeriodDto::getName),
+        get(order.getFacility(), FacilityDto::getCode),
+        get(order.getRequestingFacility(), FacilityDto::getCode),
+        get(order.getReceivingFacility(), FacilityDto::getCode),
+        get(order.getSupplyingFacility(), FacilityDto::getCode),
+        order.getQuotedCost(),
+        order.getLastUpdatedDate(),
+        get(order.getLastUpdater(), ObjectReferenceDto::getId));
+  }
+
+  private <T> Object get(T resource, Function<T, Object> getter) {
+    return Optional.ofNullable(resource).map(getter).orElse(null);
+  }
+}
@@ -17,10 +17,13 @@ package org.openlmis.fulfillment.web.util;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
@@ -43,6 +46,8 @@ public class OrderDtoBuilder {
   @Value("${service.url}")
   private String serviceUrl;
 
+  @Autowired
+  private ReferenceDataPrefetcher prefetcher = new ReferenceDataPrefetcher();
 
   /**
    * Create a new instance of OrderDto based on data from {@link Order}.
@@ -74,21 +79,37 @@ public class OrderDtoBuilder {
     Profiler profiler = new Profiler("ORDER_DTO_BUILD");
     profiler.setLogger(XLOGGER);
 
-    OrderDto orderDto = new OrderDto();
+    profiler.start("GET_LINE_ITEMS");
+    List<OrderLineItem> lineItems = order.getOrderLineItems();
+
+    profiler.start("FETCH_ORDERABLES_CONCURRENTLY");
+    // line item orderables are retrieved while the order sub resources are being set; the lazy
+    // line items are read here because the session must not be used by another thread
+    final CompletableFuture<Map<VersionIdentityDto, OrderableDto>> orderablesFuture;
+
+    if (null == orderables) {
+      Set<VersionEntityReference> identities = orderExportHelper
+          .getOrderableIdentities(lineItems);
+      orderablesFuture = prefetcher.fetch("GET_ORDERABLES",
+          () -> orderExportHelper.findOrderables(identities));
+    } else {
+      orderablesFuture = CompletableFuture.completedFuture(orderables);
+    }
 
     profiler.start("EXPORT");
+    OrderDto orderDto = new OrderDto();
     order.export(orderDto);
     orderDto.setServiceUrl(serviceUrl);
 
     profiler.start("SET_SUB_RESOURCES");
     orderExportHelper.setSubResources(orderDto, order, facilities, programs, periods, users);
 
-    profiler.start("GET_LINE_ITEMS");
-    List<OrderLineItem> lineItems = order.getOrderLineItems();
+    profiler.start("WAIT_FOR_ORDERABLES");
+    Map<VersionIdentityDto, OrderableDto> lineItemOrderables = prefetcher.get(orderablesFuture);
 
     profiler.start("EXPORT_LINE_ITEMS_TO_DTOS");
     List<OrderLineItemDto> lineItemDtos =
-        orderExportHelper.exportToDtos(lineItems, orderables);
+        orderExportHelper.exportToDtos(lineItems, lineItemOrderables);
 
     orderDto.setOrderLineItems(lineItemDtos);
 
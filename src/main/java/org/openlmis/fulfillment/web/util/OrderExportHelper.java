@@ -88,18 +88,8 @@ public class OrderExportHelper {
 
     Map<VersionIdentityDto, OrderableDto> orderablesForLines;
     if (orderables == null) {
-      profiler.start("GET_ORDERABLE_IDENTITIES_FROM_LINE_ITEMS");
-      Set<VersionEntityReference> orderableIdentities = new HashSet<>(lineItems.size());
-      for (OrderLineItem lineItem : lineItems) {
-        orderableIdentities.add(lineItem.getOrderable());
-      }
-
-      profiler.start("FIND_ORDERABLES_BY_IDENTITIES");
-      orderablesForLines =
-          orderableReferenceDataService.findByIdentities(orderableIdentities)
-              .stream()
-              .collect(Collectors.toMap(OrderableDto::getIdentity, orderable -> orderable));
-
+      profiler.start("GET_ORDERABLES");
+      orderablesForLines = getOrderables(lineItems);
     } else {
       orderablesForLines = orderables;
     }
@@ -116,6 +106,54 @@ public class OrderExportHelper {
     return lineItemDtos;
   }
 
+  /**
+   * Return orderables used by the given line items.
+   *
+   * @param lineItems List of OrderLineItems
+   * @return Map of Orderables by version identity
+   */
+  public Map<VersionIdentityDto, OrderableDto> getOrderables(List<OrderLineItem> lineItems) {
+    return findOrderables(getOrderableIdentities(lineItems));
+  }
+
+  /**
+   * Return version identities of orderables used by the given line items.
+   *
+   * @param lineItems List of OrderLineItems
+   * @return Set of orderable version identities
+   */
+  public Set<VersionEntityReference> getOrderableIdentities(List<OrderLineItem> lineItems) {
+    Set<VersionEntityReference> orderableIdentities = new HashSet<>(lineItems.size());
+    for (OrderLineItem lineItem : lineItems) {
+      orderableIdentities.add(lineItem.getOrderable());
+    }
+
+    return orderableIdentities;
+  }
+
+  /**
+   * Return orderables with the given version identities.
+   *
+   * @param orderableIdentities Set of orderable version identities
+   * @return Map of Orderables by version identity
+   */
+  public Map<VersionIdentityDto, OrderableDto> findOrderables(
+      Set<VersionEntityReference> orderableIdentities) {
+    XLOGGER.entry(orderableIdentities);
+    Profiler profiler = new Profiler("FIND_ORDERABLES_BY_IDENTITIES");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("FIND_ORDERABLES_BY_IDENTITIES");
+    Map<VersionIdentityDto, OrderableDto> orderables = orderableReferenceDataService
+        .findByIdentities(orderableIdentities)
+        .stream()
+        .collect(Collectors.toMap(OrderableDto::getIdentity, orderable -> orderable));
+
+    profiler.stop().log();
+    XLOGGER.exit(orderables);
+    return orderables;
+  }
+
   /**
    * Set sub resources of Order.Exporter
    */
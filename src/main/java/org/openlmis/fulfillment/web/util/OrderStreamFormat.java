@@ -0,0 +1,61 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import static org.apache.commons.lang3.StringUtils.equalsIgnoreCase;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_STREAM_FORMAT_INVALID;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.fulfillment.web.ValidationException;
+
+/**
+ * Defines how orders are written by the order stream endpoint.
+ * <ul>
+ *   <li>{@link #NDJSON} - one basic order JSON object per line (the default).</li>
+ *   <li>{@link #CSV} - a header row followed by one row per order, with reference data
+ *   represented by codes or names.</li>
+ * </ul>
+ */
+@AllArgsConstructor
+public enum OrderStreamFormat {
+  NDJSON("application/x-ndjson"), CSV("text/csv");
+
+  @Getter
+  private final String contentType;
+
+  /**
+   * Parses the given value, ignoring case. If the value is blank, {@link #NDJSON} is returned.
+   *
+   * @param value the format name.
+   * @return the format.
+   * @throws ValidationException if the value is not a valid format.
+   */
+  public static OrderStreamFormat fromString(String value) {
+    if (isBlank(value)) {
+      return NDJSON;
+    }
+
+    for (OrderStreamFormat format : values()) {
+      if (equalsIgnoreCase(value, format.name())) {
+        return format;
+      }
+    }
+
+    throw new ValidationException(ORDER_STREAM_FORMAT_INVALID, value);
+  }
+}
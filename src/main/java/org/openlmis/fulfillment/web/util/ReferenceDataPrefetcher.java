@@ -0,0 +1,132 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs independent reference data lookups (facilities, programs, orderables, ...) concurrently
+ * while DTOs are built. Each lookup is timed with its own {@link Profiler}, so the log shows how
+ * the lookups overlap. The lookups may split their requests with the
+ * {@link org.openlmis.fulfillment.service.request.RequestExecutor}, which is why this class uses
+ * a separate thread pool.
+ *
+ * <p>An instance created without Spring (or with {@code referencedata.prefetch.parallelism}
+ * lower than 1) executes the lookups in the calling thread.
+ */
+@Component
+public class ReferenceDataPrefetcher {
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(ReferenceDataPrefetcher.class);
+
+  @Value("${referencedata.prefetch.parallelism}")
+  private int parallelism;
+
+  @Value("${referencedata.prefetch.queueSize}")
+  private int queueSize;
+
+  private ExecutorService executor;
+
+  /**
+   * Creates the thread pool used to execute the lookups.
+   */
+  @PostConstruct
+  public void start() {
+    if (parallelism < 1) {
+      return;
+    }
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism,
+        60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+        new ThreadFactoryBuilder().setNameFormat("referencedata-prefetch-%d").setDaemon(true)
+            .build(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.allowCoreThreadTimeOut(true);
+
+    executor = pool;
+  }
+
+  /**
+   * Stops the thread pool.
+   */
+  @PreDestroy
+  public void stop() {
+    if (null != executor) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Starts the given lookup. The result should be retrieved with {@link #get(CompletableFuture)}.
+   *
+   * @param name   name of the lookup used in the profiler output.
+   * @param lookup the lookup to execute.
+   * @return the pending result of the lookup.
+   */
+  public <R> CompletableFuture<R> fetch(String name, Supplier<R> lookup) {
+    Supplier<R> profiled = () -> {
+      Profiler profiler = new Profiler(name);
+      profiler.setLogger(XLOGGER);
+      profiler.start(name);
+
+      try {
+        return lookup.get();
+      } finally {
+        profiler.stop().log();
+      }
+    };
+
+    if (null == executor) {
+      try {
+        return CompletableFuture.completedFuture(profiled.get());
+      } catch (RuntimeException ex) {
+        CompletableFuture<R> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ex);
+        return failed;
+      }
+    }
+
+    return CompletableFuture.supplyAsync(profiled, executor);
+  }
+
+  /**
+   * Waits for the result of the given lookup. If the lookup failed, its exception is rethrown.
+   */
+  public <R> R get(CompletableFuture<R> result) {
+    try {
+      return result.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+
+      throw ex;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+-- Orders are searched by the facilities the user has rights for (supplying OR requesting
+-- facility) and are usually displayed newest first, so the created date and id are included to
+-- return a page without sorting all matching orders.
+CREATE INDEX orders_supplyingfacilityid_createddate_idx
+  ON fulfillment.orders (supplyingfacilityid, createddate DESC, id DESC);
+CREATE INDEX orders_requestingfacilityid_createddate_idx
+  ON fulfillment.orders (requestingfacilityid, createddate DESC, id DESC);
+
+-- Searches with a service token and keyset pagination without any facility filter.
+CREATE INDEX orders_createddate_id_idx
+  ON fulfillment.orders (createddate DESC, id DESC);
+
+-- Program and processing period filters (periods are also resolved from the period dates).
+CREATE INDEX orders_programid_processingperiodid_idx
+  ON fulfillment.orders (programid, processingperiodid);
+CREATE INDEX orders_processingperiodid_idx
+  ON fulfillment.orders (processingperiodid);
+
+-- Order statistics of a facility (OrderRepository.countByFacilityIdAndStatus).
+CREATE INDEX orders_facilityid_status_idx
+  ON fulfillment.orders (facilityid, status);
+
+-- Orders that are still in progress are a small part of the table and are counted on the home
+-- page, so partial indexes on them stay small.
+CREATE INDEX orders_open_supplyingfacilityid_status_idx
+  ON fulfillment.orders (supplyingfacilityid, status)
+  WHERE status IN ('ORDERED', 'FULFILLING', 'READY_TO_PACK', 'SHIPPED', 'IN_ROUTE');
+CREATE INDEX orders_open_requestingfacilityid_status_idx
+  ON fulfillment.orders (requestingfacilityid, status)
+  WHERE status IN ('ORDERED', 'FULFILLING', 'READY_TO_PACK', 'SHIPPED', 'IN_ROUTE');
+
+-- Requisition-less orders (without external id).
+CREATE INDEX orders_requisitionless_createddate_idx
+  ON fulfillment.orders (createddate DESC)
+  WHERE externalid IS NULL;
@@ -0,0 +1,49 @@
+-- Number of orders of each facility, program and status, maintained by the triggers below in the
+-- same transaction that inserts, updates or deletes an order.
+CREATE TABLE fulfillment.order_status_counts (
+    facilityid uuid NOT NULL,
+    programid uuid NOT NULL,
+    status character varying(255) NOT NULL,
+    count bigint NOT NULL DEFAULT 0,
+    CONSTRAINT order_status_counts_pkey PRIMARY KEY (facilityid, programid, status)
+);
+
+CREATE FUNCTION fulfillment.update_order_status_counts() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.facilityid IS NOT NULL THEN
+    UPDATE fulfillment.order_status_counts
+    SET count = count - 1
+    WHERE facilityid = OLD.facilityid
+      AND programid = OLD.programid
+      AND status = OLD.status;
+  END IF;
+
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.facilityid IS NOT NULL THEN
+    INSERT INTO fulfillment.order_status_counts (facilityid, programid, status, count)
+    VALUES (NEW.facilityid, NEW.programid, NEW.status, 1)
+    ON CONFLICT (facilityid, programid, status)
+    DO UPDATE SET count = fulfillment.order_status_counts.count + 1;
+  END IF;
+
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_status_counts_insert_delete
+AFTER INSERT OR DELETE ON fulfillment.orders
+FOR EACH ROW EXECUTE PROCEDURE fulfillment.update_order_status_counts();
+
+-- orders are updated with all columns, so only real changes of the counted columns are handled
+CREATE TRIGGER orders_status_counts_update
+AFTER UPDATE ON fulfillment.orders
+FOR EACH ROW
+WHEN (OLD.facilityid IS DISTINCT FROM NEW.facilityid
+  OR OLD.programid IS DISTINCT FROM NEW.programid
+  OR OLD.status IS DISTINCT FROM NEW.status)
+EXECUTE PROCEDURE fulfillment.update_order_status_counts();
+
+INSERT INTO fulfillment.order_status_counts (facilityid, programid, status, count)
+SELECT facilityid, programid, status, count(*)
+FROM fulfillment.orders
+WHERE facilityid IS NOT NULL
+GROUP BY facilityid, programid, status;
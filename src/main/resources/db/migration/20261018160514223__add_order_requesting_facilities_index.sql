@@ -0,0 +1,4 @@
+-- Requesting facilities of orders supplied by the given facilities
+-- (GET /orders/requestingFacilities) are read from this index only, without visiting the table.
+CREATE INDEX orders_supplyingfacilityid_requestingfacilityid_idx
+  ON fulfillment.orders (supplyingfacilityid, requestingfacilityid);
@@ -0,0 +1,8 @@
+-- Keyset pagination of GET /orders (and the order stream) orders by the created date and compares
+-- it with the last order of the previous page, so it must not be null. New orders always get it
+-- when they are persisted; older rows without it get the date of their last update.
+UPDATE fulfillment.orders
+  SET createddate = lastupdateddate
+  WHERE createddate IS NULL;
+
+ALTER TABLE fulfillment.orders ALTER COLUMN createddate SET NOT NULL;
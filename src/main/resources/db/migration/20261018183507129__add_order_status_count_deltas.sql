@@ -0,0 +1,32 @@
+-- Order writes used to update a shared counter row per facility, program and status and held its
+-- lock until commit, so concurrent transactions creating or changing orders of the same facility
+-- and program waited for each other (and could deadlock on two counter rows locked in a different
+-- order). The triggers now only append the changes to this table, which needs no row locks. The
+-- deltas are periodically folded into order_status_counts; reads add the deltas not folded yet.
+CREATE TABLE fulfillment.order_status_count_deltas (
+    id bigserial NOT NULL,
+    facilityid uuid NOT NULL,
+    programid uuid NOT NULL,
+    status character varying(255) NOT NULL,
+    delta bigint NOT NULL,
+    CONSTRAINT order_status_count_deltas_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX order_status_count_deltas_facilityid_idx
+ON fulfillment.order_status_count_deltas (facilityid);
+
+CREATE OR REPLACE FUNCTION fulfillment.update_order_status_counts() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.facilityid IS NOT NULL THEN
+    INSERT INTO fulfillment.order_status_count_deltas (facilityid, programid, status, delta)
+    VALUES (OLD.facilityid, OLD.programid, OLD.status, -1);
+  END IF;
+
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.facilityid IS NOT NULL THEN
+    INSERT INTO fulfillment.order_status_count_deltas (facilityid, programid, status, delta)
+    VALUES (NEW.facilityid, NEW.programid, NEW.status, 1);
+  END IF;
+
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
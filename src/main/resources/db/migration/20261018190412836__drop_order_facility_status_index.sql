@@ -0,0 +1,3 @@
+-- Order statistics of a facility are read from the order status counts, so nothing filters the
+-- orders by facility and status anymore and the index only slows down writes.
+DROP INDEX IF EXISTS fulfillment.orders_facilityid_status_idx;
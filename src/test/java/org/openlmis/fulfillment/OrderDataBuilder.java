@@ -162,6 +162,11 @@ public class OrderDataBuilder {
     return this;
   }
 
+  public OrderDataBuilder withCreatedDate(ZonedDateTime createdDate) {
+    this.createdDate = createdDate;
+    return this;
+  }
+
   public OrderDataBuilder withCreatedById(UUID createdById) {
     this.createdById = createdById;
     return this;
@@ -0,0 +1,100 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadOnlyRoutingDataSourceTest {
+
+  @Mock
+  private DataSource primary;
+
+  @Mock
+  private DataSource replica;
+
+  @Mock
+  private ReplicaLagMonitor monitor;
+
+  @Mock
+  private Connection primaryConnection;
+
+  @Mock
+  private Connection replicaConnection;
+
+  private ReadOnlyRoutingDataSource dataSource;
+
+  @Before
+  public void setUp() throws SQLException {
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(replica.getConnection()).thenReturn(replicaConnection);
+    when(monitor.isReplicaAvailable()).thenReturn(true);
+
+    dataSource = new ReadOnlyRoutingDataSource(primary, replica, monitor);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void shouldUsePrimaryForReadWriteTransactions() throws SQLException {
+    assertSame(primaryConnection, dataSource.getConnection());
+    verifyZeroInteractions(replica);
+  }
+
+  @Test
+  public void shouldUseReplicaForReadOnlyTransactions() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(replicaConnection, dataSource.getConnection());
+    verifyZeroInteractions(primary);
+  }
+
+  @Test
+  public void shouldUsePrimaryIfReplicaIsLagging() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(monitor.isReplicaAvailable()).thenReturn(false);
+
+    assertSame(primaryConnection, dataSource.getConnection());
+    verifyZeroInteractions(replica);
+  }
+
+  @Test
+  public void shouldFallBackToPrimaryIfReplicaConnectionFails() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    SQLException exception = new SQLException("connection refused");
+    when(replica.getConnection()).thenThrow(exception);
+
+    assertSame(primaryConnection, dataSource.getConnection());
+    verify(monitor).markUnavailable(exception);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplicaLagMonitorTest {
+
+  private static final double MAX_LAG = 10;
+
+  @Mock
+  private DataSource replica;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private Statement statement;
+
+  @Mock
+  private ResultSet resultSet;
+
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ReplicaLagMonitor monitor;
+
+  @Before
+  public void setUp() throws SQLException {
+    when(replica.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(ReplicaLagMonitor.LAG_QUERY)).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+
+    monitor = new ReplicaLagMonitor(replica, MAX_LAG, meterRegistry);
+  }
+
+  @Test
+  public void shouldBeUnavailableBeforeFirstCheck() {
+    assertFalse(monitor.isReplicaAvailable());
+  }
+
+  @Test
+  public void shouldBeAvailableIfLagIsBelowLimit() throws SQLException {
+    when(resultSet.getDouble(1)).thenReturn(2.5);
+
+    monitor.checkLag();
+
+    assertTrue(monitor.isReplicaAvailable());
+    assertEquals(2.5, meterRegistry.get(ReplicaLagMonitor.METRIC_LAG).gauge().value(), 0);
+    verify(connection).close();
+  }
+
+  @Test
+  public void shouldBeUnavailableIfLagExceedsLimit() throws SQLException {
+    when(resultSet.getDouble(1)).thenReturn(2.5, MAX_LAG + 1);
+
+    monitor.checkLag();
+    monitor.checkLag();
+
+    assertFalse(monitor.isReplicaAvailable());
+    assertEquals(MAX_LAG + 1, monitor.getLagSeconds(), 0);
+  }
+
+  @Test
+  public void shouldBeUnavailableIfReplicaIsNotStreaming() throws SQLException {
+    when(resultSet.getDouble(1)).thenReturn(0.0);
+    when(resultSet.wasNull()).thenReturn(false, true);
+
+    monitor.checkLag();
+    assertTrue(monitor.isReplicaAvailable());
+
+    monitor.checkLag();
+    assertFalse(monitor.isReplicaAvailable());
+    assertTrue(Double.isNaN(monitor.getLagSeconds()));
+  }
+
+  @Test
+  public void shouldBeUnavailableIfCheckFails() throws SQLException {
+    when(resultSet.getDouble(1)).thenReturn(0.0);
+    monitor.checkLag();
+
+    when(statement.executeQuery(ReplicaLagMonitor.LAG_QUERY))
+        .thenThrow(new SQLException("connection refused"));
+    monitor.checkLag();
+
+    assertFalse(monitor.isReplicaAvailable());
+    assertTrue(Double.isNaN(monitor.getLagSeconds()));
+    verify(connection, times(2)).close();
+  }
+}
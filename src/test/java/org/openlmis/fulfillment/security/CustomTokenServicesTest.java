@@ -16,9 +16,15 @@
 package org.openlmis.fulfillment.security;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Before;
@@ -43,6 +49,8 @@ public class CustomTokenServicesTest {
   private static final String CLIENT_CHECK_TOKEN_ENDPOINT_URI = "/oauth/check_token";
   private static final String ACCESS_TOKEN = "access-token-1234";
   private static final int INVALID_TOKEN_RETRY_LIMIT = 3;
+  private static final long NOW = 1_000_000L;
+  private static final String ACTIVE = "active";
 
   @Mock
   private RestTemplate restTemplate;
@@ -60,7 +68,7 @@ public class CustomTokenServicesTest {
   @Test
   public void shouldSuccessfullyAuthenticateWhenResponseContainsActiveTrue() throws Exception {
     Map responseAttributes = new HashMap();
-    responseAttributes.put("active", true);
+    responseAttributes.put(ACTIVE, true);
     responseAttributes.put("client_id", CLIENT_ID);
     ResponseEntity<Map> response = new ResponseEntity<>(responseAttributes, HttpStatus.OK);
 
@@ -88,4 +96,92 @@ public class CustomTokenServicesTest {
     this.customTokenServices.setRestTemplate(restTemplate);
     this.customTokenServices.loadAuthentication(ACCESS_TOKEN);
   }
+
+  @Test
+  public void shouldCacheValidatedTokenUntilItExpires() {
+    Map responseAttributes = new HashMap();
+    responseAttributes.put(ACTIVE, true);
+    responseAttributes.put("client_id", CLIENT_ID);
+    responseAttributes.put("exp", NOW + 60);
+    mockCheckToken(responseAttributes);
+    CustomTokenServices services = createCachingServices();
+
+    OAuth2Authentication first = services.loadAuthentication(ACCESS_TOKEN);
+    OAuth2Authentication second = services.loadAuthentication(ACCESS_TOKEN);
+    verifyCheckTokenCalls(1);
+    assertNotSame(first, second);
+
+    services.setClock(clockAt(NOW + 60));
+    services.loadAuthentication(ACCESS_TOKEN);
+    verifyCheckTokenCalls(2);
+  }
+
+  @Test
+  public void shouldValidateTokenAgainAfterEviction() {
+    Map responseAttributes = new HashMap();
+    responseAttributes.put(ACTIVE, true);
+    responseAttributes.put("client_id", CLIENT_ID);
+    mockCheckToken(responseAttributes);
+    CustomTokenServices services = createCachingServices();
+
+    services.loadAuthentication(ACCESS_TOKEN);
+    services.evict(ACCESS_TOKEN);
+    services.loadAuthentication(ACCESS_TOKEN);
+
+    verifyCheckTokenCalls(2);
+  }
+
+  @Test
+  public void shouldCacheInvalidToken() {
+    Map responseAttributes = new HashMap();
+    responseAttributes.put("error", "no_active_token");
+    mockCheckToken(responseAttributes);
+    CustomTokenServices services = createCachingServices();
+
+    loadInvalidToken(services);
+    loadInvalidToken(services);
+    verifyCheckTokenCalls(INVALID_TOKEN_RETRY_LIMIT + 1);
+
+    services.setClock(clockAt(NOW + 10));
+    loadInvalidToken(services);
+    verifyCheckTokenCalls(2 * (INVALID_TOKEN_RETRY_LIMIT + 1));
+  }
+
+  private CustomTokenServices createCachingServices() {
+    CustomTokenServices services = new CustomTokenServices(INVALID_TOKEN_RETRY_LIMIT, 10, 300, 10);
+    services.setClientId(CLIENT_ID);
+    services.setClientSecret(CLIENT_SECRET);
+    services.setCheckTokenEndpointUrl(CLIENT_CHECK_TOKEN_ENDPOINT_URI);
+    services.setRestTemplate(restTemplate);
+    services.setClock(clockAt(NOW));
+    return services;
+  }
+
+  private void mockCheckToken(Map responseAttributes) {
+    when(restTemplate.exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class)
+    )).thenReturn(new ResponseEntity<>(responseAttributes, HttpStatus.OK));
+  }
+
+  private void verifyCheckTokenCalls(int times) {
+    verify(restTemplate, times(times)).exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class));
+  }
+
+  private void loadInvalidToken(CustomTokenServices services) {
+    try {
+      services.loadAuthentication(ACCESS_TOKEN);
+    } catch (InvalidTokenException ex) {
+      assertNotNull(ex.getMessage());
+      return;
+    }
+
+    throw new AssertionError("Token should be rejected");
+  }
+
+  private Clock clockAt(long epochSecond) {
+    return Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+  }
 }
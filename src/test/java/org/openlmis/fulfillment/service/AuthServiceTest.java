@@ -22,11 +22,16 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Map;
 import java.util.UUID;
 import org.junit.Before;
@@ -38,6 +43,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
@@ -49,6 +55,7 @@ public class AuthServiceTest {
   private static final URI AUTHORIZATION_URI = URI.create(
       AUTHORIZATION_URL + "?grant_type=client_credentials"
   );
+  private static final long NOW = 1_000_000L;
 
   @Mock
   private RestTemplate restTemplate;
@@ -57,6 +64,7 @@ public class AuthServiceTest {
   private ArgumentCaptor<HttpEntity<String>> entityStringCaptor;
 
   private AuthService authService;
+  private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
   @Before
   public void setUp() throws Exception {
@@ -66,6 +74,9 @@ public class AuthServiceTest {
     ReflectionTestUtils.setField(authService, "clientId", "trusted-client");
     ReflectionTestUtils.setField(authService, "clientSecret", "secret");
     ReflectionTestUtils.setField(authService, "authorizationUrl", AUTHORIZATION_URL);
+    ReflectionTestUtils.setField(authService, "refreshMargin", 60L);
+    ReflectionTestUtils.setField(authService, "meterRegistry", meterRegistry);
+    setTime(NOW);
   }
 
   @Test
@@ -92,4 +103,66 @@ public class AuthServiceTest {
         contains("Basic dHJ1c3RlZC1jbGllbnQ6c2VjcmV0")
     );
   }
+
+  @Test
+  public void shouldReuseTokenUntilItExpires() {
+    mockTokenResponse(300);
+
+    authService.obtainAccessToken();
+    authService.obtainAccessToken();
+    verifyTokenRequests(1);
+
+    setTime(NOW + 300);
+    authService.obtainAccessToken();
+    verifyTokenRequests(2);
+  }
+
+  @Test
+  public void shouldRefreshTokenInBackgroundShortlyBeforeItExpires() {
+    mockTokenResponse(300);
+    authService.obtainAccessToken();
+
+    setTime(NOW + 239);
+    authService.refreshInBackground();
+    verifyTokenRequests(1);
+
+    setTime(NOW + 240);
+    authService.refreshInBackground();
+    authService.obtainAccessToken();
+    verifyTokenRequests(2);
+    assertThat(meterRegistry.counter(AuthService.METRIC_REFRESHES, "reason", "scheduled")
+        .count(), is(1.0));
+  }
+
+  @Test
+  public void shouldRetrieveOneTokenWhenRejectedTokenIsDiscardedSeveralTimes() {
+    mockTokenResponse(300);
+    authService.obtainAccessToken();
+
+    setTime(NOW + 10);
+    authService.clearTokenCache();
+    authService.clearTokenCache();
+    authService.obtainAccessToken();
+
+    verifyTokenRequests(2);
+  }
+
+  private void mockTokenResponse(int expiresIn) {
+    ResponseEntity<Object> response = new ResponseEntity<>(
+        ImmutableMap.of("access_token", TOKEN, "expires_in", expiresIn), HttpStatus.OK);
+
+    when(restTemplate.exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class)
+    )).thenReturn(response);
+  }
+
+  private void verifyTokenRequests(int count) {
+    verify(restTemplate, times(count)).exchange(
+        eq(AUTHORIZATION_URI), eq(HttpMethod.POST), any(HttpEntity.class), eq(Object.class));
+  }
+
+  private void setTime(long epochSecond) {
+    ReflectionTestUtils.setField(authService, "clock",
+        Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC));
+  }
 }
@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
 import java.net.URI;
+import java.util.Map;
 import java.util.UUID;
 import lombok.Getter;
 import org.junit.After;
@@ -75,6 +76,9 @@ public abstract class BaseCommunicationServiceTest<T> {
   @Captor
   protected ArgumentCaptor<HttpEntity<String>> entityCaptor;
 
+  @Captor
+  protected ArgumentCaptor<HttpEntity<Map<String, Object>>> searchEntityCaptor;
+
   @Rule
   public final ExpectedException expectedException = ExpectedException.none();
 
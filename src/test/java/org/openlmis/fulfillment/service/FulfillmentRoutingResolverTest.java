@@ -0,0 +1,110 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.LocalTransferProperties;
+import org.openlmis.fulfillment.domain.TransferType;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FulfillmentRoutingResolverTest {
+
+  @Mock
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Mock
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @InjectMocks
+  private FulfillmentRoutingResolver resolver;
+
+  private ProgramDto program = new ProgramDto();
+  private FacilityDto facility = new FacilityDto();
+
+  @Before
+  public void setUp() {
+    program.setId(UUID.randomUUID());
+    program.setCode("PRG");
+    facility.setId(UUID.randomUUID());
+    facility.setSupportedPrograms(Collections.singletonList(program));
+
+    when(programReferenceDataService.findOne(program.getId())).thenReturn(program);
+    when(facilityReferenceDataService.findOne(facility.getId())).thenReturn(facility);
+
+    ReflectionTestUtils.setField(resolver, "ttl", 300L);
+    resolver.init();
+  }
+
+  @Test
+  public void shouldResolveRoutes() {
+    program.setSupportLocallyFulfilled(true);
+    assertThat(resolver.resolve(facility.getId(), program.getId()),
+        is(FulfillmentRoute.LOCAL_FULFILL));
+    assertThat(resolver.resolve(null, program.getId()), is(FulfillmentRoute.FAILED));
+
+    program.setSupportLocallyFulfilled(false);
+    resolver.evict(facility.getId());
+    assertThat(resolver.resolve(facility.getId(), program.getId()), is(FulfillmentRoute.FAILED));
+
+    when(transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(facility.getId(), TransferType.ORDER))
+        .thenReturn(new LocalTransferProperties());
+    resolver.evict(facility.getId());
+    assertThat(resolver.resolve(facility.getId(), program.getId()),
+        is(FulfillmentRoute.LOCAL_FILE));
+  }
+
+  @Test
+  public void shouldCacheRouteUntilFacilityIsEvicted() {
+    when(transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(facility.getId(), TransferType.ORDER))
+        .thenReturn(new FtpTransferProperties());
+
+    for (int i = 0; i < 3; ++i) {
+      assertThat(resolver.resolve(facility.getId(), program.getId()), is(FulfillmentRoute.FTP));
+    }
+
+    resolver.evict(facility.getId());
+    resolver.resolve(facility.getId(), program.getId());
+
+    verify(facilityReferenceDataService, times(2)).findOne(facility.getId());
+    verify(transferPropertiesRepository, times(2))
+        .findFirstByFacilityIdAndTransferType(facility.getId(), TransferType.ORDER);
+  }
+}
@@ -20,9 +20,13 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.javers.common.collections.Sets.asSet;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
@@ -30,6 +34,11 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.domain.OrderStatus.FULFILLING;
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.ORDERED;
+import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
+import static org.openlmis.fulfillment.domain.OrderStatus.SHIPPED;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_EDIT;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_VIEW;
 import static org.openlmis.fulfillment.service.PermissionService.PODS_MANAGE;
@@ -42,9 +51,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import javax.persistence.EntityManager;
 import org.junit.Before;
 import org.junit.Rule;
@@ -55,6 +66,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.OrderLineItemDataBuilder;
@@ -93,7 +105,11 @@ import org.openlmis.fulfillment.testutils.ProcessingPeriodDataBuilder;
 import org.openlmis.fulfillment.testutils.ProgramDataBuilder;
 import org.openlmis.fulfillment.testutils.UserDataBuilder;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.ContinuationToken;
+import org.openlmis.fulfillment.util.CountStrategy;
+import org.openlmis.fulfillment.util.CountedPage;
 import org.openlmis.fulfillment.util.DateHelper;
+import org.openlmis.fulfillment.util.KeysetPage;
 import org.openlmis.fulfillment.web.NumberOfOrdersData;
 import org.openlmis.fulfillment.web.OrderNotFoundException;
 import org.openlmis.fulfillment.web.ValidationException;
@@ -102,6 +118,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @SuppressWarnings({"PMD.TooManyMethods"})
 @RunWith(MockitoJUnitRunner.class)
@@ -155,6 +172,10 @@ public class OrderServiceTest {
   @InjectMocks
   private ExporterBuilder exporter;
 
+  @Spy
+  @InjectMocks
+  private FulfillmentRoutingResolver fulfillmentRoutingResolver;
+
   @InjectMocks
   private OrderService orderService;
 
@@ -175,6 +196,8 @@ public class OrderServiceTest {
 
   @Before
   public void setUp() {
+    ReflectionTestUtils.setField(orderService, "fulfillmentRoutingResolver",
+        fulfillmentRoutingResolver);
     generateTestData();
     mockResponses();
   }
@@ -240,35 +263,71 @@ public class OrderServiceTest {
 
   @Test
   public void shouldReturnOrdersData() {
-    UserDto user = new UserDataBuilder().build();
-    when(authenticationHelper.getCurrentUser()).thenReturn(user);
-    PermissionStrings.Handler handler = mock(PermissionStrings.Handler.class);
-    when(permissionService.getPermissionStrings(user.getId())).thenReturn(handler);
-    when(handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW))
-        .thenReturn(newHashSet(order.getSupplyingFacilityId()));
-    when(handler.getFacilityIds(PODS_MANAGE, PODS_VIEW))
-        .thenReturn(newHashSet(order.getRequestingFacilityId()));
+    prepareOrdersData();
 
-    OrderSearchParams toBeExecutedOrdersParams = new OrderSearchParams();
-    Set<String> toBeExecutedOrdersStatuses = newHashSet("FULFILLING", "ORDERED");
-    toBeExecutedOrdersParams.setStatus(toBeExecutedOrdersStatuses);
-    OrderSearchParams toBeReceivedOrdersParams = new OrderSearchParams();
-    Set<String> toBeReceivedOrdersStatuses = newHashSet("READY_TO_PACK", "SHIPPED", "IN_ROUTE");
-    toBeReceivedOrdersParams.setStatus(toBeReceivedOrdersStatuses);
+    NumberOfOrdersData result = orderService.getOrdersData();
 
-    when(orderRepository.countOrders(toBeExecutedOrdersParams, null,
-        newHashSet(order.getSupplyingFacilityId()),
-        newHashSet(order.getRequestingFacilityId())))
-        .thenReturn(100L);
-    when(orderRepository.countOrders(toBeReceivedOrdersParams, null,
-        newHashSet(order.getSupplyingFacilityId()),
-        newHashSet(order.getRequestingFacilityId())))
-        .thenReturn(200L);
+    assertEquals(Long.valueOf(100L), result.getOrdersToBeExecuted());
+    assertEquals(Long.valueOf(200L), result.getOrdersToBeReceived());
+  }
+
+  @Test
+  public void shouldCacheOrdersDataForTheSameFacilities() {
+    ReflectionTestUtils.setField(orderService, "ordersDataTtl", 30L);
+    orderService.init();
+    prepareOrdersData();
 
+    orderService.getOrdersData();
     NumberOfOrdersData result = orderService.getOrdersData();
 
     assertEquals(Long.valueOf(100L), result.getOrdersToBeExecuted());
     assertEquals(Long.valueOf(200L), result.getOrdersToBeReceived());
+    verify(orderRepository, times(1)).countOrdersByStatuses(anyList(), anySet(), anySet());
+  }
+
+  @Test
+  public void shouldNotShareCachedOrdersDataBetweenDifferentFacilities() {
+    ReflectionTestUtils.setField(orderService, "ordersDataTtl", 30L);
+    orderService.init();
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    prepareOrdersData(first, second, 100L, 200L);
+    orderService.getOrdersData();
+    prepareOrdersData(second, first, 300L, 400L);
+    NumberOfOrdersData result = orderService.getOrdersData();
+
+    assertEquals(Long.valueOf(300L), result.getOrdersToBeExecuted());
+    assertEquals(Long.valueOf(400L), result.getOrdersToBeReceived());
+    verify(orderRepository, times(2)).countOrdersByStatuses(anyList(), anySet(), anySet());
+  }
+
+  @Test
+  public void shouldReturnRequestingFacilities() {
+    List<UUID> supplyingFacilities = asList(UUID.randomUUID(), UUID.randomUUID());
+    List<UUID> requestingFacilities = asList(UUID.randomUUID(), UUID.randomUUID());
+    when(orderRepository.getRequestingFacilities(supplyingFacilities))
+        .thenReturn(requestingFacilities);
+
+    assertEquals(requestingFacilities, orderService.getRequestingFacilities(supplyingFacilities));
+  }
+
+  @Test
+  public void shouldCacheRequestingFacilitiesForTheSameSupplyingFacilities() {
+    ReflectionTestUtils.setField(orderService, "requestingFacilitiesTtl", 60L);
+    orderService.init();
+
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    List<UUID> requestingFacilities = asList(UUID.randomUUID(), UUID.randomUUID());
+    when(orderRepository.getRequestingFacilities(asList(first, second)))
+        .thenReturn(requestingFacilities);
+
+    orderService.getRequestingFacilities(asList(first, second));
+    List<UUID> result = orderService.getRequestingFacilities(asList(second, first));
+
+    assertEquals(requestingFacilities, result);
+    verify(orderRepository, times(1)).getRequestingFacilities(anyList());
   }
 
   @Test
@@ -291,7 +350,7 @@ public class OrderServiceTest {
     );
     when(orderRepository.searchOrders(
         params, asSet(order.getProcessingPeriodId()),
-        pageable, newHashSet(order.getSupplyingFacilityId()),
+        pageable, CountStrategy.EXACT, newHashSet(order.getSupplyingFacilityId()),
         newHashSet(order.getRequestingFacilityId())))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
@@ -307,7 +366,8 @@ public class OrderServiceTest {
     assertEquals(receivedOrders.getContent().get(0).getProgramId(), order.getProgramId());
 
     verify(orderRepository, atLeastOnce())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anySet(), anySet());
+        .searchOrders(anyObject(), anyObject(), anyObject(), eq(CountStrategy.EXACT), anySet(),
+            anySet());
   }
 
   @Test
@@ -320,7 +380,7 @@ public class OrderServiceTest {
         order.getProcessingPeriodId(), Sets.newHashSet(order.getStatus().toString()), null, null,
         null);
     when(orderRepository.searchOrders(
-        params, asSet(order.getProcessingPeriodId()), pageable))
+        params, asSet(order.getProcessingPeriodId()), pageable, CountStrategy.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -334,11 +394,139 @@ public class OrderServiceTest {
     assertEquals(receivedOrders.getContent().get(0).getProgramId(), order.getProgramId());
 
     verify(orderRepository, atLeastOnce())
-        .searchOrders(anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(),
+        eq(CountStrategy.EXACT));
 
     verify(permissionService, never()).getPermissionStrings(anyObject());
   }
 
+  @Test
+  public void shouldSearchOrdersWithGivenCountStrategy() {
+    Order order = generateOrder();
+    Pageable pageable = PageRequest.of(0, 10);
+    OrderSearchParams params = new OrderSearchParams();
+    when(orderRepository.searchOrders(params, null, pageable, CountStrategy.NONE))
+        .thenReturn(new CountedPage<>(Collections.singletonList(order), pageable, 11,
+            CountStrategy.NONE));
+
+    when(authenticationHelper.getCurrentUser()).thenReturn(null);
+
+    Page<Order> receivedOrders = orderService.searchOrders(params, pageable, CountStrategy.NONE);
+
+    assertEquals(11, receivedOrders.getTotalElements());
+    verify(orderRepository, never()).searchOrders(params, null, pageable);
+  }
+
+  @Test
+  public void shouldSearchOrderSummariesOfAvailableFacilities() {
+    Order order = generateOrder();
+    Pageable pageable = PageRequest.of(0, 10);
+    OrderSearchParams params = new OrderSearchParams();
+
+    UserDto user = new UserDataBuilder().build();
+    when(authenticationHelper.getCurrentUser()).thenReturn(user);
+    PermissionStrings.Handler handler = mock(PermissionStrings.Handler.class);
+    when(permissionService.getPermissionStrings(user.getId())).thenReturn(handler);
+    when(handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW))
+        .thenReturn(newHashSet(order.getSupplyingFacilityId()));
+    when(handler.getFacilityIds(PODS_MANAGE, PODS_VIEW))
+        .thenReturn(newHashSet(order.getRequestingFacilityId()));
+
+    when(orderRepository.searchOrderSummaries(params, null, pageable, CountStrategy.EXACT,
+        newHashSet(order.getSupplyingFacilityId()), newHashSet(order.getRequestingFacilityId())))
+        .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
+
+    Page<Order> receivedOrders = orderService
+        .searchOrderSummaries(params, pageable, CountStrategy.EXACT);
+
+    assertEquals(Collections.singletonList(order), receivedOrders.getContent());
+    verify(orderRepository, never()).searchOrders(anyObject(), anyObject(), anyObject(),
+        anyObject(), anySet(), anySet());
+  }
+
+  @Test
+  public void shouldSearchOrderSummariesWhenCrossServiceRequest() {
+    Order order = generateOrder();
+    Pageable pageable = PageRequest.of(0, 10);
+    OrderSearchParams params = new OrderSearchParams();
+    when(orderRepository.searchOrderSummaries(params, null, pageable, CountStrategy.NONE))
+        .thenReturn(new CountedPage<>(Collections.singletonList(order), pageable, 1,
+            CountStrategy.NONE));
+
+    when(authenticationHelper.getCurrentUser()).thenReturn(null);
+
+    Page<Order> receivedOrders = orderService
+        .searchOrderSummaries(params, pageable, CountStrategy.NONE);
+
+    assertEquals(Collections.singletonList(order), receivedOrders.getContent());
+    verify(permissionService, never()).getPermissionStrings(anyObject());
+  }
+
+  @Test
+  public void shouldStreamOrderSummariesOfAvailableFacilities() {
+    ReflectionTestUtils.setField(orderService, "streamChunkSize", 100);
+    final OrderSearchParams params = new OrderSearchParams();
+    final Consumer<List<Order>> consumer = orders -> { };
+
+    UserDto user = new UserDataBuilder().build();
+    when(authenticationHelper.getCurrentUser()).thenReturn(user);
+    PermissionStrings.Handler handler = mock(PermissionStrings.Handler.class);
+    when(permissionService.getPermissionStrings(user.getId())).thenReturn(handler);
+    when(handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW))
+        .thenReturn(newHashSet(order.getSupplyingFacilityId()));
+    when(handler.getFacilityIds(PODS_MANAGE, PODS_VIEW))
+        .thenReturn(newHashSet(order.getRequestingFacilityId()));
+
+    orderService.streamOrderSummaries(params, consumer);
+
+    verify(orderRepository).streamOrderSummaries(params, null, 100, consumer,
+        newHashSet(order.getSupplyingFacilityId()), newHashSet(order.getRequestingFacilityId()));
+  }
+
+  @Test
+  public void shouldNotStreamOrdersIfNoPeriodMatches() {
+    OrderSearchParams params = new OrderSearchParams();
+    params.setPeriodStartDate(LocalDate.of(2018, 1, 1));
+    when(periodReferenceDataService.search(params.getPeriodStartDate(), null))
+        .thenReturn(Collections.emptyList());
+
+    orderService.streamOrderSummaries(params, orders -> { });
+
+    verify(orderRepository, never()).streamOrderSummaries(anyObject(), anyObject(), anyInt(),
+        anyObject());
+    verify(orderRepository, never()).streamOrderSummaries(anyObject(), anyObject(), anyInt(),
+        anyObject(), anySet(), anySet());
+  }
+
+  @Test
+  public void shouldReturnContinuationTokenIfThereAreMoreOrders() {
+    Order first = generateOrder();
+    Order second = generateOrder();
+    OrderSearchParams params = new OrderSearchParams();
+    when(orderRepository.seekOrders(params, null, null, 3))
+        .thenReturn(asList(first, second, generateOrder()));
+
+    KeysetPage<Order> page = orderService.seekOrders(params, null, 2);
+
+    assertEquals(asList(first, second), page.getContent());
+    assertEquals(ContinuationToken.after(second).encode(), page.getContinuationToken());
+  }
+
+  @Test
+  public void shouldSeekOrdersAfterContinuationToken() {
+    Order previous = generateOrder();
+    Order order = generateOrder();
+    OrderSearchParams params = new OrderSearchParams();
+    String token = ContinuationToken.after(previous).encode();
+    when(orderRepository.seekOrders(params, null, ContinuationToken.decode(token), 3))
+        .thenReturn(Collections.singletonList(order));
+
+    KeysetPage<Order> page = orderService.seekOrders(params, token, 2);
+
+    assertEquals(Collections.singletonList(order), page.getContent());
+    assertNull(page.getContinuationToken());
+  }
+
   @Test
   public void shouldSearchByStartDateAndEndDate() {
     Order order = generateOrder();
@@ -348,7 +536,7 @@ public class OrderServiceTest {
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
         null, Sets.newHashSet(order.getStatus().toString()), startDate, endDate, null);
     when(orderRepository.searchOrders(
-        params, asSet(period1.getId(), period2.getId()), pageable))
+        params, asSet(period1.getId(), period2.getId()), pageable, CountStrategy.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -358,7 +546,8 @@ public class OrderServiceTest {
     assertEquals(1, receivedOrders.getContent().size());
     assertEquals(order, receivedOrders.getContent().get(0));
 
-    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject());
+    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject(),
+        eq(CountStrategy.EXACT));
   }
 
   @Test
@@ -376,7 +565,8 @@ public class OrderServiceTest {
 
     assertEquals(0, receivedOrders.getContent().size());
     verify(orderRepository, never())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject(),
+            anyObject());
   }
 
   @Test
@@ -396,7 +586,8 @@ public class OrderServiceTest {
 
     assertEquals(0, receivedOrders.getContent().size());
     verify(orderRepository, never())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject(),
+            anyObject());
   }
 
   @Test
@@ -408,7 +599,7 @@ public class OrderServiceTest {
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
         period1.getId(), Sets.newHashSet(order.getStatus().toString()), startDate, endDate, null);
     when(orderRepository.searchOrders(
-        params, asSet(period1.getId()), pageable))
+        params, asSet(period1.getId()), pageable, CountStrategy.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -418,7 +609,8 @@ public class OrderServiceTest {
     assertEquals(1, receivedOrders.getContent().size());
     assertEquals(order, receivedOrders.getContent().get(0));
 
-    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject());
+    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject(),
+        eq(CountStrategy.EXACT));
   }
 
   @Test
@@ -484,16 +676,19 @@ public class OrderServiceTest {
   @Test
   public void shouldReturnOrderStatsData() {
     // given
-    int numberOfStatuses = OrderStatus.values().length;
+    final int numberOfStatuses = OrderStatus.values().length;
+    when(orderRepository.countStatuses(userDto.getHomeFacilityId()))
+        .thenReturn(Collections.singletonMap(OrderStatus.SHIPPED, 5L));
 
     // when
     OrderStatsData result = orderService.getStatusesStatsData(userDto.getHomeFacilityId());
 
     // then
-    verify(orderRepository, times(numberOfStatuses))
-        .countByFacilityIdAndStatus(anyObject(), anyObject());
+    verify(orderRepository, never()).countByFacilityIdAndStatus(anyObject(), anyObject());
     assertEquals(userDto.getHomeFacilityId(), result.getFacilityId());
     assertEquals(numberOfStatuses, result.getStatusesStats().size());
+    assertEquals(Long.valueOf(5), result.getStatusesStats().get(OrderStatus.SHIPPED.name()));
+    assertEquals(Long.valueOf(0), result.getStatusesStats().get(OrderStatus.ORDERED.name()));
   }
 
   private Order generateOrder() {
@@ -598,4 +793,26 @@ public class OrderServiceTest {
     when(orderableReferenceDataService.findByIdentities(anySet())).thenReturn(
         Collections.singletonList(orderable));
   }
+
+  private void prepareOrdersData() {
+    prepareOrdersData(UUID.randomUUID(), UUID.randomUUID(), 100L, 200L);
+  }
+
+  private void prepareOrdersData(UUID supplyingFacilityId, UUID requestingFacilityId,
+      long ordersToBeExecuted, long ordersToBeReceived) {
+    UserDto user = new UserDataBuilder().build();
+    when(authenticationHelper.getCurrentUser()).thenReturn(user);
+    PermissionStrings.Handler handler = mock(PermissionStrings.Handler.class);
+    when(permissionService.getPermissionStrings(user.getId())).thenReturn(handler);
+    when(handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW))
+        .thenReturn(newHashSet(supplyingFacilityId));
+    when(handler.getFacilityIds(PODS_MANAGE, PODS_VIEW))
+        .thenReturn(newHashSet(requestingFacilityId));
+
+    when(orderRepository.countOrdersByStatuses(
+        asList(EnumSet.of(FULFILLING, ORDERED), EnumSet.of(READY_TO_PACK, SHIPPED, IN_ROUTE)),
+        newHashSet(supplyingFacilityId),
+        newHashSet(requestingFacilityId)))
+        .thenReturn(asList(ordersToBeExecuted, ordersToBeReceived));
+  }
 }
@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.springframework.dao.QueryTimeoutException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderStatusCountReconcilerTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Spy
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @InjectMocks
+  private OrderStatusCountReconciler reconciler;
+
+  @Test
+  public void shouldReconcileStatusCountsAndRecordFixedCounts() {
+    when(orderRepository.reconcileStatusCounts()).thenReturn(3);
+
+    assertThat(reconciler.reconcile(), is(3));
+    assertThat(meterRegistry.counter(OrderStatusCountReconciler.METRIC_FIXED).count(), is(3.0));
+  }
+
+  @Test
+  public void shouldFoldDeltasInBatchesUntilTheLastOneIsNotFull() {
+    int batch = OrderStatusCountReconciler.FOLD_BATCH_SIZE;
+    when(orderRepository.foldStatusCountDeltas(batch)).thenReturn(batch, batch, 7);
+
+    assertThat(reconciler.fold(), is(2 * batch + 7));
+    assertThat(meterRegistry.counter(OrderStatusCountReconciler.METRIC_FOLDED).count(),
+        is(2.0 * batch + 7));
+    verify(orderRepository, times(3)).foldStatusCountDeltas(batch);
+  }
+
+  @Test
+  public void shouldNotThrowWhenBackgroundFoldingFails() {
+    when(orderRepository.foldStatusCountDeltas(OrderStatusCountReconciler.FOLD_BATCH_SIZE))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    reconciler.foldInBackground();
+
+    verify(orderRepository).foldStatusCountDeltas(OrderStatusCountReconciler.FOLD_BATCH_SIZE);
+  }
+
+  @Test
+  public void shouldNotThrowWhenBackgroundReconciliationFails() {
+    when(orderRepository.reconcileStatusCounts())
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    reconciler.reconcileInBackground();
+
+    verify(orderRepository).reconcileStatusCounts();
+  }
+}
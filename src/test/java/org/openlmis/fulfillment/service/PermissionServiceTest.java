@@ -16,8 +16,13 @@
 package org.openlmis.fulfillment.service;
 
 import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasProperty;
-import static org.mockito.Mockito.atLeastOnce;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -38,6 +43,7 @@ import static org.openlmis.fulfillment.testutils.OAuth2AuthenticationDataBuilder
 import static org.openlmis.fulfillment.testutils.OAuth2AuthenticationDataBuilder.SERVICE_CLIENT_ID;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -56,16 +62,19 @@ import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.domain.Shipment;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.openlmis.fulfillment.testutils.DtoGenerator;
+import org.openlmis.fulfillment.testutils.FacilityDataBuilder;
 import org.openlmis.fulfillment.testutils.OAuth2AuthenticationDataBuilder;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
 import org.openlmis.fulfillment.web.MissingPermissionException;
 import org.openlmis.fulfillment.web.ValidationException;
 import org.openlmis.fulfillment.web.shipment.ShipmentDto;
 import org.openlmis.fulfillment.web.shipment.ShipmentDtoDataBuilder;
+import org.openlmis.fulfillment.web.util.OrderDto;
 import org.openlmis.fulfillment.web.util.OrderObjectReferenceDto;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -88,6 +97,12 @@ public class PermissionServiceTest {
   @Mock
   private OrderRepository orderRepository;
 
+  @Mock
+  private PermissionStrings permissionStrings;
+
+  @Mock
+  private PermissionStrings.Handler permissionStringsHandler;
+
   @InjectMocks
   private PermissionService permissionService;
 
@@ -137,6 +152,8 @@ public class PermissionServiceTest {
         when(authenticationHelper.getRight(right)).thenReturn(details));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(user);
+    when(authenticationHelper.getCurrentUserId()).thenReturn(user.getId());
+    when(permissionStrings.forUser(user.getId())).thenReturn(permissionStringsHandler);
     when(securityContext.getAuthentication()).thenReturn(userClient);
 
     ReflectionTestUtils.setField(permissionService, "serviceTokenClientId", SERVICE_CLIENT_ID);
@@ -152,6 +169,22 @@ public class PermissionServiceTest {
     verifyRight(ORDERS_TRANSFER, null, null, order.getSupplyingFacilityId());
   }
 
+  @Test
+  public void shouldCheckRightWithReferenceDataIfPermissionStringsAreNotAvailable() {
+    UUID warehouse = order.getSupplyingFacilityId();
+    when(permissionStringsHandler.hasPermission(ORDERS_TRANSFER, null, null, warehouse))
+        .thenThrow(new IllegalStateException("not available"));
+    when(userReferenceDataService
+        .hasRight(user.getId(), rightsMap.get(ORDERS_TRANSFER).getId(), null, null, warehouse))
+        .thenReturn(new ResultDto<>(true));
+
+    permissionService.canTransferOrder(order);
+
+    verify(authenticationHelper).getRight(ORDERS_TRANSFER);
+    verify(userReferenceDataService).hasRight(
+        user.getId(), rightsMap.get(ORDERS_TRANSFER).getId(), null, null, warehouse);
+  }
+
   @Test
   public void cannotTransferOrder() {
     expectException(ORDERS_TRANSFER);
@@ -322,6 +355,27 @@ public class PermissionServiceTest {
     permissionService.canEditOrder(order);
   }
 
+  @Test
+  public void canEditOrders() {
+    UUID facility = order.getSupplyingFacilityId();
+    mockHasRight(ORDERS_EDIT, null, null, facility);
+
+    permissionService.canEditOrders(Arrays.asList(orderDto(facility), orderDto(facility)));
+
+    verifyRight(ORDERS_EDIT, null, null, facility);
+    verify(permissionStrings, times(1)).forUser(user.getId());
+  }
+
+  @Test
+  public void cannotEditOrdersIfAnySupplyingFacilityIsMissingRights() {
+    UUID facility = order.getSupplyingFacilityId();
+    mockHasRight(ORDERS_EDIT, null, null, facility);
+    expectException(ORDERS_EDIT);
+
+    permissionService.canEditOrders(Arrays.asList(orderDto(facility),
+        orderDto(UUID.randomUUID())));
+  }
+
   @Test
   public void canCreateOrder() {
     mockHasRight(ORDER_CREATE, null, null, order.getReceivingFacilityId());
@@ -355,6 +409,43 @@ public class PermissionServiceTest {
     permissionService.canDeleteOrders(Collections.singletonList(order.getId()));
   }
   
+  @Test
+  public void cannotDeleteOrdersIfAnyFacilityIsMissingRights() {
+    UUID receivingFacilityId = order.getReceivingFacilityId();
+    mockHasRight(ORDERS_DELETE, null, null, receivingFacilityId);
+    expectException(ORDER_CREATE, ORDERS_DELETE);
+
+    permissionService.canDeleteOrders(Arrays.asList(receivingFacilityId, UUID.randomUUID()));
+  }
+
+  @Test
+  public void shouldCheckManyPermissionsWithPermissionStringsRetrievedOnce() {
+    UUID facility = order.getSupplyingFacilityId();
+    mockHasRight(ORDERS_VIEW, null, null, facility);
+
+    Map<PermissionCheck, Boolean> decisions = permissionService.hasPermissions(Arrays.asList(
+        PermissionCheck.ofWarehouse(ORDERS_VIEW, facility),
+        PermissionCheck.ofWarehouse(ORDERS_EDIT, facility),
+        PermissionCheck.ofWarehouse(ORDERS_VIEW, facility)));
+
+    assertThat(decisions.size(), is(2));
+    assertThat(decisions, hasEntry(PermissionCheck.ofWarehouse(ORDERS_VIEW, facility), true));
+    assertThat(decisions, hasEntry(PermissionCheck.ofWarehouse(ORDERS_EDIT, facility), false));
+    verify(permissionStrings, times(1)).forUser(user.getId());
+    verifyZeroInteractions(userReferenceDataService);
+  }
+
+  @Test
+  public void shouldAllowAllPermissionsForServiceToken() {
+    when(securityContext.getAuthentication()).thenReturn(trustedClient);
+
+    Map<PermissionCheck, Boolean> decisions = permissionService.hasPermissions(
+        Collections.singletonList(PermissionCheck.of(PODS_VIEW, UUID.randomUUID(), null)));
+
+    assertThat(decisions.values(), everyItem(is(true)));
+    verifyZeroInteractions(authenticationHelper, permissionStrings);
+  }
+
   @Test
   public void canManageShipment() {
     mockHasRight(SHIPMENTS_EDIT, null, null, order.getSupplyingFacilityId());
@@ -410,9 +501,8 @@ public class PermissionServiceTest {
 
   private void mockHasRight(String rightName, UUID facility, UUID program,
                             UUID warehouse) {
-    when(userReferenceDataService
-        .hasRight(user.getId(), rightsMap.get(rightName).getId(), program, facility, warehouse))
-        .thenReturn(new ResultDto<>(true));
+    when(permissionStringsHandler.hasPermission(rightName, facility, program, warehouse))
+        .thenReturn(true);
   }
 
   private void expectException(String rightName) {
@@ -427,13 +517,18 @@ public class PermissionServiceTest {
     exception.expectMessage(PERMISSIONS_MISSING);
   }
 
+  private OrderDto orderDto(UUID supplyingFacilityId) {
+    OrderDto dto = new OrderDto();
+    dto.setSupplyingFacility(new FacilityDataBuilder().withId(supplyingFacilityId).build());
+
+    return dto;
+  }
+
   private void verifyRight(String rightName, UUID facility, UUID program,
                            UUID warehouse) {
-    verify(authenticationHelper, atLeastOnce()).getCurrentUser();
-    verify(authenticationHelper).getRight(rightName);
-    verify(userReferenceDataService).hasRight(
-        user.getId(), rightsMap.get(rightName).getId(), program, facility, warehouse
-    );
+    verify(permissionStringsHandler).hasPermission(rightName, facility, program, warehouse);
+    verify(authenticationHelper, never()).getRight(rightName);
+    verifyZeroInteractions(userReferenceDataService);
   }
 
 }
@@ -53,6 +53,9 @@ public class TransferPropertiesServiceTest {
   @Mock
   private ShipmentContextRunner shipmentContextRunner;
 
+  @Mock
+  private FulfillmentRoutingResolver fulfillmentRoutingResolver;
+
   @InjectMocks
   private TransferPropertiesService transferPropertiesService;
 
@@ -73,6 +76,7 @@ public class TransferPropertiesServiceTest {
     // then
     verify(transferPropertiesRepository, atLeastOnce()).save(properties);
     verify(shipmentContextRunner, never()).reCreateShipmentChannel(any());
+    verify(fulfillmentRoutingResolver).evict(properties.getFacilityId());
   }
 
   @Test
@@ -45,6 +45,7 @@ import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.testutils.UserDataBuilder;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.util.CountStrategy;
 import org.openlmis.fulfillment.util.Pagination;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -85,7 +86,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(null), eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(null), eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, null, pageable);
@@ -98,7 +100,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(shipmentId),  eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(shipmentId),  eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(shipmentId, null, pageable);
@@ -111,7 +114,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(null),  eq(orderId), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(null),  eq(orderId), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, orderId, pageable);
@@ -148,7 +152,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(singleton(proofOfDelivery.getProgramId())),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, null, pageable);
@@ -172,7 +177,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(singleton(proofOfDelivery.getProgramId())),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(orderId, shipmentId, pageable);
@@ -198,7 +204,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(emptySet()),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountStrategy.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(orderId, shipmentId, pageable);
@@ -16,6 +16,7 @@
 package org.openlmis.fulfillment.service.referencedata;
 
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.fulfillment.service.PageDto;
@@ -40,6 +42,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class FacilityReferenceDataServiceTest extends BaseReferenceDataServiceTest<FacilityDto> {
   
@@ -103,6 +106,42 @@ public class FacilityReferenceDataServiceTest extends BaseReferenceDataServiceTe
     assertAuthHeader(entityCaptor.getValue());
   }
 
+  @Test
+  public void shouldFindFacilitiesByIdsWithPostSearchIfUrlIsTooLong() {
+    // given
+    ReflectionTestUtils.setField(service, "searchByPostEnabled", true);
+    ReflectionTestUtils.setField(service, "maxUrlLength", 100);
+
+    List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+    FacilityDto facility = generateInstance();
+    ResponseEntity response = mock(ResponseEntity.class);
+
+    when(response.getBody()).thenReturn(
+        new PageDto<>(new PageImpl<>(Collections.singletonList(facility)))
+    );
+
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.POST), any(HttpEntity.class),
+        any(ParameterizedTypeReference.class)
+    )).thenReturn(response);
+
+    // when
+    Collection<FacilityDto> facilities = service.findByIds(ids);
+
+    // then
+    verify(restTemplate).exchange(
+        uriCaptor.capture(), eq(HttpMethod.POST),
+        searchEntityCaptor.capture(), any(ParameterizedTypeReference.class)
+    );
+    assertTrue(facilities.contains(facility));
+
+    assertThat(uriCaptor.getValue().toString(),
+        is(service.getServiceUrl() + service.getUrl() + "search?size=3"));
+    assertThat(searchEntityCaptor.getValue().getBody(), is(Collections.singletonMap("id",
+        ids.stream().map(UUID::toString).collect(Collectors.toList()))));
+    assertAuthHeader(searchEntityCaptor.getValue());
+  }
+
   @Test
   public void shouldReturnEmptyListWhenFindingFacilitiesWithNoIdsProvided() {
     // given
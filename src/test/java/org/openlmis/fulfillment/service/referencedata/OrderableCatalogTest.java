@@ -0,0 +1,114 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.openlmis.fulfillment.testutils.OrderableDataBuilder;
+import org.springframework.http.HttpHeaders;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderableCatalogTest {
+  private static final String ETAG = "\"1\"";
+  private static final String PRODUCT_CODE = "C100";
+
+  @Mock
+  private OrderableReferenceDataService orderableReferenceDataService;
+
+  @InjectMocks
+  private OrderableCatalog catalog;
+
+  private OrderableDto orderable;
+  private HttpHeaders headers;
+
+  @Before
+  public void setUp() {
+    orderable = new OrderableDataBuilder()
+        .withId(UUID.randomUUID())
+        .withProductCode(PRODUCT_CODE)
+        .build();
+
+    headers = new HttpHeaders();
+    headers.setETag(ETAG);
+  }
+
+  @Test
+  public void shouldLoadCatalogIndexedByProductCodeAndId() {
+    when(orderableReferenceDataService.findAll((String) null))
+        .thenReturn(new ServiceResponse<>(singletonList(orderable), headers, true));
+
+    OrderableCatalog.Snapshot snapshot = catalog.getSnapshot();
+
+    assertThat(snapshot.getByProductCode().get(PRODUCT_CODE), is(orderable));
+    assertThat(snapshot.getById().get(orderable.getId().toString()), is(orderable));
+    assertThat(snapshot.getEtag(), is(ETAG));
+    assertThat(catalog.getSnapshot(), is(sameInstance(snapshot)));
+  }
+
+  @Test
+  public void shouldKeepSnapshotIfCatalogWasNotModified() {
+    when(orderableReferenceDataService.findAll((String) null))
+        .thenReturn(new ServiceResponse<>(singletonList(orderable), headers, true));
+    when(orderableReferenceDataService.findAll(ETAG))
+        .thenReturn(new ServiceResponse<>(null, headers, false));
+
+    OrderableCatalog.Snapshot snapshot = catalog.getSnapshot();
+    catalog.refreshInBackground();
+
+    assertThat(catalog.getSnapshot(), is(sameInstance(snapshot)));
+  }
+
+  @Test
+  public void shouldReplaceSnapshotIfCatalogWasModified() {
+    OrderableDto updated = new OrderableDataBuilder()
+        .withId(orderable.getId())
+        .withProductCode(PRODUCT_CODE)
+        .build();
+
+    when(orderableReferenceDataService.findAll((String) null))
+        .thenReturn(new ServiceResponse<>(singletonList(orderable), headers, true));
+    when(orderableReferenceDataService.findAll(ETAG))
+        .thenReturn(new ServiceResponse<>(singletonList(updated), new HttpHeaders(), true));
+
+    catalog.getSnapshot();
+    catalog.refreshInBackground();
+
+    assertThat(catalog.getSnapshot().getByProductCode().get(PRODUCT_CODE),
+        is(sameInstance(updated)));
+  }
+
+  @Test
+  public void shouldNotRefreshInBackgroundBeforeCatalogIsUsed() {
+    catalog.refreshInBackground();
+
+    verify(orderableReferenceDataService, never()).findAll(nullable(String.class));
+  }
+}
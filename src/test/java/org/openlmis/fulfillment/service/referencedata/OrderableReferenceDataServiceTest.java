@@ -21,11 +21,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.refEq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import java.net.URI;
 import java.util.Collections;
 import java.util.List;
@@ -35,7 +40,10 @@ import org.junit.Test;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.util.DynamicPageTypeReference;
 import org.openlmis.fulfillment.web.util.VersionIdentityDto;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
 
 public class OrderableReferenceDataServiceTest
     extends BaseReferenceDataServiceTest<OrderableDto> {
@@ -58,6 +66,8 @@ public class OrderableReferenceDataServiceTest
     super.setUp();
 
     service = (OrderableReferenceDataService) prepareService();
+    ReflectionTestUtils.setField(service, "versionCacheSize", 20000L);
+    service.init();
   }
 
   @Test
@@ -106,6 +116,19 @@ public class OrderableReferenceDataServiceTest
     assertEquals(serviceUrl + service.getUrl(), uri.toString());
   }
 
+  @Test(expected = ResourceAccessException.class)
+  public void shouldNotReturnLastKnownCatalogWhenReferenceDataIsUnavailable() {
+    OrderableDto product = mockPageResponseEntityAndGetDto();
+    assertThat(service.findAll(null).getBody(), hasItem(product));
+
+    when(restTemplate.exchange(
+        any(URI.class), any(HttpMethod.class), any(HttpEntity.class),
+        any(DynamicPageTypeReference.class)))
+        .thenThrow(new ResourceAccessException("connection refused"));
+
+    service.findAll(null);
+  }
+
   @Test
   public void shouldReturnProductsByIdentity() {
     //given
@@ -128,4 +151,32 @@ public class OrderableReferenceDataServiceTest
     assertAuthHeader(entityCaptor.getValue());
   }
 
+  @Test
+  public void shouldNotRetrieveCachedProductVersionsAgain() {
+    //given
+    VersionEntityReference cached = new VersionEntityReference(UUID.randomUUID(), 1L);
+    final VersionEntityReference missing = new VersionEntityReference(UUID.randomUUID(), 2L);
+
+    OrderableDto product = mockPageResponseEntityAndGetDto();
+    product.setId(cached.getId());
+    product.getMeta().setVersionNumber(cached.getVersionNumber());
+
+    service.findByIdentities(Collections.singleton(cached));
+
+    //when
+    List<OrderableDto> response = service.findByIdentities(Sets.newHashSet(cached, missing));
+
+    //then
+    verify(restTemplate, times(2)).exchange(
+        uriCaptor.capture(), eq(HttpMethod.POST), entityCaptor.capture(),
+        refEq(new DynamicPageTypeReference<>(OrderableDto.class)));
+
+    OrderableSearchParams searchParams = new OrderableSearchParams(null, null, null,
+        Lists.newArrayList(new VersionIdentityDto(missing)), 0, 1);
+    assertEquals(searchParams, entityCaptor.getValue().getBody());
+    assertThat(response, hasItem(product));
+
+    service.findByIdentities(Collections.singleton(cached));
+    verifyNoMoreInteractions(restTemplate);
+  }
 }
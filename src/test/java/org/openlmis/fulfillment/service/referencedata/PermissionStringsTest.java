@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.UUID.randomUUID;
 import static org.apache.commons.lang3.RandomStringUtils.random;
@@ -25,25 +26,40 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.service.PermissionService.ORDERS_VIEW;
 import static org.openlmis.fulfillment.service.PermissionService.PODS_MANAGE;
+import static org.openlmis.fulfillment.service.PermissionService.PODS_VIEW;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.service.ServiceResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 
+@SuppressWarnings("PMD.TooManyMethods")
 @RunWith(MockitoJUnitRunner.class)
 public class PermissionStringsTest {
   private static final String HANDLERS_FIELD_NAME = "handlers";
   private static final UUID USER = randomUUID();
+  private static final String SYSTEM_SETTINGS_MANAGE = "SYSTEM_SETTINGS_MANAGE";
 
   @Mock
   private UserReferenceDataService userReferenceDataService;
@@ -54,20 +70,38 @@ public class PermissionStringsTest {
   @Mock
   private ServiceResponse<List<String>> response;
 
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private long nanos;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(permissionStrings, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(permissionStrings, "maxSize", 2L);
+    ReflectionTestUtils.setField(permissionStrings, "expireAfterAccess", 3600L);
+    ReflectionTestUtils.setField(permissionStrings, "maxStaleness", 300L);
+    ReflectionTestUtils.setField(permissionStrings, "ticker", new Ticker() {
+      @Override
+      public long read() {
+        return nanos;
+      }
+    });
+    permissionStrings.init();
+  }
+
   @Test
   public void shouldCreateHandlerIfNotExist() throws Exception {
     Field handlers = PermissionStrings.class.getDeclaredField(HANDLERS_FIELD_NAME);
     handlers.setAccessible(true);
 
-    Map map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(0));
+    Cache cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(0L));
 
     PermissionStrings.Handler handler = permissionStrings.forUser(USER);
 
     assertThat(handler, is(notNullValue()));
 
-    map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(1));
+    cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(1L));
   }
 
   @Test
@@ -80,8 +114,8 @@ public class PermissionStringsTest {
     permissionStrings.forUser(USER);
     permissionStrings.forUser(USER);
 
-    Map map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(1));
+    Cache cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(1L));
   }
 
   @Test
@@ -146,4 +180,118 @@ public class PermissionStringsTest {
     assertThat(handler.getFacilityIds(PODS_MANAGE), contains(data.getFacilityId()));
   }
 
+  @Test
+  public void shouldCheckPermissionLocally() {
+    UUID facility = randomUUID();
+    UUID program = randomUUID();
+    UUID warehouse = randomUUID();
+
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getBody()).thenReturn(asList(
+        PermissionStringDto.create(PODS_MANAGE, facility, program).toString(),
+        PermissionStringDto.create(ORDERS_VIEW, warehouse, null).toString(),
+        PermissionStringDto.create(SYSTEM_SETTINGS_MANAGE, null, null).toString()));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+
+    assertThat(handler.hasPermission(PODS_MANAGE, facility, program, null), is(true));
+    assertThat(handler.hasPermission(PODS_MANAGE, facility, randomUUID(), null), is(false));
+    assertThat(handler.hasPermission(ORDERS_VIEW, null, null, warehouse), is(true));
+    assertThat(handler.hasPermission(ORDERS_VIEW, null, null, facility), is(false));
+    assertThat(handler.hasPermission(SYSTEM_SETTINGS_MANAGE, null, null, null), is(true));
+    assertThat(handler.hasPermission(PODS_VIEW, facility, program, null), is(false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldThrowExceptionIfPermissionStringsAreNotAvailable() {
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(false);
+
+    permissionStrings.forUser(USER).hasPermission(PODS_MANAGE, null, null, randomUUID());
+  }
+
+  @Test
+  public void shouldUseFreshPermissionStringsWithoutRevalidation() {
+    ReflectionTestUtils.setField(permissionStrings, "freshness", 30L);
+    String etag = random(5);
+
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(userReferenceDataService.getPermissionStrings(USER, etag)).thenReturn(response);
+    when(response.isModified()).thenReturn(true, false);
+    when(response.getETag()).thenReturn(etag);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+    handler.get();
+    nanos += TimeUnit.SECONDS.toNanos(29);
+    handler.get();
+
+    verify(userReferenceDataService, times(1)).getPermissionStrings(eq(USER), any());
+
+    nanos += TimeUnit.SECONDS.toNanos(1);
+    handler.get();
+
+    verify(userReferenceDataService).getPermissionStrings(USER, etag);
+    assertThat(count("notModified"), is(1.0));
+  }
+
+  @Test
+  public void shouldUseCachedPermissionStringsIfRevalidationFails() {
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+    Set<PermissionStringDto> one = handler.get();
+
+    when(userReferenceDataService.getPermissionStrings(USER, null))
+        .thenThrow(new IllegalStateException("unavailable"));
+
+    assertThat(handler.get(), is(one));
+    assertThat(count("failed"), is(1.0));
+  }
+
+  @Test
+  public void shouldNotUsePermissionStringsOlderThanMaxStaleness() {
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+    Set<PermissionStringDto> one = handler.get();
+
+    IllegalStateException outage = new IllegalStateException("unavailable");
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenThrow(outage);
+
+    nanos += TimeUnit.SECONDS.toNanos(299);
+    assertThat(handler.get(), is(one));
+
+    nanos += TimeUnit.SECONDS.toNanos(1);
+    try {
+      handler.get();
+      fail("Expected outdated permission strings not to be used");
+    } catch (IllegalStateException ex) {
+      assertThat(ex, is(outage));
+    }
+  }
+
+  @Test
+  public void shouldKeepLimitedNumberOfHandlers() throws Exception {
+    for (int i = 0; i < 5; ++i) {
+      permissionStrings.forUser(randomUUID());
+    }
+
+    Field handlers = PermissionStrings.class.getDeclaredField(HANDLERS_FIELD_NAME);
+    handlers.setAccessible(true);
+
+    assertThat(((Cache) handlers.get(permissionStrings)).size() <= 2, is(true));
+    assertThat(meterRegistry.counter(PermissionStrings.METRIC_EVICTIONS).count() >= 3, is(true));
+  }
+
+  private double count(String result) {
+    return meterRegistry
+        .counter(PermissionStrings.METRIC_REVALIDATIONS, "result", result)
+        .count();
+  }
 }
@@ -0,0 +1,191 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+public class ReferenceDataCacheTest {
+  private static final String REGION = "facilities";
+  private static final String ETAG = "\"1\"";
+  private static final UUID ID = UUID.randomUUID();
+  private static final String FIRST = "first";
+  private static final String SECOND = "second";
+
+  private ReferenceDataCache cache;
+  private MeterRegistry meterRegistry;
+  private long nanos;
+  private MockEnvironment environment;
+
+  private List<String> sentEtags;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    environment = new MockEnvironment();
+    sentEtags = new ArrayList<>();
+
+    cache = new ReferenceDataCache();
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "maxSize", 100L);
+    ReflectionTestUtils.setField(cache, "defaultTtl", 60L);
+    ReflectionTestUtils.setField(cache, "maxStaleness", 3600L);
+    ReflectionTestUtils.setField(cache, "environment", environment);
+    ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(cache, "ticker", new Ticker() {
+      @Override
+      public long read() {
+        return nanos;
+      }
+    });
+  }
+
+  @Test
+  public void shouldReturnCachedValueWithinTtl() {
+    cache.get(REGION, ID, loader(FIRST, true));
+
+    nanos += TimeUnit.SECONDS.toNanos(59);
+    String value = cache.get(REGION, ID, loader(SECOND, true));
+
+    assertThat(value, is(FIRST));
+    assertThat(sentEtags.size(), is(1));
+    assertThat(count("miss"), is(1.0));
+    assertThat(count("hit"), is(1.0));
+  }
+
+  @Test
+  public void shouldRevalidateStaleEntryWithEtag() {
+    cache.get(REGION, ID, loader(FIRST, true));
+
+    nanos += TimeUnit.SECONDS.toNanos(61);
+    String value = cache.get(REGION, ID, loader(null, false));
+
+    assertThat(value, is(FIRST));
+    assertThat(sentEtags.get(1), is(ETAG));
+    assertThat(count("notModified"), is(1.0));
+
+    nanos += TimeUnit.SECONDS.toNanos(30);
+    cache.get(REGION, ID, loader(SECOND, true));
+
+    assertThat(sentEtags.size(), is(2));
+    assertThat(count("hit"), is(1.0));
+  }
+
+  @Test
+  public void shouldReplaceStaleEntryIfModified() {
+    cache.get(REGION, ID, loader(FIRST, true));
+
+    nanos += TimeUnit.SECONDS.toNanos(61);
+    String value = cache.get(REGION, ID, loader(SECOND, true));
+
+    assertThat(value, is(SECOND));
+    assertThat(count("modified"), is(1.0));
+    assertThat(cache.get(REGION, ID, loader("third", true)), is(SECOND));
+  }
+
+  @Test
+  public void shouldNotCacheMissingResource() {
+    String value = cache.get(REGION, ID, loader(null, true));
+
+    assertThat(value, is(nullValue()));
+    assertThat(cache.get(REGION, ID, loader(FIRST, true)), is(FIRST));
+    assertThat(count("miss"), is(2.0));
+
+    cache.evict(REGION, ID);
+
+    assertThat(cache.get(REGION, ID, loader(SECOND, true)), is(SECOND));
+  }
+
+  @Test
+  public void shouldNotCacheIfDisabled() {
+    ReflectionTestUtils.setField(cache, "enabled", false);
+
+    cache.get(REGION, ID, loader(FIRST, true));
+    String value = cache.get(REGION, ID, loader(SECOND, true));
+
+    assertThat(value, is(SECOND));
+    assertThat(sentEtags, is(Arrays.asList(null, null)));
+  }
+
+  @Test
+  public void shouldUseRegionSpecificTtl() {
+    environment.setProperty("referencedata.cache.ttl." + REGION, "600");
+    environment.setProperty("referencedata.cache.ttl.programs", "0");
+
+    cache.get(REGION, ID, loader(FIRST, true));
+    cache.get("programs", ID, loader(FIRST, true));
+    nanos += TimeUnit.SECONDS.toNanos(300);
+
+    assertThat(cache.get(REGION, ID, loader(SECOND, true)), is(FIRST));
+    assertThat(cache.get("programs", ID, loader(SECOND, true)), is(SECOND));
+  }
+
+  @Test
+  public void shouldReturnStaleEntryIfRevalidationFailsBecauseOfOutage() {
+    cache.get(REGION, ID, loader(FIRST, true));
+    nanos += TimeUnit.SECONDS.toNanos(61);
+
+    String value = cache.get(REGION, ID, etag -> {
+      throw new ResourceAccessException("Read timed out");
+    });
+
+    assertThat(value, is(FIRST));
+    assertThat(count("stale"), is(1.0));
+  }
+
+  @Test(expected = ResourceAccessException.class)
+  public void shouldThrowIfRevalidationFailsAndEntryIsTooOld() {
+    cache.get(REGION, ID, loader(FIRST, true));
+    nanos += TimeUnit.SECONDS.toNanos(3600);
+
+    cache.get(REGION, ID, etag -> {
+      throw new ResourceAccessException("Read timed out");
+    });
+  }
+
+  private Function<String, ServiceResponse<String>> loader(String body, boolean modified) {
+    return etag -> {
+      sentEtags.add(etag);
+      HttpHeaders headers = new HttpHeaders();
+      headers.setETag(ETAG);
+      return new ServiceResponse<>(body, headers, modified);
+    };
+  }
+
+  private double count(String result) {
+    return meterRegistry
+        .counter(ReferenceDataCache.METRIC_NAME, "cache", REGION, "result", result)
+        .count();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.client.ResourceAccessException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RightCatalogTest {
+  private static final String RIGHT_NAME = "ORDERS_VIEW";
+
+  @Mock
+  private RightReferenceDataService rightReferenceDataService;
+
+  @InjectMocks
+  private RightCatalog catalog;
+
+  private RightDto right;
+
+  @Before
+  public void setUp() {
+    right = new RightDto();
+    right.setName(RIGHT_NAME);
+  }
+
+  @Test
+  public void shouldFindRightInLoadedCatalog() {
+    when(rightReferenceDataService.findAll()).thenReturn(singletonList(right));
+
+    catalog.refreshInBackground();
+
+    assertThat(catalog.findRight(RIGHT_NAME), is(sameInstance(right)));
+    assertThat(catalog.findRight(RIGHT_NAME), is(sameInstance(right)));
+    verify(rightReferenceDataService, never()).findRight(anyString());
+  }
+
+  @Test
+  public void shouldFetchAndRememberRightMissingFromCatalog() {
+    when(rightReferenceDataService.findRight(RIGHT_NAME)).thenReturn(right);
+
+    assertThat(catalog.findRight(RIGHT_NAME), is(sameInstance(right)));
+    assertThat(catalog.findRight(RIGHT_NAME), is(sameInstance(right)));
+    verify(rightReferenceDataService, times(1)).findRight(RIGHT_NAME);
+  }
+
+  @Test
+  public void shouldReturnNullIfRightDoesNotExist() {
+    assertThat(catalog.findRight(RIGHT_NAME), is(nullValue()));
+  }
+
+  @Test
+  public void shouldKeepPreviousCatalogIfRefreshFails() {
+    when(rightReferenceDataService.findAll())
+        .thenReturn(singletonList(right))
+        .thenThrow(new ResourceAccessException("timeout"));
+
+    catalog.refreshInBackground();
+    catalog.refreshInBackground();
+
+    assertThat(catalog.findRight(RIGHT_NAME), is(sameInstance(right)));
+    verify(rightReferenceDataService, never()).findRight(anyString());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+public class CallGuardTest {
+  private static final String SERVICE = "referencedata";
+  private static final String RESULT = "result";
+  private static final List<Object> KEY = RequestCoalescer.key("GET", "/api/facilities");
+  private static final List<Object> OTHER_KEY = RequestCoalescer.key("GET", "/api/programs");
+
+  private MeterRegistry meterRegistry;
+  private CallGuard guard;
+  private AtomicInteger calls;
+  private long nanos;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    calls = new AtomicInteger();
+    guard = new CallGuard(SERVICE, new CallGuard.Settings(2, 1000, 1, 0, 10, 60),
+        meterRegistry, new Ticker() {
+          @Override
+          public long read() {
+            return nanos;
+          }
+        });
+  }
+
+  @Test
+  public void shouldOpenCircuitAfterConsecutiveFailuresAndCloseAfterTrialCall() {
+    execute(KEY, failure());
+    execute(KEY, failure());
+    assertThat(guard.isOpen(), is(true));
+
+    execute(KEY, failure());
+    assertThat(calls.get(), is(2));
+    assertThat(count("rejected"), is(1.0));
+
+    nanos += TimeUnit.MILLISECONDS.toNanos(1000);
+    assertThat(guard.execute(KEY, success()), is(RESULT));
+    assertThat(guard.isOpen(), is(false));
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void shouldReopenCircuitIfTrialCallFails() {
+    execute(KEY, failure());
+    execute(KEY, failure());
+    nanos += TimeUnit.MILLISECONDS.toNanos(1000);
+
+    execute(KEY, failure());
+    execute(KEY, failure());
+
+    assertThat(guard.isOpen(), is(true));
+    assertThat(calls.get(), is(3));
+  }
+
+  @Test
+  public void shouldReturnLastResultWhenCallFailsOrIsRejected() {
+    guard.execute(KEY, success());
+
+    assertThat(guard.execute(KEY, failure()), is(RESULT));
+    assertThat(guard.execute(KEY, failure()), is(RESULT));
+    assertThat(guard.isOpen(), is(true));
+    assertThat(guard.execute(KEY, success()), is(RESULT));
+    assertThat(calls.get(), is(3));
+    assertThat(count("stale"), is(3.0));
+  }
+
+  @Test
+  public void shouldNotReturnLastResultIfStaleResultsAreNotAllowed() {
+    guard.execute(KEY, success());
+    guard.execute(OTHER_KEY, success(), false);
+
+    // the remembered result of KEY is not used and no result of OTHER_KEY was remembered
+    RuntimeException exception = null;
+    try {
+      guard.execute(KEY, failure(), false);
+    } catch (ResourceAccessException ex) {
+      exception = ex;
+    }
+
+    assertThat(exception instanceof ResourceAccessException, is(true));
+    assertThat(execute(OTHER_KEY, failure()) instanceof ResourceAccessException, is(true));
+    assertThat(count("stale"), is(0.0));
+  }
+
+  @Test
+  public void shouldNotCountClientErrorsAsFailures() {
+    for (int i = 0; i < 3; ++i) {
+      RuntimeException exception = execute(KEY, () -> {
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+      });
+
+      assertThat(exception instanceof HttpClientErrorException, is(true));
+    }
+
+    assertThat(guard.isOpen(), is(false));
+    assertThat(count("failure"), is(0.0));
+  }
+
+  @Test(expected = CallNotPermittedException.class)
+  public void shouldRejectCallIfBulkheadIsFull() {
+    guard.execute(KEY, () -> guard.execute(OTHER_KEY, success()));
+  }
+
+  private RuntimeException execute(List<Object> key, Supplier<String> call) {
+    try {
+      guard.execute(key, call);
+      return null;
+    } catch (RuntimeException ex) {
+      return ex;
+    }
+  }
+
+  private Supplier<String> success() {
+    return () -> {
+      calls.incrementAndGet();
+      return RESULT;
+    };
+  }
+
+  private Supplier<String> failure() {
+    return () -> {
+      calls.incrementAndGet();
+      throw new ResourceAccessException("Read timed out");
+    };
+  }
+
+  private double count(String result) {
+    return meterRegistry
+        .counter(CallGuard.METRIC_CALLS, "service", SERVICE, "result", result)
+        .count();
+  }
+}
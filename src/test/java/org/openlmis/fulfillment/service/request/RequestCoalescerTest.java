@@ -0,0 +1,115 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+public class RequestCoalescerTest {
+  private static final int THREADS = 5;
+  private static final String URL = "http://localhost/api/facilities";
+
+  private final RequestCoalescer coalescer = new RequestCoalescer();
+  private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldShareResultOfConcurrentIdenticalRequests() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+
+    for (int i = 0; i < THREADS; ++i) {
+      results.add(executor.submit(() -> coalescer.execute(
+          RequestCoalescer.key(HttpMethod.GET, URL), () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "result";
+          })));
+    }
+
+    waitForJoiningThreads();
+    release.countDown();
+
+    for (Future<String> result : results) {
+      assertThat(result.get(5, TimeUnit.SECONDS), is("result"));
+    }
+
+    assertThat(calls.get(), is(1));
+    assertThat(coalescer.getInFlightCount(), is(0));
+  }
+
+  @Test
+  public void shouldNotShareResultOfDifferentRequests() {
+    coalescer.execute(RequestCoalescer.key(HttpMethod.GET, URL, "a"), calls::incrementAndGet);
+    coalescer.execute(RequestCoalescer.key(HttpMethod.GET, URL, "b"), calls::incrementAndGet);
+
+    assertThat(calls.get(), is(2));
+  }
+
+  @Test
+  public void shouldNotKeepResultAfterRequestCompleted() {
+    coalescer.execute(RequestCoalescer.key(HttpMethod.GET, URL), calls::incrementAndGet);
+    coalescer.execute(RequestCoalescer.key(HttpMethod.GET, URL), calls::incrementAndGet);
+
+    assertThat(calls.get(), is(2));
+    assertThat(coalescer.getInFlightCount(), is(0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldRethrowExceptionAndClearInFlightRequest() {
+    try {
+      coalescer.execute(RequestCoalescer.key(HttpMethod.GET, URL), () -> {
+        throw new IllegalStateException();
+      });
+    } finally {
+      assertThat(coalescer.getInFlightCount(), is(0));
+    }
+  }
+
+  private void waitForJoiningThreads() throws InterruptedException {
+    // give the other threads time to join the request started by the first one
+    long deadline = System.currentTimeMillis() + 1000;
+    while (calls.get() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(200);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
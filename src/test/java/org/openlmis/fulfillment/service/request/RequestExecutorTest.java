@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RequestExecutorTest {
+  private RequestExecutor executor;
+  private Set<String> threads;
+
+  @Before
+  public void setUp() {
+    executor = new RequestExecutor();
+    ReflectionTestUtils.setField(executor, "parallelism", 4);
+    ReflectionTestUtils.setField(executor, "queueSize", 10);
+    executor.start();
+
+    threads = ConcurrentHashMap.newKeySet();
+  }
+
+  @After
+  public void tearDown() {
+    executor.stop();
+  }
+
+  @Test
+  public void shouldReturnResultsInTaskOrder() {
+    List<Integer> results = executor.invokeAll(Arrays.asList(
+        task(1, 50), task(2, 0), task(3, 20), task(4, 0)));
+
+    assertThat(results, contains(1, 2, 3, 4));
+    assertThat(threads.size() > 1, is(true));
+  }
+
+  @Test
+  public void shouldPassResultsToConsumerInTaskOrderInCallingThread() {
+    List<Integer> results = new ArrayList<>();
+    List<String> consumers = new ArrayList<>();
+
+    executor.invokeAll(Arrays.asList(task(1, 50), task(2, 0), task(3, 20), task(4, 0)),
+        result -> {
+          results.add(result);
+          consumers.add(Thread.currentThread().getName());
+        });
+
+    assertThat(results, contains(1, 2, 3, 4));
+    assertThat(consumers.stream().distinct().toArray(),
+        is(new Object[]{Thread.currentThread().getName()}));
+  }
+
+  @Test
+  public void shouldExecuteTasksInCallingThreadIfNotStarted() {
+    List<Integer> results = new RequestExecutor().invokeAll(Arrays.asList(task(1, 0), task(2, 0)));
+
+    assertThat(results, contains(1, 2));
+    assertThat(threads, contains(Thread.currentThread().getName()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRethrowExceptionOfFailedTask() {
+    executor.invokeAll(Arrays.asList(task(1, 0), () -> {
+      throw new IllegalArgumentException();
+    }));
+  }
+
+  private Supplier<Integer> task(int result, long delay) {
+    return () -> {
+      threads.add(Thread.currentThread().getName());
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      return result;
+    };
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+public class RestTemplateFactoryTest {
+  private static final String SERVICE = "referencedata";
+
+  private RestTemplateFactory factory;
+
+  @Before
+  public void setUp() {
+    MockEnvironment environment = new MockEnvironment()
+        .withProperty("http.client.default.connectTimeout", "1000")
+        .withProperty("http.client.default.readTimeout", "2000")
+        .withProperty("http.client.default.connectionRequestTimeout", "3000")
+        .withProperty("http.client.default.maxConnections", "10")
+        .withProperty("http.client.default.keepAlive", "30000")
+        .withProperty("http.client.default.compression", "true")
+        .withProperty("http.client." + SERVICE + ".readTimeout", "5000");
+
+    factory = new RestTemplateFactory();
+    ReflectionTestUtils.setField(factory, "environment", environment);
+  }
+
+  @After
+  public void tearDown() {
+    factory.close();
+  }
+
+  @Test
+  public void shouldShareConnectionPoolBetweenTemplatesOfSameService() {
+    RestTemplate first = factory.create(SERVICE);
+    RestTemplate second = factory.create(SERVICE);
+
+    assertThat(first, is(not(sameInstance(second))));
+    assertThat(first.getRequestFactory(), is(sameInstance(second.getRequestFactory())));
+    assertThat(factory.create("notification").getRequestFactory(),
+        is(not(sameInstance(first.getRequestFactory()))));
+  }
+
+  @Test
+  public void shouldUseServiceSettingsWithDefaultFallback() {
+    RequestConfig config = getConfig(SERVICE);
+
+    assertThat(config.getSocketTimeout(), is(5000));
+    assertThat(config.getConnectTimeout(), is(1000));
+    assertThat(config.getConnectionRequestTimeout(), is(3000));
+    assertThat(getConfig("notification").getSocketTimeout(), is(2000));
+  }
+
+  private RequestConfig getConfig(String service) {
+    HttpComponentsClientHttpRequestFactory requestFactory =
+        (HttpComponentsClientHttpRequestFactory) factory.getRequestFactory(service);
+
+    return ((Configurable) requestFactory.getHttpClient()).getConfig();
+  }
+}
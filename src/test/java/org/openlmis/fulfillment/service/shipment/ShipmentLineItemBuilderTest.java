@@ -18,6 +18,9 @@ package org.openlmis.fulfillment.service.shipment;
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 import java.util.UUID;
@@ -26,7 +29,6 @@ import org.apache.commons.csv.CSVRecord;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.openlmis.fulfillment.FileColumnBuilder;
 import org.openlmis.fulfillment.FileTemplateBuilder;
@@ -34,6 +36,8 @@ import org.openlmis.fulfillment.domain.FileColumn;
 import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.TemplateType;
 import org.openlmis.fulfillment.service.FulfillmentException;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.openlmis.fulfillment.service.referencedata.OrderableCatalog;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.testutils.OrderableDataBuilder;
@@ -41,6 +45,8 @@ import org.openlmis.fulfillment.util.FileColumnKeyPath;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(CSVRecord.class)
@@ -62,7 +68,6 @@ public class ShipmentLineItemBuilderTest {
 
   FileTemplate template;
 
-  @InjectMocks
   ShipmentLineItemBuilder builder = new ShipmentLineItemBuilder();
 
   CSVRecord csvRecord1 = PowerMockito.mock(CSVRecord.class);
@@ -82,7 +87,13 @@ public class ShipmentLineItemBuilderTest {
         .withVersionNumber(VERSION_NUMBER)
         .build();
 
-    when(orderableReferenceDataService.findAll()).thenReturn(asList(dto1, dto2));
+    when(orderableReferenceDataService.findAll(nullable(String.class))).thenReturn(
+        new ServiceResponse<>(asList(dto1, dto2), new HttpHeaders(), true));
+
+    OrderableCatalog orderableCatalog = new OrderableCatalog();
+    ReflectionTestUtils.setField(orderableCatalog, "orderableReferenceDataService",
+        orderableReferenceDataService);
+    ReflectionTestUtils.setField(builder, "orderableCatalog", orderableCatalog);
 
     when(csvRecord1.get(0)).thenReturn(ORDER_CODE);
     when(csvRecord1.get(1)).thenReturn(ORDERABLE_ID);
@@ -144,6 +155,14 @@ public class ShipmentLineItemBuilderTest {
     assertThat(result.getLineItems().size(), is(0));
   }
 
+  @Test
+  public void buildShouldReuseOrderableCatalogBetweenFiles() {
+    builder.build(template, asList(csvRecord1));
+    builder.build(template, asList(csvRecord1));
+
+    verify(orderableReferenceDataService, times(1)).findAll(nullable(String.class));
+  }
+
   @Test(expected = FulfillmentException.class)
   public void throwsExceptionWhenTemplateDoesNotContainOrderableField() {
     template.setFileColumns(template.getFileColumns().stream()
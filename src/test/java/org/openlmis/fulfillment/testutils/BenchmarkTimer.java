@@ -0,0 +1,75 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.testutils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times an action for the main()-based benchmarks (classes named {@code *Benchmark}). These
+ * benchmarks are not tests and are never executed by the build; they are run by hand with the
+ * test or the integration test classpath and print one row per case to the standard output.
+ *
+ * <p>Every action is first run {@code warmUp} times so that the JIT compiler has optimized it,
+ * and then timed separately {@code iterations} times. The median and the 90th percentile of the
+ * timed runs are reported, so single slow runs (garbage collection, other processes) do not
+ * skew the result the way an average would.
+ */
+public final class BenchmarkTimer {
+  private final int warmUp;
+  private final int iterations;
+
+  public BenchmarkTimer(int warmUp, int iterations) {
+    this.warmUp = warmUp;
+    this.iterations = iterations;
+  }
+
+  /**
+   * Times the given action.
+   *
+   * @return the median and the 90th percentile in microseconds, as "median / p90".
+   */
+  public String measure(Runnable action) {
+    return measure(() -> { }, action);
+  }
+
+  /**
+   * Times the given action. The preparation is run before each run of the action and it is not
+   * included in the time.
+   *
+   * @return the median and the 90th percentile in microseconds, as "median / p90".
+   */
+  public String measure(Runnable preparation, Runnable action) {
+    for (int i = 0; i < warmUp; ++i) {
+      preparation.run();
+      action.run();
+    }
+
+    long[] times = new long[iterations];
+
+    for (int i = 0; i < iterations; ++i) {
+      preparation.run();
+      long start = System.nanoTime();
+      action.run();
+      times[i] = System.nanoTime() - start;
+    }
+
+    Arrays.sort(times);
+
+    return String.format(Locale.ENGLISH, "%.1f / %.1f",
+        times[iterations / 2] / 1000.0, times[iterations * 9 / 10] / 1000.0);
+  }
+}
@@ -23,23 +23,28 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.UUID;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.service.referencedata.RightCatalog;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
-import org.openlmis.fulfillment.service.referencedata.RightReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AuthenticationHelperTest {
@@ -48,7 +53,7 @@ public class AuthenticationHelperTest {
   private UserReferenceDataService userReferenceDataService;
 
   @Mock
-  private RightReferenceDataService rightReferenceDataService;
+  private RightCatalog rightCatalog;
 
   @InjectMocks
   private AuthenticationHelper authenticationHelper;
@@ -67,6 +72,11 @@ public class AuthenticationHelperTest {
     SecurityContextHolder.setContext(securityContext);
   }
 
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
   @Test
   public void shouldReturnUser() {
     // given
@@ -81,6 +91,24 @@ public class AuthenticationHelperTest {
     assertEquals(userMock, user);
   }
 
+  @Test
+  public void shouldFetchUserOnlyOncePerRequest() {
+    // given
+    UserDto userMock = mock(UserDto.class);
+    when(authentication.isClientOnly()).thenReturn(false);
+    when(userReferenceDataService.findOne(userId)).thenReturn(userMock);
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+
+    // when
+    authenticationHelper.getCurrentUser();
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    // then
+    assertEquals(userMock, user);
+    verify(userReferenceDataService, times(1)).findOne(userId);
+  }
+
   @Test(expected = AuthenticationException.class)
   public void shouldThrowExceptionIfUserDoesNotExist() {
     // given
@@ -104,11 +132,24 @@ public class AuthenticationHelperTest {
     verify(authentication, never()).getPrincipal();
   }
 
+  @Test
+  public void shouldReturnUserIdWithoutFetchingUser() {
+    // given
+    when(authentication.isClientOnly()).thenReturn(false);
+
+    // when
+    UUID id = authenticationHelper.getCurrentUserId();
+
+    // then
+    assertEquals(userId, id);
+    verify(userReferenceDataService, never()).findOne(any(UUID.class));
+  }
+
   @Test
   public void shouldReturnRight() throws Exception {
     // given
     RightDto right = mock(RightDto.class);
-    when(rightReferenceDataService.findRight("rightName")).thenReturn(right);
+    when(rightCatalog.findRight("rightName")).thenReturn(right);
 
     // when
     RightDto dto = authenticationHelper.getRight("rightName");
@@ -121,7 +162,7 @@ public class AuthenticationHelperTest {
   @Test(expected = AuthenticationException.class)
   public void shouldThrowExceptionIfRightDoesNotExist() {
     // given
-    when(rightReferenceDataService.findRight(anyString())).thenReturn(null);
+    when(rightCatalog.findRight(anyString())).thenReturn(null);
 
     // when
     authenticationHelper.getRight("rightName");
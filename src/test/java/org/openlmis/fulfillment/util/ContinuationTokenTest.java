@@ -0,0 +1,56 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import org.junit.Test;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.web.ValidationException;
+
+public class ContinuationTokenTest {
+
+  @Test
+  public void shouldDecodeEncodedToken() {
+    Order order = new OrderDataBuilder()
+        .withCreatedDate(ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 123_456_000, ZoneOffset.UTC))
+        .build();
+    ContinuationToken token = ContinuationToken.after(order);
+
+    ContinuationToken decoded = ContinuationToken.decode(token.encode());
+
+    assertThat(decoded, is(token));
+    assertThat(decoded.getCreatedDate().toInstant(), is(order.getCreatedDate().toInstant()));
+    assertThat(decoded.getId(), is(order.getId()));
+  }
+
+  @Test
+  public void shouldReturnNullForBlankToken() {
+    assertThat(ContinuationToken.decode(" "), is(nullValue()));
+    assertThat(ContinuationToken.decode(null), is(nullValue()));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectMalformedToken() {
+    ContinuationToken.decode(UUID.randomUUID().toString());
+  }
+}
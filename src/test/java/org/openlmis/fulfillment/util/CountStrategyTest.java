@@ -0,0 +1,43 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openlmis.fulfillment.web.ValidationException;
+
+public class CountStrategyTest {
+
+  @Test
+  public void shouldParseStrategyIgnoringCase() {
+    assertThat(CountStrategy.fromString("none"), is(CountStrategy.NONE));
+    assertThat(CountStrategy.fromString("Estimate"), is(CountStrategy.ESTIMATE));
+    assertThat(CountStrategy.fromString("EXACT"), is(CountStrategy.EXACT));
+  }
+
+  @Test
+  public void shouldUseExactCountByDefault() {
+    assertThat(CountStrategy.fromString(null), is(CountStrategy.EXACT));
+    assertThat(CountStrategy.fromString(" "), is(CountStrategy.EXACT));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldRejectUnknownStrategy() {
+    CountStrategy.fromString("approximate");
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.GeographicZoneDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.testutils.BenchmarkTimer;
+
+/**
+ * Measures how long it takes to merge the responses of a split facility request with
+ * {@link Merger}, which keys the elements by their ids, compared to the previous approach based
+ * on {@code Stream.distinct()}, which compares whole objects. Each result is split into
+ * {@value #CHUNKS} chunks and each chunk shares 10% of its elements with the previous one. The
+ * data is generated from a fixed seed, so every run merges the same objects.
+ *
+ * <p>For every result size the median and the 90th percentile of {@value #ITERATIONS} merges
+ * (after {@value #WARM_UP} warm-up merges) are printed in microseconds, see
+ * {@link BenchmarkTimer}. This is not a unit test and it is not executed by the build. Run it
+ * with the test classpath:
+ * {@code java -cp <test classpath> org.openlmis.fulfillment.util.MergerBenchmark}.
+ */
+public final class MergerBenchmark {
+  private static final int[] SIZES = {1000, 2500, 5000, 10000};
+  private static final int CHUNKS = 4;
+  private static final int WARM_UP = 2_000;
+  private static final int ITERATIONS = 1_000;
+  private static final long SEED = 42;
+
+  private static long blackHole;
+
+  private MergerBenchmark() {
+  }
+
+  /**
+   * Prints the merge times for each result size.
+   */
+  public static void main(String[] args) {
+    BenchmarkTimer timer = new BenchmarkTimer(WARM_UP, ITERATIONS);
+    Random random = new Random(SEED);
+
+    System.out.println("elements\tMerger (us)\tStream.distinct (us)\t[median / p90]");
+
+    for (int size : SIZES) {
+      List<FacilityDto[]> chunks = createChunks(size, random);
+
+      String byId = timer.measure(() -> blackHole += Merger.ofArrays(chunks).merge().length);
+      String distinct = timer.measure(() -> blackHole += chunks.stream()
+          .flatMap(Arrays::stream)
+          .distinct()
+          .toArray(FacilityDto[]::new)
+          .length);
+
+      System.out.printf("%d\t%s\t%s%n", size, byId, distinct);
+    }
+
+    System.out.println("checksum: " + blackHole);
+  }
+
+  private static List<FacilityDto[]> createChunks(int size, Random random) {
+    List<FacilityDto> facilities = new ArrayList<>(size);
+
+    for (int i = 0; i < size; ++i) {
+      facilities.add(createFacility(i, random));
+    }
+
+    List<FacilityDto[]> chunks = new ArrayList<>(CHUNKS);
+    int chunkSize = size / CHUNKS;
+    int overlap = chunkSize / 10;
+
+    for (int i = 0; i < CHUNKS; ++i) {
+      int from = Math.max(0, i * chunkSize - overlap);
+      int to = i == CHUNKS - 1 ? size : (i + 1) * chunkSize;
+      chunks.add(facilities.subList(from, to).toArray(new FacilityDto[0]));
+    }
+
+    return chunks;
+  }
+
+  private static FacilityDto createFacility(int index, Random random) {
+    GeographicZoneDto zone = new GeographicZoneDto();
+    zone.setId(new UUID(random.nextLong(), random.nextLong()));
+    zone.setCode("zone-" + index % 50);
+    zone.setName("Zone " + index % 50);
+
+    ProgramDto program = new ProgramDto();
+    program.setId(new UUID(random.nextLong(), random.nextLong()));
+    program.setCode("program-" + index % 5);
+    program.setName("Program " + index % 5);
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(new UUID(random.nextLong(), random.nextLong()));
+    facility.setCode("facility-" + index);
+    facility.setName("Facility " + index);
+    facility.setDescription("Benchmark facility number " + index);
+    facility.setActive(true);
+    facility.setEnabled(true);
+    facility.setGeographicZone(zone);
+    facility.setSupportedPrograms(Arrays.asList(program));
+
+    return facility;
+  }
+}
@@ -17,6 +17,7 @@ package org.openlmis.fulfillment.util;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
@@ -27,8 +28,10 @@ import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.ImmutableList;
 import java.util.List;
+import java.util.UUID;
 import org.junit.Test;
 import org.openlmis.fulfillment.service.PageDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.springframework.data.domain.PageImpl;
 
 public class MergerTest {
@@ -105,4 +108,39 @@ public class MergerTest {
     assertThat(merged.getContent(), hasSize(4));
     assertThat(merged.getContent(), hasItems("a", "b", "c", "d"));
   }
+
+  @Test
+  public void shouldMergeDtosById() {
+    UUID id = UUID.randomUUID();
+    FacilityDto facility = new FacilityDto();
+    facility.setId(id);
+    facility.setName("a");
+    FacilityDto changed = new FacilityDto();
+    changed.setId(id);
+    changed.setName("b");
+    FacilityDto other = new FacilityDto();
+    other.setId(UUID.randomUUID());
+
+    FacilityDto[] merged = Merger
+        .ofArrays(ImmutableList.of(new FacilityDto[]{facility}, new FacilityDto[]{changed, other}))
+        .merge();
+
+    assertThat(merged, arrayContaining(facility, other));
+  }
+
+  @Test
+  public void shouldMergeChunksAddedOneByOne() {
+    Merger<PageDto<String>> merger = Merger.<String>ofPages(3)
+        .withDefaultValue(PageDto::new);
+
+    assertThat(merger.merge().getContent(), hasSize(0));
+
+    merger
+        .add(new PageDto<>(new PageImpl<>(ImmutableList.of("a", "b"))))
+        .add(null)
+        .add(new PageDto<>(new PageImpl<>(ImmutableList.of("b", "c"))));
+
+    assertThat(merger.merge().getContent(), contains("a", "b", "c"));
+    assertThat(merger.merge().getTotalElements(), is(3L));
+  }
 }
@@ -21,18 +21,23 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -52,6 +57,7 @@ import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataServic
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.openlmis.fulfillment.testutils.UpdateDetailsDataBuilder;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
+import org.openlmis.fulfillment.web.util.BasicOrderDtoBuilder;
 import org.openlmis.fulfillment.web.util.IdsDto;
 import org.openlmis.fulfillment.web.util.OrderDto;
 import org.openlmis.fulfillment.web.util.OrderDtoBuilder;
@@ -89,6 +95,8 @@ public class OrderControllerTest {
   private PermissionService permissionService;
   @Mock
   private OrderValidator orderValidator;
+  @Mock
+  private BasicOrderDtoBuilder basicOrderDtoBuilder;
 
   @Mock
   private OrderRepository orderRepository;
@@ -169,6 +177,22 @@ public class OrderControllerTest {
     assertThat(shipment.getExtraData(), hasEntry("external", "true"));
   }
 
+  @Test
+  public void shouldCheckRightsForAllOrdersBeforeCreatingAnyInBatch() {
+    OrderDto secondDto = new OrderDto();
+    secondDto.setUpdaterId(lastUpdaterId);
+    List<OrderDto> orders = Arrays.asList(orderDto, secondDto);
+    when(orderService.createOrder(secondDto, lastUpdaterId)).thenReturn(order);
+    when(authentication.isClientOnly()).thenReturn(false);
+
+    orderController.batchCreateOrders(orders, authentication);
+
+    InOrder inOrder = inOrder(permissionService, orderService);
+    inOrder.verify(permissionService).canEditOrders(orders);
+    inOrder.verify(orderService, times(2)).createOrder(any(OrderDto.class), eq(lastUpdaterId));
+    verify(permissionService, never()).canEditOrder(any(OrderDto.class));
+  }
+
   @Test
   public void shouldDeleteMultipleOrders() {
     //given
@@ -18,10 +18,14 @@ package org.openlmis.fulfillment.web.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.junit.Before;
@@ -33,9 +37,14 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class BasicOrderDtoBuilderTest {
@@ -43,6 +52,18 @@ public class BasicOrderDtoBuilderTest {
   @Mock
   private OrderExportHelper orderExportHelper;
 
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Mock
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
   @InjectMocks
   private BasicOrderDtoBuilder orderDtoBuilder = new BasicOrderDtoBuilder();
 
@@ -85,6 +106,37 @@ public class BasicOrderDtoBuilderTest {
     assertEquals(order.getStatus(), orderDto.getStatus());
   }
 
+  @Test
+  public void shouldBuildDtosWithReferenceDataFetchedConcurrently() {
+    ReferenceDataPrefetcher prefetcher = new ReferenceDataPrefetcher();
+    ReflectionTestUtils.setField(prefetcher, "parallelism", 4);
+    ReflectionTestUtils.setField(prefetcher, "queueSize", 4);
+    prefetcher.start();
+    ReflectionTestUtils.setField(orderDtoBuilder, "prefetcher", prefetcher);
+
+    FacilityDto facility = new FacilityDto();
+    facility.setId(order.getSupplyingFacilityId());
+    ProgramDto program = new ProgramDto();
+    program.setId(order.getProgramId());
+
+    when(facilityReferenceDataService.findByIds(anySetOf(UUID.class)))
+        .thenReturn(Collections.singletonList(facility));
+    when(programReferenceDataService.findByIds(anySetOf(UUID.class)))
+        .thenReturn(Collections.singletonList(program));
+
+    try {
+      List<BasicOrderDto> dtos = orderDtoBuilder.build(Collections.singletonList(order));
+
+      assertEquals(1, dtos.size());
+      verify(orderExportHelper).setSubResources(eq(dtos.get(0)), eq(order),
+          eq(Collections.singletonMap(facility.getId(), facility)),
+          eq(Collections.singletonMap(program.getId(), program)),
+          eq(Collections.emptyMap()), eq(Collections.emptyMap()));
+    } finally {
+      prefetcher.stop();
+    }
+  }
+
   @Test
   public void shouldReturnNullIfOrderIsNull() {
     assertNull(orderDtoBuilder.build((Order) null));
@@ -0,0 +1,152 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.web.util;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_STREAM_INCOMPLETE;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.testutils.FacilityDataBuilder;
+import org.openlmis.fulfillment.testutils.UserDataBuilder;
+import org.openlmis.fulfillment.util.Message;
+import org.openlmis.fulfillment.util.Message.LocalizedMessage;
+
+public class BasicOrderDtoStreamWriterTest {
+
+  private static final String ERROR_MESSAGE = "The output is incomplete";
+
+  private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+  private StringWriter output = new StringWriter();
+
+  @Test
+  public void shouldWriteOneJsonObjectPerLine() throws IOException {
+    BasicOrderDto first = createOrder();
+    BasicOrderDto second = createOrder();
+
+    try (BasicOrderDtoStreamWriter writer =
+        new BasicOrderDtoStreamWriter(OrderStreamFormat.NDJSON, output, objectMapper)) {
+      writer.write(Arrays.asList(first));
+      writer.write(Arrays.asList(second));
+    }
+
+    String[] lines = output.toString().split("\n");
+
+    assertEquals(2, lines.length);
+    JsonNode json = objectMapper.readTree(lines[1]);
+    assertEquals(second.getId().toString(), json.get("id").asText());
+    assertEquals(second.getOrderCode(), json.get("orderCode").asText());
+  }
+
+  @Test
+  public void shouldWriteCsvHeaderAndOneRowPerOrder() throws IOException {
+    BasicOrderDto first = createOrder();
+    BasicOrderDto second = createOrder();
+    second.setSupplyingFacility(null);
+
+    try (BasicOrderDtoStreamWriter writer =
+        new BasicOrderDtoStreamWriter(OrderStreamFormat.CSV, output, objectMapper)) {
+      writer.write(Arrays.asList(first, second));
+    }
+
+    CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(
+        new StringReader(output.toString()));
+    List<CSVRecord> records = parser.getRecords();
+
+    assertEquals(Arrays.asList(BasicOrderDtoStreamWriter.CSV_HEADER),
+        Arrays.asList(parser.getHeaderMap().keySet().toArray(new String[0])));
+    assertEquals(2, records.size());
+    assertEquals(first.getId().toString(), records.get(0).get("id"));
+    assertEquals(first.getCreatedBy().getUsername(), records.get(0).get("createdBy"));
+    assertEquals(first.getSupplyingFacility().getCode(),
+        records.get(0).get("supplyingFacility"));
+    assertEquals("", records.get(1).get("supplyingFacility"));
+  }
+
+  @Test
+  public void shouldWriteErrorAsLastJsonLine() throws IOException {
+    try (BasicOrderDtoStreamWriter writer =
+        new BasicOrderDtoStreamWriter(OrderStreamFormat.NDJSON, output, objectMapper)) {
+      writer.write(Arrays.asList(createOrder()));
+      writer.writeError(createError(writer.getWrittenCount()));
+    }
+
+    String[] lines = output.toString().split("\n");
+
+    assertEquals(2, lines.length);
+    JsonNode error = objectMapper.readTree(lines[1]).get(BasicOrderDtoStreamWriter.ERROR_PROPERTY);
+    assertEquals(ORDER_STREAM_INCOMPLETE, error.get("messageKey").asText());
+    assertEquals(ERROR_MESSAGE, error.get("message").asText());
+  }
+
+  @Test
+  public void shouldWriteErrorAsCsvComment() throws IOException {
+    try (BasicOrderDtoStreamWriter writer =
+        new BasicOrderDtoStreamWriter(OrderStreamFormat.CSV, output, objectMapper)) {
+      writer.write(Arrays.asList(createOrder(), createOrder()));
+      writer.writeError(createError(writer.getWrittenCount()));
+    }
+
+    CSVParser parser = CSVFormat.DEFAULT
+        .withFirstRecordAsHeader()
+        .withCommentMarker(BasicOrderDtoStreamWriter.CSV_COMMENT_MARKER)
+        .parse(new StringReader(output.toString()));
+    List<CSVRecord> records = parser.getRecords();
+
+    assertEquals(2, records.size());
+    assertThat(output.toString(), endsWith(
+        BasicOrderDtoStreamWriter.CSV_COMMENT_MARKER + " " + ORDER_STREAM_INCOMPLETE + ": "
+            + ERROR_MESSAGE + "\r\n"));
+  }
+
+  private LocalizedMessage createError(int writtenCount) {
+    return new Message(ORDER_STREAM_INCOMPLETE, writtenCount).new LocalizedMessage(ERROR_MESSAGE);
+  }
+
+  private BasicOrderDto createOrder() {
+    FacilityDto facility = new FacilityDataBuilder().build();
+    UserDto user = new UserDataBuilder().build();
+
+    BasicOrderDto order = new BasicOrderDto();
+    order.setId(UUID.randomUUID());
+    order.setOrderCode("ORDER-" + order.getId());
+    order.setStatus(OrderStatus.ORDERED);
+    order.setEmergency(false);
+    order.setFacility(facility);
+    order.setRequestingFacility(facility);
+    order.setReceivingFacility(facility);
+    order.setSupplyingFacility(facility);
+    order.setCreatedBy(user);
+
+    return order;
+  }
+}
@@ -18,8 +18,10 @@ package org.openlmis.fulfillment.web.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +31,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +42,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
@@ -83,13 +87,26 @@ public class OrderDtoBuilderTest {
 
   @Test
   public void shouldBuildDtoFromOrder() {
-    when(orderExportHelper.exportToDtos(lineItems, null))
+    Map<VersionIdentityDto, OrderableDto> orderables = ImmutableMap.of(
+        new VersionIdentityDto(orderableId, 1L), orderableDto);
+    Set<VersionEntityReference> identities = Collections.singleton(
+        new VersionEntityReference(orderableId, 1L));
+    Thread caller = Thread.currentThread();
+    when(orderExportHelper.getOrderableIdentities(lineItems))
+        .thenAnswer(invocation -> {
+          // the lazy line items must be read by the thread that owns the session
+          assertEquals(caller, Thread.currentThread());
+          return identities;
+        });
+    when(orderExportHelper.findOrderables(identities))
+        .thenReturn(orderables);
+    when(orderExportHelper.exportToDtos(lineItems, orderables))
         .thenReturn(lineItemDtos);
 
     OrderDto orderDto = orderDtoBuilder.build(order);
 
     verify(orderExportHelper).setSubResources(orderDto, order, null, null, null, null);
-    verify(orderExportHelper).exportToDtos(eq(lineItems), isNull(Map.class));
+    verify(orderExportHelper).exportToDtos(eq(lineItems), eq(orderables));
     assertNotNull(orderDto);
     assertEquals(order.getId(), orderDto.getId());
     assertEquals(order.getExternalId(), orderDto.getExternalId());
@@ -117,6 +134,8 @@ public class OrderDtoBuilderTest {
     verify(orderExportHelper).setSubResources(
         eq(orderDto), eq(order), eq(facilities), eq(programs), eq(periods), eq(users));
     verify(orderExportHelper).exportToDtos(eq(lineItems), eq(orderables));
+    verify(orderExportHelper, never()).getOrderableIdentities(anyListOf(OrderLineItem.class));
+    verify(orderExportHelper, never()).findOrderables(anySetOf(VersionEntityReference.class));
     assertNotNull(orderDto);
     assertEquals(order.getId(), orderDto.getId());
     assertEquals(order.getExternalId(), orderDto.getExternalId());